@@ -0,0 +1,457 @@
+package nablarch.common.code;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.cache.StaticDataLoader;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コードの読み込みを呼び出し元のスレッドをブロックせずに行える、コードのキャッシュ。
+ * <p/>
+ * {@link BasicCodeManager#setCodeDefinitionCache(StaticDataCache)}に設定して使用する。
+ * 読み込み済みのコードは{@link #getValueIfPresent(Object)}でブロックせずに取得でき、
+ * 未読み込みのコードは{@link #loadAsync(Object, CodeLoadListener)}で別スレッドで読み込める。
+ * イベントループなどブロックできないスレッドでは、以下のように使用する。
+ * <pre>
+ * {@code
+ * if (cache.getValueIfPresent(codeId) != null) {
+ *     // 読み込み済みのため、BasicCodeManagerはブロックしない
+ *     String name = codeManager.getName(codeId, value);
+ * } else {
+ *     cache.loadAsync(codeId, listener);
+ * }
+ * }
+ * </pre>
+ * 同じコードIDに対する読み込みが並行して要求された場合は、1回の読み込みにまとめる。
+ * <p/>
+ * {@link #getValue(Object)}は{@link StaticDataCache}の規約に従い、読み込みが完了するまでブロックする。
+ * <p/>
+ * 読み込みに使用する{@link ExecutorService}を設定しない場合は、デーモンスレッドを使用する{@link ExecutorService}を
+ * 初めて読み込みを行う時点で生成する。
+ * <p/>
+ * {@link CodeTracer}のロガーでデバッグレベルのログを出力する場合は、コードの読み込みと再読み込みに要した時間を出力する。
+ */
+@Published(tag = "architect")
+public class AsyncCodeDefinitionCache implements StaticDataCache<Code>, Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(AsyncCodeDefinitionCache.class);
+
+    /** コードのローダ */
+    private StaticDataLoader<Code> loader;
+
+    /** 読み込みに使用する{@link ExecutorService} */
+    private ExecutorService executor;
+
+    /** 初期化時に全てのコードを読み込むか否か */
+    private boolean loadOnStartup = false;
+
+    /** コードIDと読み込み済みのコードのMap */
+    private volatile ConcurrentMap<Object, Code> values = new ConcurrentHashMap<Object, Code>();
+
+    /** コードIDと読み込み中のタスクのMap */
+    private final ConcurrentMap<Object, LoadTask> loading = new ConcurrentHashMap<Object, LoadTask>();
+
+    /** 読み込み結果のキャッシュへの反映と、キャッシュの破棄を排他するためのロック */
+    private final Object lock = new Object();
+
+    /** 最後に全てのコードを破棄した日時(破棄していない場合は0) */
+    private volatile long lastRefreshTime;
+
+    /** 最後に全てのコードを破棄した際の処理時間(ミリ秒) */
+    private volatile long lastRefreshDuration;
+
+    /**
+     * コードのローダを設定する。
+     *
+     * @param loader コードのローダ
+     */
+    public void setLoader(StaticDataLoader<Code> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * 読み込みに使用する{@link ExecutorService}を設定する。
+     *
+     * @param executor 読み込みに使用する{@link ExecutorService}
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 初期化時、およびキャッシュの再読み込み時に全てのコードを読み込むか否かを設定する。(デフォルトはfalse)
+     *
+     * @param loadOnStartup 全てのコードを読み込む場合true
+     */
+    public void setLoadOnStartup(boolean loadOnStartup) {
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 初期化時に全てのコードを読み込む設定の場合は、全てのコードを読み込む。
+     */
+    public void initialize() {
+        refresh();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 読み込み済みでない場合は、読み込みが完了するまでブロックする。
+     *
+     * @throws IllegalStateException 読み込み中に割り込まれた場合
+     */
+    public Code getValue(Object id) throws IllegalStateException {
+        Code value = values.get(id);
+        if (value != null) {
+            return value;
+        }
+        try {
+            return loadAsync(id, null).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while loading code. code id = " + id, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("failed to load code. code id = " + id, e.getCause());
+        }
+    }
+
+    /**
+     * 読み込み済みのコードを取得する。<br/>
+     *
+     * 本メソッドはコードを読み込まないため、ブロックしない。
+     *
+     * @param id コードID
+     * @return 読み込み済みのコード。読み込み済みでない場合はnull
+     */
+    public Code getValueIfPresent(Object id) {
+        return values.get(id);
+    }
+
+    /**
+     * コードを別スレッドで読み込む。<br/>
+     *
+     * 読み込み済みの場合は、完了済みの{@link Future}を返し、リスナーを呼び出し元のスレッドで呼び出す。
+     * 同じコードIDを読み込み中の場合は、読み込み中のタスクの{@link Future}を返し、読み込み完了時にリスナーを呼び出す。
+     * 読み込んだコードは、読み込み中にキャッシュが破棄されていない場合にのみキャッシュする。
+     * <p/>
+     * 返却する{@link Future}は同じコードIDの読み込みを待つ全ての呼び出し元で共有するため、
+     * {@link Future#cancel(boolean)}で読み込みを取り消すことはできない(常にfalseを返す)。
+     *
+     * @param id コードID
+     * @param listener 読み込み結果を受け取るリスナー(不要な場合はnull)
+     * @return 読み込み結果の{@link Future}。コードIDに対応するコードが存在しない場合の結果はnull
+     */
+    public Future<Code> loadAsync(Object id, CodeLoadListener listener) {
+        Code value = values.get(id);
+        if (value != null) {
+            LoadTask done = new LoadTask(id, value);
+            done.run();
+            done.addListener(listener);
+            return done.result;
+        }
+        LoadTask task = loading.get(id);
+        if (task == null) {
+            LoadTask created = new LoadTask(id, null);
+            task = loading.putIfAbsent(id, created);
+            if (task == null) {
+                task = created;
+                getExecutor().execute(task);
+            }
+        }
+        task.addListener(listener);
+        return task.result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * インデックスによる取得はキャッシュせず、ローダから取得する。
+     */
+    public List<Code> getValues(String indexName, Object key) {
+        return loader.getValues(indexName, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 読み込み済みのコードを全て破棄する。読み込み中のコードはキャッシュされない。
+     * 初期化時に全てのコードを読み込む設定の場合は、全てのコードを読み込んでから置き換える。
+     */
+    public void refresh() {
+        long start = System.nanoTime();
+        ConcurrentMap<Object, Code> newValues = new ConcurrentHashMap<Object, Code>();
+        if (loadOnStartup) {
+            for (Code code : loader.loadAll()) {
+                newValues.put(loader.getId(code), code);
+            }
+        }
+        synchronized (lock) {
+            loading.clear();
+            values = newValues;
+        }
+        long elapsed = System.nanoTime() - start;
+        lastRefreshTime = System.currentTimeMillis();
+        lastRefreshDuration = elapsed / 1000000L;
+        if (CodeTracer.isEnabled()) {
+            CodeTracer.trace("reload", elapsed, "code ids = (all), loaded codes = " + newValues.size());
+        }
+    }
+
+    /**
+     * 指定したコードIDのコードを破棄する。<br/>
+     *
+     * 次に取得された時点で、ローダから読み込み直す。読み込み中のコードはキャッシュされない。
+     *
+     * @param id コードID
+     */
+    public void refresh(Object id) {
+        synchronized (lock) {
+            loading.remove(id);
+            values.remove(id);
+        }
+    }
+
+    /**
+     * 読み込み済みのコードを取得する。
+     *
+     * @return 読み込み済みのコード
+     */
+    Collection<Code> getLoadedValues() {
+        return values.values();
+    }
+
+    /**
+     * 最後に全てのコードを破棄した日時を取得する。
+     *
+     * @return 最後に全てのコードを破棄した日時(破棄していない場合は0)
+     */
+    long getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    /**
+     * 最後に全てのコードを破棄した際の処理時間を取得する。
+     *
+     * @return 処理時間(ミリ秒)
+     */
+    long getLastRefreshDuration() {
+        return lastRefreshDuration;
+    }
+
+    /**
+     * 読み込みに使用する{@link ExecutorService}を取得する。
+     *
+     * @return 読み込みに使用する{@link ExecutorService}
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "code-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * コードを読み込むタスク。
+     */
+    private final class LoadTask extends FutureTask<Code> {
+
+        /** コードID */
+        private final Object id;
+
+        /** 読み込み完了前に登録されたリスナー */
+        private final List<CodeLoadListener> listeners = new ArrayList<CodeLoadListener>();
+
+        /** 呼び出し元に返却する、取り消しできない読み込み結果 */
+        private final Future<Code> result = new LoadResult(this);
+
+        /**
+         * コンストラクタ。
+         *
+         * @param id コードID
+         * @param loaded 読み込み済みのコード(読み込みを行う場合はnull)
+         */
+        private LoadTask(final Object id, final Code loaded) {
+            super(new Callable<Code>() {
+                public Code call() {
+                    if (loaded != null) {
+                        return loaded;
+                    }
+                    if (!CodeTracer.isEnabled()) {
+                        return loader.getValue(id);
+                    }
+                    long start = System.nanoTime();
+                    Code code = loader.getValue(id);
+                    CodeTracer.trace("load", System.nanoTime() - start,
+                            "code id = " + id + ", found = " + (code != null));
+                    return code;
+                }
+            });
+            this.id = id;
+        }
+
+        /**
+         * リスナーを登録する。読み込みが完了している場合は、即座にリスナーを呼び出す。
+         *
+         * @param listener リスナー(nullの場合は何もしない)
+         */
+        private void addListener(CodeLoadListener listener) {
+            if (listener == null) {
+                return;
+            }
+            synchronized (listeners) {
+                if (!isDone()) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            notifyListener(listener);
+        }
+
+        @Override
+        protected void set(Code code) {
+            if (code != null) {
+                synchronized (lock) {
+                    if (loading.remove(id, this)) {
+                        values.put(id, code);
+                    }
+                }
+            } else {
+                loading.remove(id, this);
+            }
+            super.set(code);
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            loading.remove(id, this);
+            super.setException(t);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                // 取り消された場合はset、setExceptionが呼び出されないため、ここで読み込み中のタスクから除く
+                loading.remove(id, this);
+            }
+            List<CodeLoadListener> registered;
+            synchronized (listeners) {
+                registered = new ArrayList<CodeLoadListener>(listeners);
+                listeners.clear();
+            }
+            for (CodeLoadListener listener : registered) {
+                notifyListener(listener);
+            }
+        }
+
+        /**
+         * 読み込み結果をリスナーに通知する。
+         *
+         * @param listener リスナー
+         */
+        private void notifyListener(CodeLoadListener listener) {
+            try {
+                try {
+                    listener.onLoaded(id, get());
+                } catch (ExecutionException e) {
+                    listener.onFailed(id, e.getCause());
+                } catch (CancellationException e) {
+                    listener.onFailed(id, e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                LOGGER.logWarn("code load listener threw an exception. code id = " + id, e);
+            }
+        }
+    }
+
+    /**
+     * 読み込み中のタスクの結果を参照する、取り消しできない{@link Future}。
+     */
+    private static final class LoadResult implements Future<Code> {
+
+        /** 読み込み中のタスク */
+        private final Future<Code> task;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param task 読み込み中のタスク
+         */
+        private LoadResult(Future<Code> task) {
+            this.task = task;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * 読み込みは他の呼び出し元と共有しているため、取り消さずにfalseを返す。
+         */
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Code get() throws InterruptedException, ExecutionException {
+            return task.get();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Code get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+                TimeoutException {
+            return task.get(timeout, unit);
+        }
+    }
+}
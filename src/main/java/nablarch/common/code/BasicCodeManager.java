@@ -1,10 +1,19 @@
 package nablarch.common.code;
 
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import nablarch.core.ThreadContext;
 import nablarch.core.cache.StaticDataCache;
+import nablarch.core.util.StringUtil;
 
 /**
  * CodeManagerの基本実装クラス。
@@ -18,6 +27,51 @@ public class BasicCodeManager implements CodeManager {
      */
     private StaticDataCache<Code> codeDefinitionCache;
 
+    /**
+     * コードIDとコード値の正規化ルールのMap。
+     */
+    private Map<String, CodeValueNormalizer> valueNormalizers = Collections.emptyMap();
+
+    /**
+     * {@link OptionColumn#getDate(String, Locale)}で使用する日付の書式。
+     */
+    private String optionDatePattern = "yyyyMMdd";
+
+    /**
+     * 有効期間の開始日時を格納したオプション名称のカラム名。
+     */
+    private String validFromColumnName;
+
+    /**
+     * 有効期間の終了日時を格納したオプション名称のカラム名。
+     */
+    private String validToColumnName;
+
+    /**
+     * コードの取得に要した時間を計測する{@link CodeTracer}。
+     */
+    private CodeTracer lookupTracer = new CodeTracer("lookup", 0);
+
+    /**
+     * コードIDとコードの取得回数のMap(取得回数を数えない場合はnull)。
+     * <p/>
+     * 頻繁に取得されるコードIDでスレッド間の競合が起きないよう、取得回数はスレッドごとに分散して数える。
+     */
+    private volatile ConcurrentMap<String, StripedCounter> hitCounts;
+
+    /**
+     * コードIDとコードから導出した検索用データのMap。
+     */
+    private final ConcurrentMap<String, CodeIndex> codeIndexes = new ConcurrentHashMap<String, CodeIndex>();
+
+    /**
+     * コードIDと、パターン名と仮想パターンのMapのMap。
+     * <p/>
+     * 登録内容を変更する際は、コードIDごとのMapを新たに生成して置き換える。
+     */
+    private final ConcurrentMap<String, Map<String, VirtualPattern>> virtualPatterns
+            = new ConcurrentHashMap<String, Map<String, VirtualPattern>>();
+
     /**
      * Codeのキャッシュをセットする。<br/>
      * 
@@ -29,27 +83,153 @@ public class BasicCodeManager implements CodeManager {
         this.codeDefinitionCache = codeDefinitionCache;
     }
 
+    /**
+     * コードの取得に要した時間を計測するサンプリング間隔をセットする。(デフォルトは0)<br/>
+     *
+     * 指定した回数に1回、キャッシュからのコードの取得(未読み込みの場合は読み込みを含む)に要した時間を、
+     * {@link CodeTracer}のロガーにデバッグレベルで出力する。0以下を指定した場合は計測しない。
+     *
+     * @param samplingInterval サンプリング間隔
+     * @see CodeTracer
+     */
+    public void setLookupTraceSamplingInterval(int samplingInterval) {
+        lookupTracer = new CodeTracer("lookup", samplingInterval);
+    }
+
+    /**
+     * コードIDとコード値の正規化ルールのMapをセットする。<br/>
+     *
+     * 正規化ルールを設定したコードIDでは、コード値を引数に取るメソッド({@link #contains(String, String)}、
+     * {@link #getName(String, String)}など)に指定された値を正規化して、格納されているコード値と照合する。
+     * 照合には、メソッドの対象言語に対応するコード値を使用する。
+     * 正規化ルールを設定していないコードIDは、これまで通り完全一致で照合する。
+     *
+     * @param valueNormalizers コードIDとコード値の正規化ルールのMap
+     */
+    public void setValueNormalizers(Map<String, CodeValueNormalizer> valueNormalizers) {
+        this.valueNormalizers = new HashMap<String, CodeValueNormalizer>(valueNormalizers);
+        codeIndexes.clear();
+    }
+
+    /**
+     * {@link OptionColumn#getDate(String, Locale)}でオプション名称を日付に変換する際の書式をセットする。<br/>
+     *
+     * 書式は{@link java.text.SimpleDateFormat}の形式で指定する。(デフォルトは"yyyyMMdd")
+     * 有効期間のカラムの解析にも、この書式を使用する。
+     *
+     * @param optionDatePattern 日付の書式
+     */
+    public void setOptionDatePattern(String optionDatePattern) {
+        this.optionDatePattern = optionDatePattern;
+        codeIndexes.clear();
+    }
+
+    /**
+     * 有効期間の開始日時を格納したオプション名称のカラム名をセットする。<br/>
+     *
+     * 有効期間は、{@link #contains(String, String, Date)}など、基準日時を引数に取るメソッドで使用する。
+     * 開始日時は有効期間に含まれる。
+     * カラムが存在しないコード、およびオプション名称が空のコード値は、開始日時の制限がないものとして扱う。
+     *
+     * @param validFromColumnName 有効期間の開始日時を格納したオプション名称のカラム名
+     */
+    public void setValidFromColumnName(String validFromColumnName) {
+        this.validFromColumnName = validFromColumnName;
+        codeIndexes.clear();
+    }
+
+    /**
+     * 有効期間の終了日時を格納したオプション名称のカラム名をセットする。<br/>
+     *
+     * 終了日時は有効期間に含まれない(終了日時の時点で無効となる)。
+     * カラムが存在しないコード、およびオプション名称が空のコード値は、終了日時の制限がないものとして扱う。
+     *
+     * @param validToColumnName 有効期間の終了日時を格納したオプション名称のカラム名
+     */
+    public void setValidToColumnName(String validToColumnName) {
+        this.validToColumnName = validToColumnName;
+        codeIndexes.clear();
+    }
+
+    /**
+     * {@link OptionColumn#getDate(String, Locale)}で使用する日付の書式を取得する。
+     *
+     * @return 日付の書式
+     */
+    String getOptionDatePattern() {
+        return optionDatePattern;
+    }
+
     /**
      * {@inheritDoc}
      */
     public boolean contains(String codeId, String value) {
-        Code def = codeDefinitionCache.getValue(codeId);
+        return contains(codeId, value, (Locale) null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(String codeId, String pattern, String value) {
+        return contains(codeId, pattern, value, (Locale) null);
+    }
+
+    /**
+     * コード値が存在するか判定する。
+     * <p/>
+     * 言語に対応するコード値に含まれない場合は、他の言語のコード値も含めて判定する。
+     *
+     * @param codeId コードID
+     * @param value コード値
+     * @param locale 照合に使用する言語(nullの場合はスレッドコンテキストから取得する)
+     * @return コード値が存在する場合true
+     * @throws IllegalArgumentException 指定したコードIDが存在しない場合
+     */
+    private boolean contains(String codeId, String value, Locale locale) throws IllegalArgumentException {
+        Code def = findCodeDefinition(codeId);
         if (def == null) {
             throw new IllegalArgumentException("code id is not valid." 
                     + " code id = " + codeId);
         }
+        LocalizedCodeIndex index = getCodeIndex(codeId, def).findLocalized(locale != null ? locale : getLanguage());
+        if (index != null && index.findPosition(value) >= 0) {
+            return true;
+        }
         return def.contains(value);
     }
 
     /**
-     * {@inheritDoc}
+     * コード値がパターンに含まれるか判定する。
+     * <p/>
+     * 言語に対応するコード値に含まれない場合は、他の言語のコード値も含めて判定する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名
+     * @param value コード値
+     * @param locale 照合に使用する言語(nullの場合はスレッドコンテキストから取得する)
+     * @return コード値がパターンに含まれる場合true
+     * @throws IllegalArgumentException 指定したコードIDまたはパターンが存在しない場合
      */
-    public boolean contains(String codeId, String pattern, String value) {
-        Code def = codeDefinitionCache.getValue(codeId);
+    private boolean contains(String codeId, String pattern, String value, Locale locale)
+            throws IllegalArgumentException {
+        Code def = findCodeDefinition(codeId);
         if (def == null) {
             throw new IllegalArgumentException("code id is not valid." 
                     + " code id = " + codeId);
         }
+        Locale language = locale != null ? locale : getLanguage();
+        if (isVirtualPattern(codeId, pattern)) {
+            LocalizedCodeIndex index = getCodeIndex(codeId, def).getLocalized(language);
+            int position = index.findPosition(value);
+            return position >= 0 && index.getPatternPositions(pattern).get(position);
+        }
+        LocalizedCodeIndex index = getCodeIndex(codeId, def).findLocalized(language);
+        if (index != null) {
+            int position = index.findPosition(value);
+            if (position >= 0) {
+                return index.getPatternPositions(pattern).get(position);
+            }
+        }
         return def.contains(pattern, value);
     }
 
@@ -57,48 +237,28 @@ public class BasicCodeManager implements CodeManager {
      * {@inheritDoc}
      */
     public String getName(String codeId, String value) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getName(value, getLanguage());
+        return getLocalizedIndex(codeId, getLanguage()).getName(value);
     }
 
     /**
      * {@inheritDoc}
      */
     public String getName(String codeId, String value, Locale locale) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getName(value, locale);
+        return getLocalizedIndex(codeId, locale).getName(value);
     }
 
     /**
      * {@inheritDoc}
      */
     public String getShortName(String codeId, String value) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getShortName(value, getLanguage());
+        return getLocalizedIndex(codeId, getLanguage()).getShortName(value);
     }
 
     /**
      * {@inheritDoc}
      */
     public String getShortName(String codeId, String value, Locale locale) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getShortName(value, locale);
+        return getLocalizedIndex(codeId, locale).getShortName(value);
     }
 
     /**
@@ -106,12 +266,7 @@ public class BasicCodeManager implements CodeManager {
      */
     public String getOptionalName(String codeId, String value,
             String optionColumnName) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getOptionalName(value, optionColumnName, getLanguage());
+        return getLocalizedIndex(codeId, getLanguage()).getOptionalName(value, optionColumnName);
     }
 
     /**
@@ -119,60 +274,1009 @@ public class BasicCodeManager implements CodeManager {
      */
     public String getOptionalName(String codeId, String value,
             String optionColumnName, Locale locale) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getOptionalName(value, optionColumnName, locale);
+        return getLocalizedIndex(codeId, locale).getOptionalName(value, optionColumnName);
     }
 
     /**
      * {@inheritDoc}
      */
     public List<String> getValues(String codeId) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getValues(getLanguage());
+        return getLocalizedIndex(codeId, getLanguage()).getValues();
     }
 
     /**
      * {@inheritDoc}
      */
     public List<String>  getValues(String codeId, String pattern) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getValues(pattern, getLanguage());
+        return getLocalizedIndex(codeId, getLanguage()).getPatternValues(pattern);
     }
 
     /**
      * {@inheritDoc}
      */
     public List<String> getValues(String codeId, Locale locale) {
-        Code def = codeDefinitionCache.getValue(codeId);
-        if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
-                    + " code id = " + codeId);
-        }
-        return def.getValues(locale);
+        return getLocalizedIndex(codeId, locale).getValues();
     }
 
     /**
      * {@inheritDoc}
      */
     public List<String> getValues(String codeId, String pattern, Locale locale) {
-        Code def = codeDefinitionCache.getValue(codeId);
+        return getLocalizedIndex(codeId, locale).getPatternValues(pattern);
+    }
+
+    /**
+     * コードIDと言語に対応する検索用データを取得する。
+     * <p/>
+     * 国やバリアントを含む言語にコードが対応していない場合は、言語のみのデータを返却する。
+     *
+     * @param codeId コードID
+     * @param locale 言語
+     * @return 言語ごとの検索用データ
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     */
+    private LocalizedCodeIndex getLocalizedIndex(String codeId, Locale locale) throws IllegalArgumentException {
+        return getCodeIndex(codeId, getCodeDefinition(codeId)).getLocalized(locale);
+    }
+
+    /**
+     * コード値を条件に、格納されているコード値を取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param value コード値
+     * @return 格納されているコード値。対応するコード値が存在しない場合はnull
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #setValueNormalizers(Map)
+     */
+    public String getCanonicalValue(String codeId, String value) throws IllegalArgumentException {
+        return getCanonicalValue(codeId, value, getLanguage());
+    }
+
+    /**
+     * コード値、言語を条件に、格納されているコード値を取得する。<br/>
+     *
+     * コードIDに正規化ルールが設定されている場合は、正規化後のコード値が一致するコード値を返却する。
+     * 正規化ルールが設定されていない場合は、完全一致するコード値のみを返却する。
+     *
+     * @param codeId コードID
+     * @param value コード値
+     * @param locale 言語
+     * @return 格納されているコード値。対応するコード値が存在しない場合はnull
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #setValueNormalizers(Map)
+     */
+    public String getCanonicalValue(String codeId, String value, Locale locale) throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).findCanonicalValue(value);
+    }
+
+    /**
+     * コード名称を条件に、コード値を検索する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param keyword 検索文字列
+     * @param mode 一致条件
+     * @param limit 取得する最大件数
+     * @return 名称が一致したコード値のリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #searchValues(String, String, String, CodeNameSearchMode, Locale, int)
+     */
+    public List<String> searchValues(String codeId, String keyword, CodeNameSearchMode mode, int limit)
+            throws IllegalArgumentException {
+        return searchValues(codeId, null, keyword, mode, getLanguage(), limit);
+    }
+
+    /**
+     * コード名称、言語を条件に、コード値を検索する。
+     *
+     * @param codeId コードID
+     * @param keyword 検索文字列
+     * @param mode 一致条件
+     * @param locale 言語
+     * @param limit 取得する最大件数
+     * @return 名称が一致したコード値のリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #searchValues(String, String, String, CodeNameSearchMode, Locale, int)
+     */
+    public List<String> searchValues(String codeId, String keyword, CodeNameSearchMode mode, Locale locale,
+            int limit) throws IllegalArgumentException {
+        return searchValues(codeId, null, keyword, mode, locale, limit);
+    }
+
+    /**
+     * コード名称、パターンを条件に、コード値を検索する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名
+     * @param keyword 検索文字列
+     * @param mode 一致条件
+     * @param limit 取得する最大件数
+     * @return 名称が一致したコード値のリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     * @see #searchValues(String, String, String, CodeNameSearchMode, Locale, int)
+     */
+    public List<String> searchValues(String codeId, String pattern, String keyword, CodeNameSearchMode mode,
+            int limit) throws IllegalArgumentException {
+        return searchValues(codeId, pattern, keyword, mode, getLanguage(), limit);
+    }
+
+    /**
+     * コード名称、パターン、言語を条件に、コード値を検索する。<br/>
+     *
+     * 入力補完など、入力のたびに呼び出される用途を想定している。
+     * 検索にはコードの読み込み後、初めて検索された時点で言語ごとに生成するインデックスを使用するため、
+     * 検索時間はコード値の件数に依存しない。
+     * <p/>
+     * 返却値は、あらかじめ言語ごとに定義されたソート順に従い、並び替えを行う。
+     * 検索文字列が空文字列の場合は、先頭から最大件数までのコード値を返却する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param keyword 検索文字列
+     * @param mode 一致条件
+     * @param locale 言語
+     * @param limit 取得する最大件数
+     * @return 名称が一致したコード値のリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合、
+     *                                   検索文字列または一致条件がnullの場合、最大件数が1未満の場合
+     */
+    public List<String> searchValues(String codeId, String pattern, String keyword, CodeNameSearchMode mode,
+            Locale locale, int limit) throws IllegalArgumentException {
+        if (keyword == null || mode == null) {
+            throw new IllegalArgumentException("keyword and mode must not be null."
+                    + " code id = " + codeId);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be greater than 0."
+                    + " code id = " + codeId + ", limit = " + limit);
+        }
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).searchByName(keyword, mode, pattern, limit);
+    }
+
+    /**
+     * コード名称、言語を条件に、対応するコード値を全て取得する。
+     *
+     * @param codeId コードID
+     * @param name コード名称
+     * @param locale 言語
+     * @return コード名称に対応するコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #getValuesByName(String, String, String, Locale)
+     */
+    public List<String> getValuesByName(String codeId, String name, Locale locale) throws IllegalArgumentException {
+        return getValuesByName(codeId, null, name, locale);
+    }
+
+    /**
+     * コード名称、パターン、言語を条件に、対応するコード値を全て取得する。<br/>
+     *
+     * 検索には、コードの読み込み後、初めて使用された時点で言語ごとに生成するインデックスを使用する。
+     * <p/>
+     * 同一のコード名称を持つコード値が複数存在する場合は、あらかじめ言語ごとに定義されたソート順に従い全て返却する。
+     * 対応するコード値が存在しない場合は空のリストを返却する。
+     * このため、呼び出し元は返却値の件数により、名称が一意に特定できたか否かを判定できる。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param name コード名称
+     * @param locale 言語
+     * @return コード名称に対応するコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     */
+    public List<String> getValuesByName(String codeId, String pattern, String name, Locale locale)
+            throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).getValuesByName(name, pattern);
+    }
+
+    /**
+     * コードの略称、言語を条件に、対応するコード値を全て取得する。
+     *
+     * @param codeId コードID
+     * @param shortName コードの略称
+     * @param locale 言語
+     * @return コードの略称に対応するコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #getValuesByName(String, String, String, Locale)
+     */
+    public List<String> getValuesByShortName(String codeId, String shortName, Locale locale)
+            throws IllegalArgumentException {
+        return getValuesByShortName(codeId, null, shortName, locale);
+    }
+
+    /**
+     * コードの略称、パターン、言語を条件に、対応するコード値を全て取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param shortName コードの略称
+     * @param locale 言語
+     * @return コードの略称に対応するコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     * @see #getValuesByName(String, String, String, Locale)
+     */
+    public List<String> getValuesByShortName(String codeId, String pattern, String shortName, Locale locale)
+            throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).getValuesByShortName(shortName, pattern);
+    }
+
+    /**
+     * オプション名称、言語を条件に、対応するコード値を全て取得する。
+     *
+     * @param codeId コードID
+     * @param optionColumnName オプション名称のカラム名
+     * @param optionalName オプション名称
+     * @param locale 言語
+     * @return オプション名称に対応するコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しない場合、
+     *                                   指定したオプション名称のカラムが存在しない場合、
+     *                                   言語に対応するデータが存在しない場合
+     * @see #getValuesByName(String, String, String, Locale)
+     */
+    public List<String> getValuesByOptionalName(String codeId, String optionColumnName, String optionalName,
+            Locale locale) throws IllegalArgumentException {
+        return getValuesByOptionalName(codeId, null, optionColumnName, optionalName, locale);
+    }
+
+    /**
+     * オプション名称、パターン、言語を条件に、対応するコード値を全て取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param optionColumnName オプション名称のカラム名
+     * @param optionalName オプション名称
+     * @param locale 言語
+     * @return オプション名称に対応するコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しない場合、
+     *                                   指定したオプション名称のカラムまたはパターンが存在しない場合、
+     *                                   言語に対応するデータが存在しない場合
+     * @see #getValuesByName(String, String, String, Locale)
+     */
+    public List<String> getValuesByOptionalName(String codeId, String pattern, String optionColumnName,
+            String optionalName, Locale locale) throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale)
+                .getValuesByOptionalName(optionColumnName, optionalName, pattern);
+    }
+
+    /**
+     * コードID、パターンを条件に、コード値がコード(及びパターン)に含まれるか判定する{@link CodeValueMatcher}を取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnullまたは空文字列)
+     * @return {@link CodeValueMatcher}
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     * @see #getMatcher(String, String, Locale)
+     */
+    public CodeValueMatcher getMatcher(String codeId, String pattern) throws IllegalArgumentException {
+        return getMatcher(codeId, pattern, getLanguage());
+    }
+
+    /**
+     * コードID、パターン、言語を条件に、コード値がコード(及びパターン)に含まれるか判定する{@link CodeValueMatcher}を取得する。<br/>
+     *
+     * 返却する{@link CodeValueMatcher}は、取得した時点で読み込まれているコードの、指定した言語のコード値に対して判定を行う。
+     * コードIDに正規化ルールが設定されている場合は、正規化したコード値で判定を行う。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnullまたは空文字列)
+     * @param locale 言語
+     * @return {@link CodeValueMatcher}
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     */
+    public CodeValueMatcher getMatcher(String codeId, String pattern, Locale locale) throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale)
+                .createMatcher(StringUtil.isNullOrEmpty(pattern) ? null : pattern);
+    }
+
+    /**
+     * コードIDに紐付く全てのコード値と名称のエントリを走査する{@link CodeEntryIterator}を取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @return {@link CodeEntryIterator}
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #iterateEntries(String, String, Locale)
+     */
+    public CodeEntryIterator iterateEntries(String codeId) throws IllegalArgumentException {
+        return iterateEntries(codeId, null, getLanguage());
+    }
+
+    /**
+     * コードID、言語を条件に、コード値と名称のエントリを走査する{@link CodeEntryIterator}を取得する。
+     *
+     * @param codeId コードID
+     * @param locale 言語
+     * @return {@link CodeEntryIterator}
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #iterateEntries(String, String, Locale)
+     */
+    public CodeEntryIterator iterateEntries(String codeId, Locale locale) throws IllegalArgumentException {
+        return iterateEntries(codeId, null, locale);
+    }
+
+    /**
+     * コードID、パターン、言語を条件に、コード値と名称のエントリを走査する{@link CodeEntryIterator}を取得する。<br/>
+     *
+     * コード値ごとに{@link #getName(String, String, Locale)}などを呼び出さずに、
+     * コード値、名称、略称、オプション名称、パターンの情報をまとめて取得できる。
+     * エントリは、コードの読み込み後、初めて使用された時点で言語ごとに生成し、以降は同じインスタンスを返却する。
+     * <p/>
+     * エントリは、あらかじめ言語ごとに定義されたソート順に従い返却する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param locale 言語
+     * @return {@link CodeEntryIterator}
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     */
+    public CodeEntryIterator iterateEntries(String codeId, String pattern, Locale locale)
+            throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).createEntryIterator(pattern);
+    }
+
+    /**
+     * コードIDに紐付く全てのコード値と名称のエントリのリストを取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @return コード値と名称のエントリのリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #getEntries(String, String, Locale)
+     */
+    public List<CodeEntry> getEntries(String codeId) throws IllegalArgumentException {
+        return getEntries(codeId, null, getLanguage());
+    }
+
+    /**
+     * コードID、パターンを条件に、コード値と名称のエントリのリストを取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名
+     * @return コード値と名称のエントリのリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     * @see #getEntries(String, String, Locale)
+     */
+    public List<CodeEntry> getEntries(String codeId, String pattern) throws IllegalArgumentException {
+        return getEntries(codeId, pattern, getLanguage());
+    }
+
+    /**
+     * コードID、言語を条件に、コード値と名称のエントリのリストを取得する。
+     *
+     * @param codeId コードID
+     * @param locale 言語
+     * @return コード値と名称のエントリのリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合
+     * @see #getEntries(String, String, Locale)
+     */
+    public List<CodeEntry> getEntries(String codeId, Locale locale) throws IllegalArgumentException {
+        return getEntries(codeId, null, locale);
+    }
+
+    /**
+     * コードID、パターン、言語を条件に、コード値と名称のエントリのリストを取得する。<br/>
+     *
+     * セレクトボックスの描画など、コード値と名称をまとめて使用する場合に、
+     * {@link #getValues(String, String, Locale)}と{@link #getName(String, String, Locale)}を
+     * コード値ごとに呼び出さずに1回の呼び出しで取得できる。
+     * <p/>
+     * リストは変更不可能であり、コードの読み込み後、初めて使用された時点で言語、パターンごとに生成し、
+     * 以降は同じインスタンスを返却する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param locale 言語
+     * @return コード値と名称のエントリのリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     */
+    public List<CodeEntry> getEntries(String codeId, String pattern, Locale locale) throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).getEntryList(pattern);
+    }
+
+    /**
+     * コードID、パターンを条件に、指定した並び順でコード値のリストを取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param order 並び順
+     * @return コード値のリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     * @see #getValues(String, String, Locale, CodeOrder)
+     */
+    public List<String> getValues(String codeId, String pattern, CodeOrder order) throws IllegalArgumentException {
+        return getValues(codeId, pattern, getLanguage(), order);
+    }
+
+    /**
+     * コードID、パターン、言語を条件に、指定した並び順でコード値のリストを取得する。<br/>
+     *
+     * {@link CodeOrder#NAME}を指定した場合は、言語の照合規則によるコード名称の順に並べたリストを返却する。
+     * 照合に使用する{@link java.text.CollationKey}は、コードの読み込み後、初めて使用された時点で
+     * 言語ごとに名称1件につき1回だけ生成し、並べたリストもパターンごとに1回だけ生成して以降は同じインスタンスを返却する。
+     * そのため、画面表示のたびに名称を取得して並べ替える必要はない。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param locale 言語
+     * @param order 並び順
+     * @return コード値のリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合、
+     *                                  または並び順がnullの場合
+     */
+    public List<String> getValues(String codeId, String pattern, Locale locale, CodeOrder order)
+            throws IllegalArgumentException {
+        if (order == null) {
+            throw new IllegalArgumentException("order must not be null.");
+        }
+        if (order == CodeOrder.SORT_ORDER) {
+            return pattern == null ? getValues(codeId, locale) : getValues(codeId, pattern, locale);
+        }
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).getCollatedValues(pattern);
+    }
+
+    /**
+     * コードID、パターンを条件に、指定した並び順でコード値と名称のエントリのリストを取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param order 並び順
+     * @return コード値と名称のエントリのリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合
+     * @see #getEntries(String, String, Locale, CodeOrder)
+     */
+    public List<CodeEntry> getEntries(String codeId, String pattern, CodeOrder order)
+            throws IllegalArgumentException {
+        return getEntries(codeId, pattern, getLanguage(), order);
+    }
+
+    /**
+     * コードID、パターン、言語を条件に、指定した並び順でコード値と名称のエントリのリストを取得する。<br/>
+     *
+     * {@link CodeOrder#NAME}を指定した場合の並び順と生成のタイミングは、
+     * {@link #getValues(String, String, Locale, CodeOrder)}と同じ。
+     * エントリは{@link #getEntries(String, String, Locale)}が返却するものと同じインスタンスである。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param locale 言語
+     * @param order 並び順
+     * @return コード値と名称のエントリのリスト
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、パターンまたは言語に対応するデータが存在しない場合、
+     *                                  または並び順がnullの場合
+     */
+    public List<CodeEntry> getEntries(String codeId, String pattern, Locale locale, CodeOrder order)
+            throws IllegalArgumentException {
+        if (order == null) {
+            throw new IllegalArgumentException("order must not be null.");
+        }
+        Code def = getCodeDefinition(codeId);
+        LocalizedCodeIndex index = getCodeIndex(codeId, def).getLocalized(locale);
+        return order == CodeOrder.SORT_ORDER ? index.getEntryList(pattern) : index.getCollatedEntryList(pattern);
+    }
+
+    /**
+     * コードID、パターンの条件式、コード値を条件に、
+     * そのコード値に対応するコードが、条件式を満たすかチェックする。<br/>
+     * 照合対象の言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     * <p/>
+     * 条件式の評価結果はコードごとにビットセットとしてキャッシュするため、
+     * 同じ条件式での2回目以降のチェックは、コード値の位置の検索と1回のビットの判定のみとなる。
+     *
+     * @param codeId コードID
+     * @param expression パターンの条件式
+     * @param value コード値
+     * @return コード値が条件式を満たす場合 true
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、
+     *                                   条件式に含まれるパターンまたは言語に対応するデータが存在しない場合
+     */
+    public boolean contains(String codeId, CodePatternExpression expression, String value)
+            throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        LocalizedCodeIndex index = getCodeIndex(codeId, def).getLocalized(getLanguage());
+        BitSet positionSet = index.getPatternPositions(expression);
+        int position = index.findPosition(value);
+        return position >= 0 && positionSet.get(position);
+    }
+
+    /**
+     * コードID、パターンの条件式を条件に、対応するコード値を全て取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param codeId コードID
+     * @param expression パターンの条件式
+     * @return 条件式を満たすコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、
+     *                                   条件式に含まれるパターンまたは言語に対応するデータが存在しない場合
+     * @see #getValues(String, CodePatternExpression, Locale)
+     */
+    public List<String> getValues(String codeId, CodePatternExpression expression) throws IllegalArgumentException {
+        return getValues(codeId, expression, getLanguage());
+    }
+
+    /**
+     * コードID、パターンの条件式、言語を条件に、対応するコード値を全て取得する。<br/>
+     * <p/>
+     * 返却値は、あらかじめ言語ごとに定義されたソート順に従い、並び替えを行う。
+     * 返却値はコードごとにキャッシュされ、同じ条件式では同じインスタンスを返却する。
+     *
+     * @param codeId コードID
+     * @param expression パターンの条件式
+     * @param locale 言語
+     * @return 条件式を満たすコード値
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、
+     *                                   条件式に含まれるパターンまたは言語に対応するデータが存在しない場合
+     */
+    public List<String> getValues(String codeId, CodePatternExpression expression, Locale locale)
+            throws IllegalArgumentException {
+        Code def = getCodeDefinition(codeId);
+        return getCodeIndex(codeId, def).getLocalized(locale).getValues(expression);
+    }
+
+    /**
+     * 条件で定義した仮想パターンを登録する。<br/>
+     *
+     * 仮想パターンは、コードのテーブルにパターンのカラムを追加せずに、実行時に定義できるパターンである。
+     * 登録した仮想パターンは、{@link #contains(String, String, String)}、{@link #getValues(String, String, Locale)}、
+     * {@link nablarch.common.code.validator.CodeValue}の{@code pattern}など、
+     * パターンのカラム名を指定する全ての箇所で使用できる。
+     * <p/>
+     * 仮想パターンは、コードの読み込み後、初めて使用された時点で言語ごとに評価し、テーブルのパターンと同様のビットセットとして保持する。
+     * コードが再読み込みされた場合は、新しいコードに対して評価し直す。
+     * 条件は言語ごとのエントリに対して評価されるため、言語によって結果が異ならない条件を指定すること。
+     * <p/>
+     * テーブルに同じ名前のパターンが存在する場合は、仮想パターンが優先される。
+     *
+     * @param codeId コードID
+     * @param pattern パターン名
+     * @param filter パターンに含めるコード値を選別する条件
+     */
+    public void registerVirtualPattern(String codeId, String pattern, CodeEntryFilter filter) {
+        putVirtualPattern(codeId, pattern, new VirtualPattern(filter));
+    }
+
+    /**
+     * コード値の集合で定義した仮想パターンを登録する。<br/>
+     *
+     * 指定したコード値のうち、コードに存在しないものは無視する。
+     *
+     * @param codeId コードID
+     * @param pattern パターン名
+     * @param values パターンに含めるコード値
+     * @see #registerVirtualPattern(String, String, CodeEntryFilter)
+     */
+    public void registerVirtualPattern(String codeId, String pattern, Collection<String> values) {
+        putVirtualPattern(codeId, pattern, new VirtualPattern(values));
+    }
+
+    /**
+     * 仮想パターンの登録を解除する。
+     *
+     * @param codeId コードID
+     * @param pattern パターン名
+     */
+    public synchronized void unregisterVirtualPattern(String codeId, String pattern) {
+        Map<String, VirtualPattern> current = virtualPatterns.get(codeId);
+        if (current == null || !current.containsKey(pattern)) {
+            return;
+        }
+        Map<String, VirtualPattern> updated = new HashMap<String, VirtualPattern>(current);
+        updated.remove(pattern);
+        if (updated.isEmpty()) {
+            virtualPatterns.remove(codeId);
+        } else {
+            virtualPatterns.put(codeId, Collections.unmodifiableMap(updated));
+        }
+    }
+
+    /**
+     * 仮想パターンを登録する。
+     *
+     * @param codeId コードID
+     * @param pattern パターン名
+     * @param virtualPattern 仮想パターン
+     */
+    private synchronized void putVirtualPattern(String codeId, String pattern, VirtualPattern virtualPattern) {
+        if (StringUtil.isNullOrEmpty(codeId) || StringUtil.isNullOrEmpty(pattern)) {
+            throw new IllegalArgumentException("code id and pattern must not be empty."
+                    + " code id = " + codeId + ", pattern = " + pattern);
+        }
+        Map<String, VirtualPattern> current = virtualPatterns.get(codeId);
+        Map<String, VirtualPattern> updated = current == null
+                ? new HashMap<String, VirtualPattern>()
+                : new HashMap<String, VirtualPattern>(current);
+        updated.put(pattern, virtualPattern);
+        virtualPatterns.put(codeId, Collections.unmodifiableMap(updated));
+    }
+
+    /**
+     * 仮想パターンが登録されているか判定する。
+     *
+     * @param codeId コードID
+     * @param pattern パターン名
+     * @return 仮想パターンが登録されている場合true
+     */
+    private boolean isVirtualPattern(String codeId, String pattern) {
+        if (virtualPatterns.isEmpty()) {
+            return false;
+        }
+        Map<String, VirtualPattern> patterns = virtualPatterns.get(codeId);
+        return patterns != null && patterns.containsKey(pattern);
+    }
+
+    /**
+     * 基準日時の時点で、コード値が有効か否かを判定する。<br/>
+     * 判定対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * <p/>
+     * 有効期間は、{@link #setValidFromColumnName(String)}、{@link #setValidToColumnName(String)}で指定した
+     * オプション名称のカラムから、コードの読み込み後、初めて使用された時点で言語ごとにインデックスを生成する。
+     * 判定はインデックスを使用して行うため、コード値の有効期間が開始・終了してもコードを再読み込みする必要はない。
+     *
+     * @param codeId コードID
+     * @param value コード値
+     * @param asOf 基準日時
+     * @return 基準日時の時点でコード値が存在し、有効な場合true
+     * @throws IllegalArgumentException 指定したコードIDが存在しない場合、基準日時がnullの場合、
+     *                                   有効期間のカラムに日時に変換できない値が存在する場合
+     */
+    public boolean contains(String codeId, String value, Date asOf) throws IllegalArgumentException {
+        return findValidPosition(codeId, null, value, getLanguage(), asOf) >= 0;
+    }
+
+    /**
+     * 基準日時の時点で、コード値がパターンに含まれ、有効か否かを判定する。<br/>
+     * 判定対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名
+     * @param value コード値
+     * @param asOf 基準日時
+     * @return 基準日時の時点でコード値がパターンに含まれ、有効な場合true
+     * @throws IllegalArgumentException 指定したコードIDまたはパターンが存在しない場合、基準日時がnullの場合、
+     *                                   有効期間のカラムに日時に変換できない値が存在する場合
+     * @see #contains(String, String, Date)
+     */
+    public boolean contains(String codeId, String pattern, String value, Date asOf) throws IllegalArgumentException {
+        return findValidPosition(codeId, pattern, value, getLanguage(), asOf) >= 0;
+    }
+
+    /**
+     * 基準日時の時点で有効なコード値を全て取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param codeId コードID
+     * @param asOf 基準日時
+     * @return 有効なコード値のリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDが存在しない場合、基準日時がnullの場合、
+     *                                   有効期間のカラムに日時に変換できない値が存在する場合
+     * @see #contains(String, String, Date)
+     */
+    public List<String> getValues(String codeId, Date asOf) throws IllegalArgumentException {
+        return getValues(codeId, null, getLanguage(), asOf);
+    }
+
+    /**
+     * 基準日時の時点で有効な、言語に対応するコード値を全て取得する。
+     *
+     * @param codeId コードID
+     * @param locale 言語
+     * @param asOf 基準日時
+     * @return 有効なコード値のリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合、
+     *                                   基準日時がnullの場合、有効期間のカラムに日時に変換できない値が存在する場合
+     * @see #contains(String, String, Date)
+     */
+    public List<String> getValues(String codeId, Locale locale, Date asOf) throws IllegalArgumentException {
+        return getValues(codeId, null, locale, asOf);
+    }
+
+    /**
+     * 基準日時の時点で有効な、パターンに含まれるコード値を全て取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名
+     * @param asOf 基準日時
+     * @return 有効なコード値のリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDまたはパターンが存在しない場合、基準日時がnullの場合、
+     *                                   有効期間のカラムに日時に変換できない値が存在する場合
+     * @see #contains(String, String, Date)
+     */
+    public List<String> getValues(String codeId, String pattern, Date asOf) throws IllegalArgumentException {
+        return getValues(codeId, pattern, getLanguage(), asOf);
+    }
+
+    /**
+     * 基準日時の時点で有効な、パターンに含まれる言語に対応するコード値を全て取得する。<br/>
+     *
+     * 取得結果は、有効期間の開始・終了日時で区切った期間ごとに保持する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param locale 言語
+     * @param asOf 基準日時
+     * @return 有効なコード値のリスト(ソート順)
+     * @throws IllegalArgumentException 指定したコードIDまたはパターンが存在しないか、言語に対応するデータが存在しない場合、
+     *                                   基準日時がnullの場合、有効期間のカラムに日時に変換できない値が存在する場合
+     * @see #contains(String, String, Date)
+     */
+    public List<String> getValues(String codeId, String pattern, Locale locale, Date asOf)
+            throws IllegalArgumentException {
+        checkAsOf(asOf);
+        LocalizedCodeIndex index = getCodeIndex(codeId, getCodeDefinition(codeId)).getLocalized(locale);
+        return index.getValidValues(getValidityIndex(index), pattern, asOf.getTime());
+    }
+
+    /**
+     * 基準日時の時点で有効なコード値の名称を取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param codeId コードID
+     * @param value コード値
+     * @param asOf 基準日時
+     * @return コード名称
+     * @throws IllegalArgumentException 指定したコードIDが存在しない場合、コード値が存在しないか基準日時の時点で有効でない場合、
+     *                                   基準日時がnullの場合、有効期間のカラムに日時に変換できない値が存在する場合
+     * @see #contains(String, String, Date)
+     */
+    public String getName(String codeId, String value, Date asOf) throws IllegalArgumentException {
+        return getName(codeId, value, getLanguage(), asOf);
+    }
+
+    /**
+     * 基準日時の時点で有効なコード値の、言語に対応する名称を取得する。
+     *
+     * @param codeId コードID
+     * @param value コード値
+     * @param locale 言語
+     * @param asOf 基準日時
+     * @return コード名称
+     * @throws IllegalArgumentException 指定したコードIDが存在しないか、言語に対応するデータが存在しない場合、
+     *                                   コード値が存在しないか基準日時の時点で有効でない場合、
+     *                                   基準日時がnullの場合、有効期間のカラムに日時に変換できない値が存在する場合
+     * @see #contains(String, String, Date)
+     */
+    public String getName(String codeId, String value, Locale locale, Date asOf) throws IllegalArgumentException {
+        int position = findValidPosition(codeId, null, value, locale, asOf);
+        if (position < 0) {
+            throw new IllegalArgumentException("code value is not valid at the specified date."
+                    + " code id = " + codeId
+                    + ", locale = " + locale
+                    + ", value = " + value
+                    + ", as of = " + asOf);
+        }
+        return getCodeIndex(codeId, getCodeDefinition(codeId)).getLocalized(locale).getNames()[position];
+    }
+
+    /**
+     * 基準日時の時点で有効なコード値の、ソート順での位置を取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param value コード値
+     * @param locale 言語
+     * @param asOf 基準日時
+     * @return ソート順での位置。コード値が存在しないか有効でない場合は-1
+     * @throws IllegalArgumentException 指定したコードIDまたはパターンが存在しないか、言語に対応するデータが存在しない場合、
+     *                                   基準日時がnullの場合、有効期間のカラムに日時に変換できない値が存在する場合
+     */
+    private int findValidPosition(String codeId, String pattern, String value, Locale locale, Date asOf)
+            throws IllegalArgumentException {
+        checkAsOf(asOf);
+        LocalizedCodeIndex index = getCodeIndex(codeId, getCodeDefinition(codeId)).getLocalized(locale);
+        ValidityIndex validity = getValidityIndex(index);
+        int position = index.findPosition(value);
+        if (position < 0
+                || !validity.isValid(position, asOf.getTime())
+                || (pattern != null && !index.getPatternPositions(pattern).get(position))) {
+            return -1;
+        }
+        return position;
+    }
+
+    /**
+     * 有効期間のインデックスを取得する。
+     *
+     * @param index 言語ごとのデータ
+     * @return 有効期間のインデックス
+     * @throws IllegalArgumentException 有効期間のカラムに日時に変換できない値が存在する場合
+     */
+    private ValidityIndex getValidityIndex(LocalizedCodeIndex index) throws IllegalArgumentException {
+        return index.getValidityIndex(validFromColumnName, validToColumnName, optionDatePattern);
+    }
+
+    /**
+     * 有効期間のカラムが設定されているか否か。
+     *
+     * @return 有効期間の開始日時・終了日時のいずれかのカラムが設定されている場合true
+     */
+    boolean hasValidityColumns() {
+        return validFromColumnName != null || validToColumnName != null;
+    }
+
+    /**
+     * 基準日時が指定されていることをチェックする。
+     *
+     * @param asOf 基準日時
+     * @throws IllegalArgumentException 基準日時がnullの場合
+     */
+    private static void checkAsOf(Date asOf) throws IllegalArgumentException {
+        if (asOf == null) {
+            throw new IllegalArgumentException("as of date must not be null.");
+        }
+    }
+
+    /**
+     * コードIDとオプション名称のカラム名の組み合わせを表す{@link OptionColumn}を取得する。<br/>
+     *
+     * 画面の行ごとに複数のオプション名称を表示する場合など、同じカラムのオプション名称を繰り返し取得する場合は、
+     * 取得した{@link OptionColumn}を保持して使い回すこと。
+     * コードIDとカラムの存在チェックは、オプション名称の取得時に行う。
+     *
+     * @param codeId コードID
+     * @param optionColumnName 取得するオプション名称のカラム名
+     * @return {@link OptionColumn}
+     */
+    public OptionColumn getOptionColumn(String codeId, String optionColumnName) {
+        return new OptionColumn(this, codeId, optionColumnName);
+    }
+
+    /**
+     * 言語を固定して、本クラスのコードを提供する{@link CodeManager}を取得する。<br/>
+     *
+     * 取得した{@link CodeManager}は、言語を指定しないメソッドでも{@link nablarch.core.ThreadContext}から言語を取得せず、
+     * 指定した言語を使用する。コード値の判定で正規化ルールや仮想パターンを使用する場合も同様である。
+     * リクエストごとに言語が決まる処理では、言語を決定した時点で取得した{@link CodeManager}を引き回すことで、
+     * コードの取得ごとにスレッドローカル変数を参照せずに済む。
+     *
+     * @param locale 言語
+     * @return 言語を固定した{@link CodeManager}
+     * @throws IllegalArgumentException 言語がnullの場合
+     */
+    public CodeManager withLocale(Locale locale) throws IllegalArgumentException {
+        if (locale == null) {
+            throw new IllegalArgumentException("locale must not be null.");
+        }
+        return new LocaleBoundCodeManager(locale);
+    }
+
+    /**
+     * コードIDに対応するコードを取得する。
+     *
+     * @param codeId コードID
+     * @return コード
+     * @throws IllegalArgumentException 指定したコードIDが存在しない場合
+     */
+    Code getCodeDefinition(String codeId) throws IllegalArgumentException {
+        Code def = findCodeDefinition(codeId);
         if (def == null) {
-            throw new IllegalArgumentException("code id is not valid." 
+            throw new IllegalArgumentException("code id is not valid."
                     + " code id = " + codeId);
         }
-        return def.getValues(pattern, locale);
+        return def;
+    }
+
+    /**
+     * キャッシュからコードIDに対応するコードを取得する。
+     * <p/>
+     * サンプリングの対象となった場合は、取得に要した時間をログに出力する。
+     *
+     * @param codeId コードID
+     * @return コード。存在しない場合はnull
+     */
+    private Code findCodeDefinition(String codeId) {
+        long start = lookupTracer.start();
+        Code def = codeDefinitionCache.getValue(codeId);
+        if (start != CodeTracer.NOT_SAMPLED) {
+            lookupTracer.end(start, "code id = " + codeId + ", found = " + (def != null));
+        }
+        ConcurrentMap<String, StripedCounter> counts = hitCounts;
+        if (counts != null && def != null) {
+            StripedCounter count = counts.get(codeId);
+            if (count == null) {
+                StripedCounter created = new StripedCounter();
+                count = counts.putIfAbsent(codeId, created);
+                if (count == null) {
+                    count = created;
+                }
+            }
+            count.increment();
+        }
+        return def;
+    }
+
+    /**
+     * コードIDごとのコードの取得回数を数え始める。
+     * <p/>
+     * 数え始めるまでは、取得回数を数える処理を行わない。既に数えている場合は何もしない。
+     */
+    synchronized void enableHitCounts() {
+        if (hitCounts == null) {
+            hitCounts = new ConcurrentHashMap<String, StripedCounter>();
+        }
+    }
+
+    /**
+     * コードIDごとのコードの取得回数を取得する。
+     *
+     * @return コードIDと取得回数のMap(取得回数を数えていない場合は空のMap)
+     */
+    Map<String, Long> getHitCounts() {
+        ConcurrentMap<String, StripedCounter> counts = hitCounts;
+        if (counts == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> result = new HashMap<String, Long>(counts.size() * 2);
+        for (Map.Entry<String, StripedCounter> entry : counts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * コードIDごとのコードの取得回数を0に戻す。
+     */
+    synchronized void resetHitCounts() {
+        if (hitCounts != null) {
+            hitCounts = new ConcurrentHashMap<String, StripedCounter>();
+        }
+    }
+
+    /**
+     * コードから導出した検索用データを取得する。<br/>
+     * 
+     * コードが再読み込みされていた場合や、仮想パターンの登録内容が変更されていた場合は、検索用データを生成し直す。
+     *
+     * @param codeId コードID
+     * @param def コード
+     * @return コードから導出した検索用データ
+     */
+    CodeIndex getCodeIndex(String codeId, Code def) {
+        Map<String, VirtualPattern> patterns = virtualPatterns.get(codeId);
+        if (patterns == null) {
+            patterns = Collections.emptyMap();
+        }
+        CodeIndex index = codeIndexes.get(codeId);
+        if (index == null || !index.isBuiltFrom(def, patterns)) {
+            index = new CodeIndex(def, valueNormalizers.get(codeId), patterns);
+            codeIndexes.put(codeId, index);
+        }
+        return index;
     }
 
     /** デフォルトの言語 */
@@ -186,8 +1290,88 @@ public class BasicCodeManager implements CodeManager {
      *
      * @return 言語
      */
-    private static Locale getLanguage() {
+    static Locale getLanguage() {
         final Locale language = ThreadContext.getLanguage();
         return language != null ? language : DEFAULT_LOCALE;
     }
+
+    /**
+     * 言語を固定して{@link BasicCodeManager}のコードを提供するクラス。
+     */
+    private final class LocaleBoundCodeManager implements CodeManager {
+
+        /** 言語 */
+        private final Locale locale;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param locale 言語
+         */
+        private LocaleBoundCodeManager(Locale locale) {
+            this.locale = locale;
+        }
+
+        @Override
+        public String getName(String codeId, String value) throws IllegalArgumentException {
+            return BasicCodeManager.this.getName(codeId, value, locale);
+        }
+
+        @Override
+        public String getName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+            return BasicCodeManager.this.getName(codeId, value, locale);
+        }
+
+        @Override
+        public String getShortName(String codeId, String value) throws IllegalArgumentException {
+            return BasicCodeManager.this.getShortName(codeId, value, locale);
+        }
+
+        @Override
+        public String getShortName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+            return BasicCodeManager.this.getShortName(codeId, value, locale);
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName)
+                throws IllegalArgumentException {
+            return BasicCodeManager.this.getOptionalName(codeId, value, optionColumnName, locale);
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName, Locale locale)
+                throws IllegalArgumentException {
+            return BasicCodeManager.this.getOptionalName(codeId, value, optionColumnName, locale);
+        }
+
+        @Override
+        public List<String> getValues(String codeId) throws IllegalArgumentException {
+            return BasicCodeManager.this.getValues(codeId, locale);
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern) throws IllegalArgumentException {
+            return BasicCodeManager.this.getValues(codeId, pattern, locale);
+        }
+
+        @Override
+        public List<String> getValues(String codeId, Locale locale) throws IllegalArgumentException {
+            return BasicCodeManager.this.getValues(codeId, locale);
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern, Locale locale) throws IllegalArgumentException {
+            return BasicCodeManager.this.getValues(codeId, pattern, locale);
+        }
+
+        @Override
+        public boolean contains(String codeId, String value) throws IllegalArgumentException {
+            return BasicCodeManager.this.contains(codeId, value, locale);
+        }
+
+        @Override
+        public boolean contains(String codeId, String pattern, String value) throws IllegalArgumentException {
+            return BasicCodeManager.this.contains(codeId, pattern, value, locale);
+        }
+    }
 }
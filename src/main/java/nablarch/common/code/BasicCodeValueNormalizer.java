@@ -0,0 +1,87 @@
+package nablarch.common.code;
+
+/**
+ * {@link CodeValueNormalizer}の基本実装クラス。
+ * <p/>
+ * 以下の正規化を行う。各正規化はプロパティで無効にできる。
+ * <ul>
+ *     <li>前後の空白(半角スペース、全角スペース、タブ)の除去</li>
+ *     <li>全角英数字・記号の半角への変換</li>
+ *     <li>英字の大文字への変換</li>
+ * </ul>
+ */
+public class BasicCodeValueNormalizer implements CodeValueNormalizer {
+
+    /** 全角英数字・記号の先頭(！) */
+    private static final char FULL_WIDTH_FIRST = '\uFF01';
+
+    /** 全角英数字・記号の末尾(～) */
+    private static final char FULL_WIDTH_LAST = '\uFF5E';
+
+    /** 全角英数字・記号と半角英数字・記号のコードポイントの差 */
+    private static final int FULL_WIDTH_OFFSET = 0xFEE0;
+
+    /** 全角スペース */
+    private static final char FULL_WIDTH_SPACE = '\u3000';
+
+    /** 前後の空白を除去するか否か */
+    private boolean trim = true;
+
+    /** 全角英数字・記号を半角に変換するか否か */
+    private boolean toHalfWidth = true;
+
+    /** 大文字・小文字を区別しないか否か */
+    private boolean ignoreCase = true;
+
+    /**
+     * 前後の空白を除去するか否かを設定する。(デフォルトはtrue)
+     *
+     * @param trim 前後の空白を除去する場合true
+     */
+    public void setTrim(boolean trim) {
+        this.trim = trim;
+    }
+
+    /**
+     * 全角英数字・記号を半角に変換するか否かを設定する。(デフォルトはtrue)
+     *
+     * @param toHalfWidth 全角英数字・記号を半角に変換する場合true
+     */
+    public void setToHalfWidth(boolean toHalfWidth) {
+        this.toHalfWidth = toHalfWidth;
+    }
+
+    /**
+     * 大文字・小文字を区別しないか否かを設定する。(デフォルトはtrue)
+     *
+     * @param ignoreCase 大文字・小文字を区別しない場合true
+     */
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isIgnorable(char c) {
+        return trim && (c == ' ' || c == '\t' || c == FULL_WIDTH_SPACE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public char normalize(char c) {
+        char result = c;
+        if (toHalfWidth) {
+            if (FULL_WIDTH_FIRST <= result && result <= FULL_WIDTH_LAST) {
+                result = (char) (result - FULL_WIDTH_OFFSET);
+            } else if (result == FULL_WIDTH_SPACE) {
+                result = ' ';
+            }
+        }
+        if (ignoreCase) {
+            result = Character.toUpperCase(result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,232 @@
+package nablarch.common.code;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link Code}をプログラムから構築するクラス。
+ * <p/>
+ * コード値、パターン、言語ごとの名称を追加し、{@link #build()}で{@link CompactCode}を生成する。
+ * 以下に使用例を示す。
+ * <pre>
+ * {@code
+ * Code code = new CodeBuilder("0001")
+ *         .patternColumns("PATTERN1", "PATTERN2")
+ *         .optionColumns("OPTION01")
+ *         .value("01", "PATTERN1")
+ *         .value("02", "PATTERN1", "PATTERN2")
+ *         .name("01", Locale.JAPANESE, 1, "男性", "男", "01:男性")
+ *         .name("02", Locale.JAPANESE, 2, "女性", "女", "02:女性")
+ *         .build();
+ * }
+ * </pre>
+ * パターンのカラム名とオプション名称のカラム名は、コード値を追加する前に設定する。
+ * 名称は、追加済みのコード値に対してのみ追加できる。名称が1つも追加されていないコード値は、コードに含めない。
+ * <p/>
+ * 追加したコード値、名称、略称、オプション名称は、本オブジェクトの単位で等しい文字列を1つのインスタンスにまとめて保持する。
+ * <p/>
+ * 本クラスはスレッドセーフではない。
+ */
+@Published(tag = "architect")
+public class CodeBuilder {
+
+    /** パターンに含まれることを表す値 */
+    private static final String PATTERN_INCLUDED = "1";
+
+    /** パターンに含まれないことを表す値 */
+    private static final String PATTERN_EXCLUDED = "0";
+
+    /** コードID */
+    private final String codeId;
+
+    /** パターンのカラム名 */
+    private String[] patternColumnNames = new String[0];
+
+    /** パターンのカラム名と位置のMap */
+    private Map<String, Integer> patternColumnPositions = new HashMap<String, Integer>();
+
+    /** オプション名称のカラム名 */
+    private String[] optionColumnNames = new String[0];
+
+    /** パターンの行 */
+    private final List<CompactCode.PatternRow> patternRows = new ArrayList<CompactCode.PatternRow>();
+
+    /** 名称の行 */
+    private final List<CompactCode.NameRow> nameRows = new ArrayList<CompactCode.NameRow>();
+
+    /** 追加したコード値 */
+    private final Set<String> values = new HashSet<String>();
+
+    /** 追加した文字列をまとめる{@link StringPool} */
+    private final StringPool pool = new StringPool();
+
+    /** 言語と、名称を追加したコード値のMap */
+    private final Map<Locale, Set<String>> namedValues = new HashMap<Locale, Set<String>>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param codeId コードID
+     * @throws IllegalArgumentException コードIDがnullの場合
+     */
+    public CodeBuilder(String codeId) throws IllegalArgumentException {
+        if (codeId == null) {
+            throw new IllegalArgumentException("code id must not be null.");
+        }
+        this.codeId = codeId;
+    }
+
+    /**
+     * パターンのカラム名を設定する。
+     *
+     * @param names パターンのカラム名
+     * @return このオブジェクト自体
+     * @throws IllegalStateException コード値を追加した後に呼び出された場合
+     * @throws IllegalArgumentException カラム名が重複している場合
+     */
+    public CodeBuilder patternColumns(String... names) throws IllegalStateException, IllegalArgumentException {
+        checkNoValues();
+        Map<String, Integer> positions = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            if (positions.put(names[i], i) != null) {
+                throw new IllegalArgumentException("pattern column is duplicated."
+                        + " code id = " + codeId
+                        + ", pattern = " + names[i]);
+            }
+        }
+        patternColumnNames = names.clone();
+        patternColumnPositions = positions;
+        return this;
+    }
+
+    /**
+     * オプション名称のカラム名を設定する。
+     *
+     * @param names オプション名称のカラム名
+     * @return このオブジェクト自体
+     * @throws IllegalStateException コード値を追加した後に呼び出された場合
+     * @throws IllegalArgumentException カラム名が重複している場合
+     */
+    public CodeBuilder optionColumns(String... names) throws IllegalStateException, IllegalArgumentException {
+        checkNoValues();
+        if (new HashSet<String>(Arrays.asList(names)).size() != names.length) {
+            throw new IllegalArgumentException("option column is duplicated."
+                    + " code id = " + codeId
+                    + ", option names = " + Arrays.toString(names));
+        }
+        optionColumnNames = names.clone();
+        return this;
+    }
+
+    /**
+     * コード値を追加する。
+     *
+     * @param value コード値
+     * @param patterns コード値を含めるパターンのカラム名
+     * @return このオブジェクト自体
+     * @throws IllegalArgumentException コード値が追加済みの場合、またはパターンのカラム名が存在しない場合
+     */
+    public CodeBuilder value(String value, String... patterns) throws IllegalArgumentException {
+        if (value == null) {
+            throw new IllegalArgumentException("code value must not be null. code id = " + codeId);
+        }
+        if (values.contains(value)) {
+            throw new IllegalArgumentException("code value is duplicated."
+                    + " code id = " + codeId
+                    + ", value = " + value);
+        }
+        String[] flags = new String[patternColumnNames.length];
+        Arrays.fill(flags, PATTERN_EXCLUDED);
+        for (String pattern : patterns) {
+            Integer position = patternColumnPositions.get(pattern);
+            if (position == null) {
+                throw new IllegalArgumentException("pattern was not found."
+                        + " code id = " + codeId
+                        + ", pattern = " + pattern);
+            }
+            flags[position] = PATTERN_INCLUDED;
+        }
+        String pooled = pool.intern(value);
+        values.add(pooled);
+        patternRows.add(new CompactCode.PatternRow(pooled, flags));
+        return this;
+    }
+
+    /**
+     * コード値の名称を追加する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @param sortOrder ソート順
+     * @param name 名称
+     * @param shortName 略称
+     * @param optionalNames オプション名称({@link #optionColumns(String...)}で設定したカラムの順)
+     * @return このオブジェクト自体
+     * @throws IllegalArgumentException コード値が追加されていない場合、同じ言語の名称が追加済みの場合、
+     *                                  またはオプション名称の数がカラム数と一致しない場合
+     */
+    public CodeBuilder name(String value, Locale locale, long sortOrder, String name, String shortName,
+            String... optionalNames) throws IllegalArgumentException {
+        if (!values.contains(value)) {
+            throw new IllegalArgumentException("code value was not added."
+                    + " code id = " + codeId
+                    + ", value = " + value);
+        }
+        if (locale == null) {
+            throw new IllegalArgumentException("locale must not be null."
+                    + " code id = " + codeId
+                    + ", value = " + value);
+        }
+        if (optionalNames.length != optionColumnNames.length) {
+            throw new IllegalArgumentException("number of option names does not match option columns."
+                    + " code id = " + codeId
+                    + ", value = " + value
+                    + ", expected = " + optionColumnNames.length
+                    + ", actual = " + optionalNames.length);
+        }
+        Set<String> named = namedValues.get(locale);
+        if (named == null) {
+            named = new HashSet<String>();
+            namedValues.put(locale, named);
+        }
+        if (!named.add(value)) {
+            throw new IllegalArgumentException("name is duplicated."
+                    + " code id = " + codeId
+                    + ", locale = " + locale
+                    + ", value = " + value);
+        }
+        nameRows.add(new CompactCode.NameRow(pool.intern(value), locale, sortOrder, pool.intern(name),
+                pool.intern(shortName), pool.intern(optionalNames.clone())));
+        return this;
+    }
+
+    /**
+     * コードを生成する。
+     * <p/>
+     * 生成後も本オブジェクトの状態は変わらないため、続けてコード値を追加して別のコードを生成できる。
+     *
+     * @return コード
+     */
+    public CompactCode build() {
+        return new CompactCode(codeId, patternColumnNames, optionColumnNames, patternRows, nameRows);
+    }
+
+    /**
+     * コード値が追加されていないことを確認する。
+     *
+     * @throws IllegalStateException コード値が追加されている場合
+     */
+    private void checkNoValues() throws IllegalStateException {
+        if (!values.isEmpty()) {
+            throw new IllegalStateException("columns must be set before adding values. code id = " + codeId);
+        }
+    }
+}
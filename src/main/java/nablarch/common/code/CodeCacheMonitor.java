@@ -0,0 +1,373 @@
+package nablarch.common.code;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+import nablarch.core.util.I18NUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コードのキャッシュの統計情報と再読み込みの操作を、JMXのMBeanとして公開するクラス。
+ * <p/>
+ * 初期化時にプラットフォームの{@link MBeanServer}に登録し、以下の情報と操作を公開する。
+ * <ul>
+ * <li>読み込み済みのコードIDの数、コード値の数、メモリ使用量の概算</li>
+ * <li>最後に全てのコードを再読み込みした日時と処理時間</li>
+ * <li>コードIDごとのコードの取得回数</li>
+ * <li>全てのコード、またはコードIDを指定した再読み込み</li>
+ * </ul>
+ * 読み込み済みのコードの統計情報は、キャッシュが{@link AsyncCodeDefinitionCache}の場合にのみ取得できる。
+ * 統計情報は読み込み済みのコードから参照された時点で算出するため、コードを読み込まない。
+ * コード値の数とメモリ使用量は、{@link #setLanguage(String)}で指定した言語のコード値、名称、略称から算出する。
+ * 算出結果はコードごとに保持し、再読み込みにより置き換わったコードのみを参照時に算出し直す。
+ * <p/>
+ * コードIDごとの取得回数は、本クラスの初期化以降に{@link BasicCodeManager}がキャッシュから取得した回数を数える。
+ * <p/>
+ * 設定例を以下に示す。
+ * <pre>
+ * {@code
+ * <component name="codeCacheMonitor" class="nablarch.common.code.CodeCacheMonitor">
+ *   <property name="codeManager" ref="codeManager" />
+ *   <property name="codeDefinitionCache" ref="codeCache" />
+ * </component>
+ * }
+ * </pre>
+ */
+@Published(tag = "architect")
+public class CodeCacheMonitor implements CodeCacheMonitorMBean, Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(CodeCacheMonitor.class);
+
+    /** デフォルトのオブジェクト名 */
+    private static final String DEFAULT_OBJECT_NAME = "nablarch.common.code:type=CodeCacheMonitor";
+
+    /** 監視するコードマネージャ */
+    private BasicCodeManager codeManager;
+
+    /** 監視するコードのキャッシュ */
+    private StaticDataCache<Code> codeDefinitionCache;
+
+    /** 統計情報の算出に使用する言語(nullの場合はデフォルトの言語) */
+    private Locale language;
+
+    /** MBeanのオブジェクト名 */
+    private String objectName = DEFAULT_OBJECT_NAME;
+
+    /** 登録したMBeanのオブジェクト名(登録していない場合はnull) */
+    private ObjectName registeredName;
+
+    /** コードごとの統計情報を算出した言語 */
+    private Locale statisticsLocale;
+
+    /** コードと、コードごとの統計情報(コード値の数、メモリ使用量の概算)のMap */
+    private Map<Code, long[]> codeStatistics = new IdentityHashMap<Code, long[]>();
+
+    /** 本クラスで最後に全てのコードを再読み込みした日時(再読み込みしていない場合は0) */
+    private volatile long lastReloadTime;
+
+    /** 本クラスで最後に全てのコードを再読み込みした際の処理時間(ミリ秒) */
+    private volatile long lastReloadDuration;
+
+    /**
+     * 監視するコードマネージャを設定する。
+     *
+     * @param codeManager 監視するコードマネージャ
+     */
+    public void setCodeManager(BasicCodeManager codeManager) {
+        this.codeManager = codeManager;
+    }
+
+    /**
+     * 監視するコードのキャッシュを設定する。
+     * <p/>
+     * {@link BasicCodeManager#setCodeDefinitionCache(StaticDataCache)}に設定したキャッシュを設定する。
+     *
+     * @param codeDefinitionCache 監視するコードのキャッシュ
+     */
+    public void setCodeDefinitionCache(StaticDataCache<Code> codeDefinitionCache) {
+        this.codeDefinitionCache = codeDefinitionCache;
+    }
+
+    /**
+     * 統計情報の算出に使用する言語を設定する。(デフォルトは{@link nablarch.core.ThreadContext}で指定された言語)
+     *
+     * @param language 言語(例: "ja")
+     */
+    public void setLanguage(String language) {
+        this.language = I18NUtil.createLocale(language);
+    }
+
+    /**
+     * MBeanのオブジェクト名を設定する。(デフォルトは"nablarch.common.code:type=CodeCacheMonitor")
+     *
+     * @param objectName MBeanのオブジェクト名
+     */
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * コードIDごとの取得回数を数え始め、プラットフォームの{@link MBeanServer}に本オブジェクトを登録する。
+     *
+     * @throws IllegalStateException コードマネージャまたはキャッシュが設定されていない場合、
+     *                               またはMBeanの登録に失敗した場合
+     */
+    public synchronized void initialize() throws IllegalStateException {
+        if (codeManager == null || codeDefinitionCache == null) {
+            throw new IllegalStateException("codeManager and codeDefinitionCache must be set.");
+        }
+        codeManager.enableHitCounts();
+        if (registeredName != null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register MBean. object name = " + objectName, e);
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.logInfo("code cache monitor was registered. object name = " + objectName);
+        }
+    }
+
+    /**
+     * プラットフォームの{@link MBeanServer}から本オブジェクトの登録を解除する。
+     * <p/>
+     * 登録していない場合は何もしない。
+     *
+     * @throws IllegalStateException MBeanの登録の解除に失敗した場合
+     */
+    public synchronized void unregister() throws IllegalStateException {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to unregister MBean. object name = " + registeredName, e);
+        }
+        registeredName = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getLoadedCodeIdCount() {
+        Collection<Code> loaded = getLoadedValues();
+        return loaded == null ? -1 : loaded.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 統計情報の算出に使用する言語のデータが存在しないコードは、数に含めない。
+     */
+    public int getLoadedValueCount() {
+        long[] totals = getStatistics();
+        return totals == null ? -1 : (int) totals[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 統計情報の算出に使用する言語のコード値、名称、略称の文字列のサイズを合計して概算する。
+     * 言語のデータが存在しないコードは、概算に含めない。
+     */
+    public long getEstimatedFootprintBytes() {
+        long[] totals = getStatistics();
+        return totals == null ? -1L : totals[1];
+    }
+
+    /**
+     * 読み込み済みのコードの統計情報を合計する。
+     * <p/>
+     * コードごとの統計情報は、前回の算出時から置き換わっていないコードでは保持しているものを使用する。
+     *
+     * @return コード値の数とメモリ使用量の概算の合計。キャッシュが{@link AsyncCodeDefinitionCache}でない場合はnull
+     */
+    private synchronized long[] getStatistics() {
+        Collection<Code> loaded = getLoadedValues();
+        if (loaded == null) {
+            return null;
+        }
+        Locale locale = getStatisticsLanguage();
+        Map<Code, long[]> previous = locale.equals(statisticsLocale)
+                ? codeStatistics : Collections.<Code, long[]>emptyMap();
+        Map<Code, long[]> current = new IdentityHashMap<Code, long[]>();
+        long[] totals = new long[2];
+        for (Code code : loaded) {
+            long[] statistics = previous.get(code);
+            if (statistics == null) {
+                statistics = computeStatistics(code, locale);
+            }
+            current.put(code, statistics);
+            totals[0] += statistics[0];
+            totals[1] += statistics[1];
+        }
+        statisticsLocale = locale;
+        codeStatistics = current;
+        return totals;
+    }
+
+    /**
+     * コードの統計情報を算出する。
+     *
+     * @param code コード
+     * @param locale 統計情報の算出に使用する言語
+     * @return コード値の数とメモリ使用量の概算。言語に対応するデータが存在しない場合はいずれも0
+     */
+    private static long[] computeStatistics(Code code, Locale locale) {
+        List<String> values;
+        try {
+            values = code.getValues(locale);
+        } catch (IllegalArgumentException e) {
+            // 言語に対応するデータが存在しないコードは数えない
+            return new long[2];
+        }
+        long bytes = 0L;
+        try {
+            for (String value : values) {
+                bytes += StringPool.estimateSize(value)
+                        + StringPool.estimateSize(code.getName(value, locale))
+                        + StringPool.estimateSize(code.getShortName(value, locale));
+            }
+        } catch (IllegalArgumentException e) {
+            // 言語に対応するデータが存在しないコードは概算に含めない
+            bytes = 0L;
+        }
+        return new long[] {values.size(), bytes};
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * キャッシュが{@link AsyncCodeDefinitionCache}の場合は、本クラス以外から再読み込みした場合も含む。
+     */
+    public Date getLastReloadTime() {
+        long time = codeDefinitionCache instanceof AsyncCodeDefinitionCache
+                ? ((AsyncCodeDefinitionCache) codeDefinitionCache).getLastRefreshTime()
+                : lastReloadTime;
+        return time == 0L ? null : new Date(time);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * キャッシュが{@link AsyncCodeDefinitionCache}の場合は、本クラス以外から再読み込みした場合も含む。
+     */
+    public long getLastReloadDurationMillis() {
+        return codeDefinitionCache instanceof AsyncCodeDefinitionCache
+                ? ((AsyncCodeDefinitionCache) codeDefinitionCache).getLastRefreshDuration()
+                : lastReloadDuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String[] getHitCounts() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(
+                codeManager.getHitCounts().entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                int result = o2.getValue().compareTo(o1.getValue());
+                return result != 0 ? result : o1.getKey().compareTo(o2.getKey());
+            }
+        });
+        String[] result = new String[entries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = entries.get(i).getKey() + "=" + entries.get(i).getValue();
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getHitCount(String codeId) {
+        Long count = codeManager.getHitCounts().get(codeId);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void resetHitCounts() {
+        codeManager.resetHitCounts();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * キャッシュの{@link StaticDataCache#refresh()}を呼び出す。
+     */
+    public void reloadAll() {
+        long start = System.nanoTime();
+        codeDefinitionCache.refresh();
+        lastReloadDuration = (System.nanoTime() - start) / 1000000L;
+        lastReloadTime = System.currentTimeMillis();
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.logInfo("codes were reloaded via JMX. code ids = (all)");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * キャッシュの{@link AsyncCodeDefinitionCache#refresh(Object)}を呼び出す。
+     * 指定したコードは、次に取得された時点で読み込み直す。
+     *
+     * @throws IllegalStateException キャッシュが{@link AsyncCodeDefinitionCache}でない場合
+     */
+    public void reload(String codeId) throws IllegalStateException {
+        if (!(codeDefinitionCache instanceof AsyncCodeDefinitionCache)) {
+            throw new IllegalStateException("reloading a code id requires AsyncCodeDefinitionCache."
+                    + " cache class = " + codeDefinitionCache.getClass().getName());
+        }
+        ((AsyncCodeDefinitionCache) codeDefinitionCache).refresh(codeId);
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.logInfo("codes were reloaded via JMX. code ids = [" + codeId + "]");
+        }
+    }
+
+    /**
+     * 読み込み済みのコードを取得する。
+     *
+     * @return 読み込み済みのコード。キャッシュが{@link AsyncCodeDefinitionCache}でない場合はnull
+     */
+    private Collection<Code> getLoadedValues() {
+        if (codeDefinitionCache instanceof AsyncCodeDefinitionCache) {
+            return ((AsyncCodeDefinitionCache) codeDefinitionCache).getLoadedValues();
+        }
+        return null;
+    }
+
+    /**
+     * 統計情報の算出に使用する言語を取得する。
+     *
+     * @return 統計情報の算出に使用する言語
+     */
+    private Locale getStatisticsLanguage() {
+        return language != null ? language : BasicCodeManager.getLanguage();
+    }
+}
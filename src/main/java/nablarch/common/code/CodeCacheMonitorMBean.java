@@ -0,0 +1,81 @@
+package nablarch.common.code;
+
+import java.util.Date;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コードのキャッシュの統計情報と再読み込みの操作をJMXで公開するためのインタフェース。
+ *
+ * @see CodeCacheMonitor
+ */
+@Published(tag = "architect")
+public interface CodeCacheMonitorMBean {
+
+    /**
+     * 読み込み済みのコードIDの数を取得する。
+     *
+     * @return 読み込み済みのコードIDの数。取得できない場合は-1
+     */
+    int getLoadedCodeIdCount();
+
+    /**
+     * 読み込み済みのコードに含まれるコード値の数を取得する。
+     *
+     * @return コード値の数。取得できない場合は-1
+     */
+    int getLoadedValueCount();
+
+    /**
+     * 読み込み済みのコードが使用するメモリ量の概算を取得する。
+     *
+     * @return メモリ量(バイト数の概算)。取得できない場合は-1
+     */
+    long getEstimatedFootprintBytes();
+
+    /**
+     * 最後に全てのコードを再読み込みした日時を取得する。
+     *
+     * @return 最後に全てのコードを再読み込みした日時。再読み込みしていない場合はnull
+     */
+    Date getLastReloadTime();
+
+    /**
+     * 最後に全てのコードを再読み込みした際の処理時間を取得する。
+     *
+     * @return 処理時間(ミリ秒)
+     */
+    long getLastReloadDurationMillis();
+
+    /**
+     * コードIDごとのコードの取得回数を取得する。
+     *
+     * @return "コードID=取得回数"の形式の文字列の配列(取得回数の降順)
+     */
+    String[] getHitCounts();
+
+    /**
+     * 指定したコードIDのコードの取得回数を取得する。
+     *
+     * @param codeId コードID
+     * @return 取得回数
+     */
+    long getHitCount(String codeId);
+
+    /**
+     * コードIDごとのコードの取得回数を0に戻す。
+     */
+    void resetHitCounts();
+
+    /**
+     * 全てのコードを再読み込みする。
+     */
+    void reloadAll();
+
+    /**
+     * 指定したコードIDのコードを再読み込みする。
+     *
+     * @param codeId コードID
+     */
+    void reload(String codeId);
+}
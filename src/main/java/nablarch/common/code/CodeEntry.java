@@ -0,0 +1,123 @@
+package nablarch.common.code;
+
+import java.util.Locale;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 1つのコード値と、その言語ごとの名称をまとめて保持するクラス。
+ * <p/>
+ * 本クラスは不変であり、複数のスレッドから同時に使用できる。
+ * オプション名称とパターンの情報は、コードから導出したデータを参照して取得する。
+ *
+ * @see BasicCodeManager#iterateEntries(String, String, Locale)
+ * @see BasicCodeManager#getEntries(String, String, Locale)
+ */
+@Published
+public final class CodeEntry {
+
+    /** 導出元のデータ */
+    private final LocalizedCodeIndex index;
+
+    /** ソート順での位置 */
+    private final int sortOrder;
+
+    /** コード値 */
+    private final String value;
+
+    /** コード名称 */
+    private final String name;
+
+    /** コードの略称 */
+    private final String shortName;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param index 導出元のデータ
+     * @param sortOrder ソート順での位置
+     * @param value コード値
+     * @param name コード名称
+     * @param shortName コードの略称
+     */
+    CodeEntry(LocalizedCodeIndex index, int sortOrder, String value, String name, String shortName) {
+        this.index = index;
+        this.sortOrder = sortOrder;
+        this.value = value;
+        this.name = name;
+        this.shortName = shortName;
+    }
+
+    /**
+     * コード値を取得する。
+     *
+     * @return コード値
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * ソート順での位置を取得する。
+     *
+     * @return 言語ごとに定義されたソート順での位置(0始まり)
+     */
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * 言語を取得する。
+     *
+     * @return 言語
+     */
+    public Locale getLocale() {
+        return index.getLocale();
+    }
+
+    /**
+     * コード名称を取得する。
+     *
+     * @return コード名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * コードの略称を取得する。
+     *
+     * @return コードの略称。略称が存在しない場合はnull
+     */
+    public String getShortName() {
+        return shortName;
+    }
+
+    /**
+     * オプション名称を取得する。
+     *
+     * @param optionColumnName オプション名称のカラム名
+     * @return オプション名称。オプション名称が存在しない場合はnull
+     * @throws IllegalArgumentException オプション名称のカラムが存在しなかった場合。
+     */
+    public String getOptionalName(String optionColumnName) throws IllegalArgumentException {
+        return index.getOptionalNames(optionColumnName)[sortOrder];
+    }
+
+    /**
+     * コード値がパターンに含まれるか判定する。
+     *
+     * @param pattern 使用するパターンのカラム名
+     * @return パターンに含まれる場合true
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    public boolean isIncludedIn(String pattern) throws IllegalArgumentException {
+        return index.getPatternPositions(pattern).get(sortOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "value = " + value + ", name = " + name + ", short name = " + shortName
+                + ", locale = " + index.getLocale();
+    }
+}
@@ -0,0 +1,20 @@
+package nablarch.common.code;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コード値と名称のエントリを選別するインタフェース。
+ *
+ * @see BasicCodeManager#registerVirtualPattern(String, String, CodeEntryFilter)
+ */
+@Published(tag = "architect")
+public interface CodeEntryFilter {
+
+    /**
+     * エントリを選別する。
+     *
+     * @param entry コード値と名称のエントリ
+     * @return 選別の対象とする場合true
+     */
+    boolean accept(CodeEntry entry);
+}
@@ -0,0 +1,116 @@
+package nablarch.common.code;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コードから導出したデータを直接走査し、{@link CodeEntry}を順に返却する{@link Iterator}。
+ * <p/>
+ * 走査の途中でリストを生成しない。
+ * また、{@link #trySplit()}で未走査の範囲を分割できるため、
+ * 分割した{@link CodeEntryIterator}をそれぞれ別のスレッドで走査できる。
+ * 1つの{@link CodeEntryIterator}を複数のスレッドから同時に使用することはできない。
+ *
+ * @see BasicCodeManager#iterateEntries(String, String, java.util.Locale)
+ */
+@Published
+public final class CodeEntryIterator implements Iterator<CodeEntry> {
+
+    /** 走査対象のエントリ(ソート順) */
+    private final CodeEntry[] entries;
+
+    /** 走査対象とする位置(全ての位置を対象とする場合はnull) */
+    private final BitSet filter;
+
+    /** 次に返却するエントリの位置 */
+    private int next;
+
+    /** 走査を終了する位置(この位置のエントリは含まない) */
+    private final int end;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param entries 走査対象のエントリ(ソート順)
+     * @param filter 走査対象とする位置(全ての位置を対象とする場合はnull)
+     * @param begin 走査を開始する位置
+     * @param end 走査を終了する位置(この位置のエントリは含まない)
+     */
+    CodeEntryIterator(CodeEntry[] entries, BitSet filter, int begin, int end) {
+        this.entries = entries;
+        this.filter = filter;
+        this.end = end;
+        next = seek(begin);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasNext() {
+        return next < end;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public CodeEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CodeEntry entry = entries[next];
+        next = seek(next + 1);
+        return entry;
+    }
+
+    /**
+     * 本操作はサポートしない。
+     *
+     * @throws UnsupportedOperationException 常に送出する
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("code entries are read only.");
+    }
+
+    /**
+     * 未走査の範囲の前半を、新たな{@link CodeEntryIterator}として分割する。<br/>
+     * 本オブジェクトは、分割後は後半の範囲のみを走査する。
+     *
+     * @return 前半の範囲を走査する{@link CodeEntryIterator}。分割できない場合はnull
+     */
+    public CodeEntryIterator trySplit() {
+        int middle = (next + end) >>> 1;
+        if (middle <= next) {
+            return null;
+        }
+        CodeEntryIterator prefix = new CodeEntryIterator(entries, filter, next, middle);
+        next = seek(middle);
+        return prefix;
+    }
+
+    /**
+     * 未走査の範囲の大きさを取得する。<br/>
+     * パターンを指定している場合は、実際に返却されるエントリの件数より大きい場合がある。
+     *
+     * @return 未走査の範囲の大きさ
+     */
+    public int estimateSize() {
+        return end - next;
+    }
+
+    /**
+     * 指定された位置以降で、最初に走査対象となる位置を求める。
+     *
+     * @param from 開始位置
+     * @return 走査対象となる位置。存在しない場合は終了位置
+     */
+    private int seek(int from) {
+        if (filter == null || from >= end) {
+            return Math.min(from, end);
+        }
+        int found = filter.nextSetBit(from);
+        return found < 0 || found > end ? end : found;
+    }
+}
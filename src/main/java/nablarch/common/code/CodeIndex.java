@@ -0,0 +1,232 @@
+package nablarch.common.code;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link Code}から導出した検索用のデータを保持するクラス。
+ * <p/>
+ * 導出元の{@link Code}ごとに生成する。
+ * コードの再読み込みにより{@link Code}が置き換わった場合は、新しい{@link Code}から再生成する。
+ * 言語ごとのデータは、その言語が初めて使用された時点で生成し、コードが対応する言語のみを配列で保持する。
+ * コードが対応していない言語は保持しないため、外部から指定された任意の言語によって配列が大きくなることはない。
+ * <p/>
+ * 国やバリアントを含む言語(例: ja_JP)にコードが対応していない場合は、言語のみ(例: ja)のデータを使用する。
+ * フォールバックした言語と、コードが対応していない言語は{@value #MAX_FALLBACKS}件まで保持する。
+ * 保持しきれない言語は、ロックを取得せずにコードへの問い合わせで都度解決する。
+ */
+final class CodeIndex {
+
+    /** 導出元のコード */
+    private final Code code;
+
+    /** コード値の正規化ルール(正規化しない場合はnull) */
+    private final CodeValueNormalizer normalizer;
+
+    /** パターン名と仮想パターンのMap */
+    private final Map<String, VirtualPattern> virtualPatterns;
+
+    /** 保持するフォールバックした言語とコードが対応していない言語の最大数 */
+    static final int MAX_FALLBACKS = 16;
+
+    /** 言語ごとのデータ。更新時は配列を複製して置き換える。 */
+    private volatile Localized[] localizedIndexes = new Localized[0];
+
+    /** 保持しているフォールバックした言語とコードが対応していない言語の数 */
+    private int fallbackCount;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param code 導出元のコード
+     * @param normalizer コード値の正規化ルール(正規化しない場合はnull)
+     * @param virtualPatterns パターン名と仮想パターンのMap
+     */
+    CodeIndex(Code code, CodeValueNormalizer normalizer, Map<String, VirtualPattern> virtualPatterns) {
+        this.code = code;
+        this.normalizer = normalizer;
+        this.virtualPatterns = virtualPatterns;
+    }
+
+    /**
+     * 指定されたコードと仮想パターンから導出したデータか否かを判定する。
+     *
+     * @param code コード
+     * @param virtualPatterns パターン名と仮想パターンのMap
+     * @return 指定されたコードと仮想パターンから導出したデータの場合true
+     */
+    boolean isBuiltFrom(Code code, Map<String, VirtualPattern> virtualPatterns) {
+        return this.code == code && this.virtualPatterns == virtualPatterns;
+    }
+
+    /**
+     * 導出元のコードを取得する。
+     *
+     * @return 導出元のコード
+     */
+    Code getCode() {
+        return code;
+    }
+
+    /**
+     * 言語に対応するデータを取得する。
+     * <p/>
+     * 国やバリアントを含む言語にコードが対応していない場合は、言語のみのデータを返却する。
+     *
+     * @param locale 言語
+     * @return 言語に対応するデータ
+     * @throws IllegalArgumentException 言語に対応するデータが存在しなかった場合。
+     */
+    LocalizedCodeIndex getLocalized(Locale locale) throws IllegalArgumentException {
+        LocalizedCodeIndex found = findLocalized(locale);
+        if (found == null) {
+            throw new IllegalArgumentException("locale was not found. "
+                    + "code id = " + code.getCodeId()
+                    + ", locale = " + locale);
+        }
+        return found;
+    }
+
+    /**
+     * 言語に対応するデータを検索する。
+     * <p/>
+     * 国やバリアントを含む言語にコードが対応していない場合は、言語のみのデータを返却する。
+     *
+     * @param locale 言語
+     * @return 言語に対応するデータ。言語に対応するデータが存在しなかった場合、言語がnullの場合はnull
+     */
+    LocalizedCodeIndex findLocalized(Locale locale) {
+        if (locale == null) {
+            return null;
+        }
+        Localized found = find(localizedIndexes, locale);
+        if (found != null) {
+            return found.index;
+        }
+        if (isSupported(locale)) {
+            return build(locale);
+        }
+        LocalizedCodeIndex fallback = null;
+        if (locale.getCountry().length() != 0 || locale.getVariant().length() != 0) {
+            Locale language = new Locale(locale.getLanguage());
+            Localized languageEntry = find(localizedIndexes, language);
+            if (languageEntry != null) {
+                fallback = languageEntry.index;
+            } else if (isSupported(language)) {
+                fallback = build(language);
+            }
+        }
+        addFallback(locale, fallback);
+        return fallback;
+    }
+
+    /**
+     * コードが言語に対応しているか否かを判定する。
+     *
+     * @param locale 言語
+     * @return コードが言語に対応している場合true
+     */
+    private boolean isSupported(Locale locale) {
+        try {
+            code.getValues(locale);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * コードが対応している言語のデータを生成して保持する。
+     *
+     * @param locale コードが対応している言語
+     * @return 言語に対応するデータ
+     */
+    private synchronized LocalizedCodeIndex build(Locale locale) {
+        Localized[] indexes = localizedIndexes;
+        Localized found = find(indexes, locale);
+        if (found != null && found.index != null) {
+            return found.index;
+        }
+        LocalizedCodeIndex localized = new LocalizedCodeIndex(code, locale, normalizer, virtualPatterns);
+        localizedIndexes = add(indexes, locale, localized);
+        return localized;
+    }
+
+    /**
+     * フォールバックした言語、またはコードが対応していない言語を保持する。
+     * <p/>
+     * 保持している件数が{@value #MAX_FALLBACKS}件に達している場合は保持しない。
+     *
+     * @param locale 言語
+     * @param index フォールバック先の言語に対応するデータ(コードが対応していない言語の場合はnull)
+     */
+    private synchronized void addFallback(Locale locale, LocalizedCodeIndex index) {
+        Localized[] indexes = localizedIndexes;
+        if (fallbackCount >= MAX_FALLBACKS || find(indexes, locale) != null) {
+            return;
+        }
+        fallbackCount++;
+        localizedIndexes = add(indexes, locale, index);
+    }
+
+    /**
+     * 保持しているデータから、言語に対応するデータを検索する。
+     * <p/>
+     * 同じインスタンスの言語を優先して検索し、見つからない場合は{@link Locale#equals(Object)}で比較する。
+     *
+     * @param indexes 保持しているデータ
+     * @param locale 言語
+     * @return 言語と言語に対応するデータの組み合わせ。保持していない場合はnull
+     */
+    private static Localized find(Localized[] indexes, Locale locale) {
+        for (Localized localized : indexes) {
+            if (localized.locale == locale) {
+                return localized;
+            }
+        }
+        for (Localized localized : indexes) {
+            if (localized.locale.equals(locale)) {
+                return localized;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 保持しているデータに、言語に対応するデータを追加した配列を生成する。
+     *
+     * @param indexes 保持しているデータ
+     * @param locale 言語
+     * @param index 言語に対応するデータ(コードが対応していない言語の場合はnull)
+     * @return 追加した配列
+     */
+    private static Localized[] add(Localized[] indexes, Locale locale, LocalizedCodeIndex index) {
+        Localized[] result = Arrays.copyOf(indexes, indexes.length + 1);
+        result[indexes.length] = new Localized(locale, index);
+        return result;
+    }
+
+    /**
+     * 言語と、言語に対応するデータの組み合わせ。
+     */
+    private static final class Localized {
+
+        /** 言語 */
+        private final Locale locale;
+
+        /** 言語に対応するデータ(コードが対応していない言語の場合はnull) */
+        private final LocalizedCodeIndex index;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param locale 言語
+         * @param index 言語に対応するデータ(コードが対応していない言語の場合はnull)
+         */
+        private Localized(Locale locale, LocalizedCodeIndex index) {
+            this.locale = locale;
+            this.index = index;
+        }
+    }
+}
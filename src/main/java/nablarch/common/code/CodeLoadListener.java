@@ -0,0 +1,30 @@
+package nablarch.common.code;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link AsyncCodeDefinitionCache#loadAsync(Object, CodeLoadListener)}によるコードの読み込み結果を受け取るインタフェース。
+ * <p/>
+ * 各メソッドは、コードを読み込んだスレッド、または読み込み済みの場合は
+ * {@link AsyncCodeDefinitionCache#loadAsync(Object, CodeLoadListener)}を呼び出したスレッドで呼び出される。
+ * このため、実装は処理をブロックしてはならない。
+ */
+@Published
+public interface CodeLoadListener {
+
+    /**
+     * コードの読み込みが完了した場合に呼び出される。
+     *
+     * @param codeId コードID
+     * @param code 読み込んだコード。コードIDに対応するコードが存在しない場合はnull
+     */
+    void onLoaded(Object codeId, Code code);
+
+    /**
+     * コードの読み込みに失敗した場合に呼び出される。
+     *
+     * @param codeId コードID
+     * @param cause 読み込み時に発生した例外
+     */
+    void onFailed(Object codeId, Throwable cause);
+}
@@ -0,0 +1,18 @@
+package nablarch.common.code;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コード名称でコード値を検索する際の一致条件。
+ *
+ * @see BasicCodeManager#searchValues(String, String, CodeNameSearchMode, java.util.Locale, int)
+ */
+@Published
+public enum CodeNameSearchMode {
+
+    /** 前方一致 */
+    PREFIX,
+
+    /** 部分一致 */
+    SUBSTRING
+}
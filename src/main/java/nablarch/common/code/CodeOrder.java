@@ -0,0 +1,19 @@
+package nablarch.common.code;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コード値を取得する際の並び順。
+ *
+ * @see BasicCodeManager#getValues(String, String, java.util.Locale, CodeOrder)
+ * @see BasicCodeManager#getEntries(String, String, java.util.Locale, CodeOrder)
+ */
+@Published
+public enum CodeOrder {
+
+    /** ソート順 */
+    SORT_ORDER,
+
+    /** 言語の照合規則によるコード名称の順 */
+    NAME
+}
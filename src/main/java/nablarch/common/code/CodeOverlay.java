@@ -0,0 +1,380 @@
+package nablarch.common.code;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * テナントごとに、共通のコードに対する差分(追加するコード値、上書きする名称)を保持するクラス。
+ * <p/>
+ * {@link TenantCodeManager}に登録して使用する。差分として保持するのは追加・上書きした内容のみであり、
+ * 共通のコードの内容は保持しない。
+ * <p/>
+ * 追加したコード値は、共通のコードのコード値の後ろに追加した順序で並ぶ。
+ * 共通のコードに存在するコード値を追加した場合は、名称の上書きとして扱う。
+ * <p/>
+ * 本クラスは{@link TenantCodeManager}に登録した後に変更してはならない。
+ */
+@Published(tag = "architect")
+public class CodeOverlay {
+
+    /** テナントID */
+    private final String tenantId;
+
+    /** コードID */
+    private final String codeId;
+
+    /** 追加したコード値 */
+    private final Set<String> addedValues = new HashSet<String>();
+
+    /** 言語と、言語ごとに追加したコード値のリスト(追加順)のMap */
+    private final Map<Locale, List<String>> addedValuesByLocale = new HashMap<Locale, List<String>>();
+
+    /** パターンと、パターンに含める追加したコード値のMap */
+    private final Map<String, Set<String>> patternValues = new HashMap<String, Set<String>>();
+
+    /** 言語と、コード値と名称のMapのMap */
+    private final Map<Locale, Map<String, String>> names = new HashMap<Locale, Map<String, String>>();
+
+    /** 言語と、コード値と略称のMapのMap */
+    private final Map<Locale, Map<String, String>> shortNames = new HashMap<Locale, Map<String, String>>();
+
+    /** オプション名称のカラム名と、言語ごとのコード値とオプション名称のMapのMap */
+    private final Map<String, Map<Locale, Map<String, String>>> optionalNames
+            = new HashMap<String, Map<Locale, Map<String, String>>>();
+
+    /** 言語と、パターンごとの共通のコードとマージしたコード値のMapのMap */
+    private final ConcurrentMap<Locale, ConcurrentMap<String, MergedValues>> mergedValues
+            = new ConcurrentHashMap<Locale, ConcurrentMap<String, MergedValues>>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param tenantId テナントID
+     * @param codeId コードID
+     */
+    public CodeOverlay(String tenantId, String codeId) {
+        if (tenantId == null || codeId == null) {
+            throw new IllegalArgumentException("tenant id and code id must not be null."
+                    + " tenant id = " + tenantId
+                    + ", code id = " + codeId);
+        }
+        this.tenantId = tenantId;
+        this.codeId = codeId;
+    }
+
+    /**
+     * テナントIDを取得する。
+     *
+     * @return テナントID
+     */
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * コードIDを取得する。
+     *
+     * @return コードID
+     */
+    public String getCodeId() {
+        return codeId;
+    }
+
+    /**
+     * コード値を追加する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @param name 名称
+     * @param shortName 略称(略称を設定しない場合はnull)
+     * @return このオブジェクト自体
+     */
+    public CodeOverlay addValue(String value, Locale locale, String name, String shortName) {
+        List<String> values = addedValuesByLocale.get(locale);
+        if (values == null) {
+            values = new ArrayList<String>();
+            addedValuesByLocale.put(locale, values);
+        }
+        if (!values.contains(value)) {
+            values.add(value);
+        }
+        addedValues.add(value);
+        overrideName(value, locale, name);
+        if (shortName != null) {
+            overrideShortName(value, locale, shortName);
+        }
+        return this;
+    }
+
+    /**
+     * 追加したコード値をパターンに含める。
+     *
+     * @param pattern パターン名
+     * @param value コード値
+     * @return このオブジェクト自体
+     */
+    public CodeOverlay addToPattern(String pattern, String value) {
+        Set<String> values = patternValues.get(pattern);
+        if (values == null) {
+            values = new HashSet<String>();
+            patternValues.put(pattern, values);
+        }
+        values.add(value);
+        return this;
+    }
+
+    /**
+     * 名称を上書きする。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @param name 名称
+     * @return このオブジェクト自体
+     */
+    public CodeOverlay overrideName(String value, Locale locale, String name) {
+        put(names, value, locale, name);
+        return this;
+    }
+
+    /**
+     * 略称を上書きする。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @param shortName 略称
+     * @return このオブジェクト自体
+     */
+    public CodeOverlay overrideShortName(String value, Locale locale, String shortName) {
+        put(shortNames, value, locale, shortName);
+        return this;
+    }
+
+    /**
+     * オプション名称を上書きする。
+     *
+     * @param value コード値
+     * @param optionColumnName オプション名称のカラム名
+     * @param locale 言語
+     * @param optionalName オプション名称
+     * @return このオブジェクト自体
+     */
+    public CodeOverlay overrideOptionalName(String value, String optionColumnName, Locale locale,
+            String optionalName) {
+        Map<Locale, Map<String, String>> column = optionalNames.get(optionColumnName);
+        if (column == null) {
+            column = new HashMap<Locale, Map<String, String>>();
+            optionalNames.put(optionColumnName, column);
+        }
+        put(column, value, locale, optionalName);
+        return this;
+    }
+
+    /**
+     * 言語ごとのMapに値を設定する。
+     *
+     * @param map 言語と、コード値と値のMapのMap
+     * @param value コード値
+     * @param locale 言語
+     * @param name 値
+     */
+    private static void put(Map<Locale, Map<String, String>> map, String value, Locale locale, String name) {
+        Map<String, String> localized = map.get(locale);
+        if (localized == null) {
+            localized = new HashMap<String, String>();
+            map.put(locale, localized);
+        }
+        localized.put(value, name);
+    }
+
+    /**
+     * 言語ごとのMapから値を取得する。
+     *
+     * @param map 言語と、コード値と値のMapのMap
+     * @param value コード値
+     * @param locale 言語
+     * @return 値。存在しない場合はnull
+     */
+    private static String get(Map<Locale, Map<String, String>> map, String value, Locale locale) {
+        Map<String, String> localized = map.get(locale);
+        return localized == null ? null : localized.get(value);
+    }
+
+    /**
+     * コード値を追加しているか否か。
+     *
+     * @param value コード値
+     * @return 追加している場合true
+     */
+    boolean containsAddedValue(String value) {
+        return addedValues.contains(value);
+    }
+
+    /**
+     * パターンに含まれるコード値を追加しているか否か。
+     *
+     * @param pattern パターン名
+     * @param value コード値
+     * @return 追加している場合true
+     */
+    boolean containsAddedValue(String pattern, String value) {
+        Set<String> values = patternValues.get(pattern);
+        return values != null && values.contains(value);
+    }
+
+    /**
+     * 上書きした名称を取得する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return 名称。上書きしていない場合はnull
+     */
+    String getName(String value, Locale locale) {
+        return get(names, value, locale);
+    }
+
+    /**
+     * 上書きした略称を取得する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return 略称。上書きしていない場合はnull
+     */
+    String getShortName(String value, Locale locale) {
+        return get(shortNames, value, locale);
+    }
+
+    /**
+     * 上書きしたオプション名称を取得する。
+     *
+     * @param value コード値
+     * @param optionColumnName オプション名称のカラム名
+     * @param locale 言語
+     * @return オプション名称。上書きしていない場合はnull
+     */
+    String getOptionalName(String value, String optionColumnName, Locale locale) {
+        Map<Locale, Map<String, String>> column = optionalNames.get(optionColumnName);
+        return column == null ? null : get(column, value, locale);
+    }
+
+    /**
+     * 共通のコードのコード値のリストに、追加したコード値をマージする。
+     * <p/>
+     * マージ結果は共通のコードのコード値のリストを複製せず、共通のコードのリストと、
+     * パターンに含まれる追加したコード値のリストを連結して参照する変更不可能なリストとして返す。
+     * このため、テナントごとのメモリ使用量は追加したコード値の数にのみ比例する。
+     * マージ結果は共通のコードのコード値のリストごとに保持し、同じリストに対しては保持したマージ結果を返す。
+     *
+     * @param baseValues 共通のコードのコード値のリスト
+     * @param pattern パターン名(パターンを使用しない場合は空文字列)
+     * @param locale 言語
+     * @param baseCodeManager 共通のコードを提供する{@link CodeManager}
+     * @return マージしたコード値のリスト
+     */
+    List<String> merge(List<String> baseValues, String pattern, Locale locale, CodeManager baseCodeManager) {
+        List<String> added = addedValuesByLocale.get(locale);
+        if (added == null) {
+            return baseValues;
+        }
+        ConcurrentMap<String, MergedValues> localized = mergedValues.get(locale);
+        if (localized == null) {
+            mergedValues.putIfAbsent(locale, new ConcurrentHashMap<String, MergedValues>());
+            localized = mergedValues.get(locale);
+        }
+        MergedValues merged = localized.get(pattern);
+        if (merged == null || merged.baseValues != baseValues) {
+            merged = new MergedValues(baseValues,
+                    new MergedList(baseValues, filterAddedValues(added, pattern, baseCodeManager)));
+            localized.put(pattern, merged);
+        }
+        return merged.values;
+    }
+
+    /**
+     * 追加したコード値のうち、共通のコードに存在せず、パターンに含まれるものを取得する。
+     * <p/>
+     * 共通のコードに存在するかは、共通のコードを提供する{@link CodeManager}で判定する。
+     *
+     * @param added 言語に対応する追加したコード値のリスト
+     * @param pattern パターン名(パターンを使用しない場合は空文字列)
+     * @param baseCodeManager 共通のコードを提供する{@link CodeManager}
+     * @return 共通のコードのコード値の後ろに連結するコード値のリスト
+     */
+    private List<String> filterAddedValues(List<String> added, String pattern, CodeManager baseCodeManager) {
+        List<String> result = new ArrayList<String>(added.size());
+        for (String value : added) {
+            if (!baseCodeManager.contains(codeId, value)
+                    && (pattern.length() == 0 || containsAddedValue(pattern, value))) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 共通のコードのコード値のリストと、追加したコード値のリストを連結して参照する変更不可能なリスト。
+     */
+    private static final class MergedList extends AbstractList<String> implements RandomAccess {
+
+        /** 共通のコードのコード値のリスト */
+        private final List<String> baseValues;
+
+        /** 後ろに連結するコード値のリスト */
+        private final List<String> addedValues;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param baseValues 共通のコードのコード値のリスト
+         * @param addedValues 後ろに連結するコード値のリスト
+         */
+        private MergedList(List<String> baseValues, List<String> addedValues) {
+            this.baseValues = baseValues;
+            this.addedValues = addedValues;
+        }
+
+        @Override
+        public String get(int index) {
+            int baseSize = baseValues.size();
+            return index < baseSize ? baseValues.get(index) : addedValues.get(index - baseSize);
+        }
+
+        @Override
+        public int size() {
+            return baseValues.size() + addedValues.size();
+        }
+    }
+
+    /**
+     * 共通のコードのコード値のリストと、マージ結果の組み合わせ。
+     */
+    private static final class MergedValues {
+
+        /** 共通のコードのコード値のリスト */
+        private final List<String> baseValues;
+
+        /** マージしたコード値のリスト */
+        private final List<String> values;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param baseValues 共通のコードのコード値のリスト
+         * @param values マージしたコード値のリスト
+         */
+        private MergedValues(List<String> baseValues, List<String> values) {
+            this.baseValues = baseValues;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package nablarch.common.code;
+
+import java.util.BitSet;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 複数のパターンを論理演算で組み合わせた条件式。
+ * <p/>
+ * 条件式は以下の演算子で記述する。演算子の優先順位は、否定、論理積、論理和の順に高い。
+ * <ul>
+ *     <li>{@code |} : 論理和(いずれかのパターンに含まれる)</li>
+ *     <li>{@code &} : 論理積(全てのパターンに含まれる)</li>
+ *     <li>{@code !} : 否定(パターンに含まれない)</li>
+ *     <li>{@code ( )} : 優先順位の変更</li>
+ * </ul>
+ * <pre>
+ *     {@code CodePatternExpression.parse("PATTERN1 | PATTERN3")}
+ *     {@code CodePatternExpression.parse("PATTERN2 & !PATTERN4")}
+ * </pre>
+ * 条件式は解析済みの状態で保持し、コードごとに評価した結果はビットセットとしてキャッシュされる。
+ * このため、同じ条件式を繰り返し使用する場合は、解析したインスタンスを定数として保持して使い回すこと。
+ *
+ * @see BasicCodeManager#contains(String, CodePatternExpression, String)
+ * @see BasicCodeManager#getValues(String, CodePatternExpression, java.util.Locale)
+ */
+@Published
+public final class CodePatternExpression {
+
+    /** 条件式の文字列表現 */
+    private final String expression;
+
+    /** 解析した条件式 */
+    private final Node root;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param expression 条件式の文字列表現
+     * @param root 解析した条件式
+     */
+    private CodePatternExpression(String expression, Node root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * 条件式を解析する。
+     *
+     * @param expression 条件式
+     * @return 解析した条件式
+     * @throws IllegalArgumentException 条件式の構文が正しくない場合
+     */
+    public static CodePatternExpression parse(String expression) throws IllegalArgumentException {
+        if (expression == null) {
+            throw new IllegalArgumentException("pattern expression must not be null.");
+        }
+        Parser parser = new Parser(expression);
+        Node root = parser.parseOr();
+        parser.skipWhitespace();
+        if (!parser.isEnd()) {
+            throw parser.syntaxError();
+        }
+        return new CodePatternExpression(root.toString(), root);
+    }
+
+    /**
+     * いずれかのパターンに含まれることを表す条件式を生成する。
+     *
+     * @param patterns 使用するパターンのカラム名
+     * @return 生成した条件式
+     * @throws IllegalArgumentException パターンが指定されていない場合
+     */
+    public static CodePatternExpression anyOf(String... patterns) throws IllegalArgumentException {
+        return join(patterns, '|');
+    }
+
+    /**
+     * 全てのパターンに含まれることを表す条件式を生成する。
+     *
+     * @param patterns 使用するパターンのカラム名
+     * @return 生成した条件式
+     * @throws IllegalArgumentException パターンが指定されていない場合
+     */
+    public static CodePatternExpression allOf(String... patterns) throws IllegalArgumentException {
+        return join(patterns, '&');
+    }
+
+    /**
+     * パターンを演算子で連結した条件式を生成する。
+     *
+     * @param patterns 使用するパターンのカラム名
+     * @param operator 演算子
+     * @return 生成した条件式
+     * @throws IllegalArgumentException パターンが指定されていない場合
+     */
+    private static CodePatternExpression join(String[] patterns, char operator) throws IllegalArgumentException {
+        if (patterns == null || patterns.length == 0) {
+            throw new IllegalArgumentException("patterns must not be empty.");
+        }
+        Node root = null;
+        for (String pattern : patterns) {
+            Node node = new PatternNode(pattern);
+            root = root == null ? node : new BinaryNode(operator, root, node);
+        }
+        return new CodePatternExpression(root.toString(), root);
+    }
+
+    /**
+     * 条件式を評価する。
+     *
+     * @param index 評価対象のデータ
+     * @return 条件式を満たすコード値の位置
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    BitSet evaluate(LocalizedCodeIndex index) throws IllegalArgumentException {
+        return root.evaluate(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o
+                || (o instanceof CodePatternExpression && expression.equals(((CodePatternExpression) o).expression));
+    }
+
+    @Override
+    public int hashCode() {
+        return expression.hashCode();
+    }
+
+    /**
+     * 条件式の文字列表現を取得する。
+     *
+     * @return 条件式の文字列表現(括弧により評価順を明示したもの)
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * 解析した条件式の要素。
+     */
+    private interface Node {
+
+        /**
+         * 要素を評価する。
+         *
+         * @param index 評価対象のデータ
+         * @return 要素を満たすコード値の位置(呼び出し元で変更してよい新しいインスタンス)
+         */
+        BitSet evaluate(LocalizedCodeIndex index);
+    }
+
+    /**
+     * パターンを表す要素。
+     */
+    private static final class PatternNode implements Node {
+
+        /** 使用するパターンのカラム名 */
+        private final String pattern;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param pattern 使用するパターンのカラム名
+         */
+        private PatternNode(String pattern) {
+            if (pattern == null || pattern.length() == 0) {
+                throw new IllegalArgumentException("pattern must not be empty.");
+            }
+            this.pattern = pattern;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public BitSet evaluate(LocalizedCodeIndex index) {
+            return (BitSet) index.getPatternPositions(pattern).clone();
+        }
+
+        @Override
+        public String toString() {
+            return pattern;
+        }
+    }
+
+    /**
+     * 否定を表す要素。
+     */
+    private static final class NotNode implements Node {
+
+        /** 否定する要素 */
+        private final Node operand;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param operand 否定する要素
+         */
+        private NotNode(Node operand) {
+            this.operand = operand;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public BitSet evaluate(LocalizedCodeIndex index) {
+            BitSet result = operand.evaluate(index);
+            result.flip(0, index.getValues().size());
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "!" + operand;
+        }
+    }
+
+    /**
+     * 論理和または論理積を表す要素。
+     */
+    private static final class BinaryNode implements Node {
+
+        /** 演算子 */
+        private final char operator;
+
+        /** 左辺 */
+        private final Node left;
+
+        /** 右辺 */
+        private final Node right;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param operator 演算子
+         * @param left 左辺
+         * @param right 右辺
+         */
+        private BinaryNode(char operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public BitSet evaluate(LocalizedCodeIndex index) {
+            BitSet result = left.evaluate(index);
+            if (operator == '|') {
+                result.or(right.evaluate(index));
+            } else {
+                result.and(right.evaluate(index));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator + " " + right + ")";
+        }
+    }
+
+    /**
+     * 条件式の構文解析を行うクラス。
+     */
+    private static final class Parser {
+
+        /** 条件式 */
+        private final String source;
+
+        /** 解析中の位置 */
+        private int position;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param source 条件式
+         */
+        private Parser(String source) {
+            this.source = source;
+        }
+
+        /**
+         * 論理和を解析する。
+         *
+         * @return 解析した要素
+         */
+        private Node parseOr() {
+            Node node = parseAnd();
+            while (consume('|')) {
+                node = new BinaryNode('|', node, parseAnd());
+            }
+            return node;
+        }
+
+        /**
+         * 論理積を解析する。
+         *
+         * @return 解析した要素
+         */
+        private Node parseAnd() {
+            Node node = parseUnary();
+            while (consume('&')) {
+                node = new BinaryNode('&', node, parseUnary());
+            }
+            return node;
+        }
+
+        /**
+         * 否定、括弧、パターンを解析する。
+         *
+         * @return 解析した要素
+         */
+        private Node parseUnary() {
+            if (consume('!')) {
+                return new NotNode(parseUnary());
+            }
+            if (consume('(')) {
+                Node node = parseOr();
+                if (!consume(')')) {
+                    throw syntaxError();
+                }
+                return node;
+            }
+            skipWhitespace();
+            int begin = position;
+            while (!isEnd() && isPatternChar(source.charAt(position))) {
+                position++;
+            }
+            if (begin == position) {
+                throw syntaxError();
+            }
+            return new PatternNode(source.substring(begin, position));
+        }
+
+        /**
+         * 空白を読み飛ばした後、指定された文字であれば読み進める。
+         *
+         * @param c 文字
+         * @return 指定された文字であった場合true
+         */
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (!isEnd() && source.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 空白を読み飛ばす。
+         */
+        private void skipWhitespace() {
+            while (!isEnd() && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+        }
+
+        /**
+         * 末尾まで解析したか否かを判定する。
+         *
+         * @return 末尾まで解析した場合true
+         */
+        private boolean isEnd() {
+            return position >= source.length();
+        }
+
+        /**
+         * パターンのカラム名に使用できる文字か否かを判定する。
+         *
+         * @param c 文字
+         * @return パターンのカラム名に使用できる文字の場合true
+         */
+        private static boolean isPatternChar(char c) {
+            return c != '|' && c != '&' && c != '!' && c != '(' && c != ')' && !Character.isWhitespace(c);
+        }
+
+        /**
+         * 構文エラーを表す例外を生成する。
+         *
+         * @return 構文エラーを表す例外
+         */
+        private IllegalArgumentException syntaxError() {
+            return new IllegalArgumentException("invalid pattern expression."
+                    + " expression = " + source + ", position = " + position);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package nablarch.common.code;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import nablarch.core.cache.StaticDataCache;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * マーカーファイルの更新を検知して、コードのキャッシュを再読み込みするクラス。
+ * <p/>
+ * 複数のノードから参照できる共有ファイルシステム上のマーカーファイルを更新することで、
+ * 各ノードのコードのキャッシュを再読み込みできる。
+ * <p/>
+ * マーカーファイルには、再読み込みするコードIDを1行に1つ記述する。
+ * 空行および"#"で始まる行は無視する。コードIDが1つも記述されていない場合は、全てのコードを再読み込みする。
+ * コードIDごとの再読み込みは、キャッシュが{@link AsyncCodeDefinitionCache}の場合のみ行う。
+ * その他のキャッシュでは、コードIDが記述されていても全てのコードを再読み込みする。
+ * <p/>
+ * 短時間にマーカーファイルが複数回更新された場合に再読み込みが繰り返されないよう、
+ * 最後の更新から{@link #setDebounceInterval(long)}で指定した時間が経過した時点で1回だけ再読み込みを行う。
+ * <p/>
+ * 更新の検知は、{@link #setPollingInterval(long)}で指定した間隔でマーカーファイルの最終更新日時とサイズを確認して行う。
+ * 確認はデーモンスレッドで行い、{@link #initialize()}で開始、{@link #stop()}で停止する。
+ */
+@Published(tag = "architect")
+public class CodeReloadFileWatcher implements Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(CodeReloadFileWatcher.class);
+
+    /** マーカーファイルの文字コード */
+    private static final String MARKER_ENCODING = "UTF-8";
+
+    /** 再読み込みするコードのキャッシュ */
+    private StaticDataCache<Code> codeDefinitionCache;
+
+    /** マーカーファイル */
+    private File markerFile;
+
+    /** マーカーファイルを確認する間隔(ミリ秒) */
+    private long pollingInterval = 1000L;
+
+    /** 最後の更新から再読み込みを行うまでの時間(ミリ秒) */
+    private long debounceInterval = 500L;
+
+    /** マーカーファイルを確認するスレッド */
+    private ScheduledExecutorService scheduler;
+
+    /** 最後に確認したマーカーファイルの状態 */
+    private String lastState;
+
+    /** 再読み込みを保留している更新を検知した時刻(保留していない場合は-1) */
+    private long pendingSince = -1L;
+
+    /**
+     * 再読み込みするコードのキャッシュを設定する。
+     *
+     * @param codeDefinitionCache 再読み込みするコードのキャッシュ
+     */
+    public void setCodeDefinitionCache(StaticDataCache<Code> codeDefinitionCache) {
+        this.codeDefinitionCache = codeDefinitionCache;
+    }
+
+    /**
+     * マーカーファイルのパスを設定する。
+     *
+     * @param markerFilePath マーカーファイルのパス
+     */
+    public void setMarkerFilePath(String markerFilePath) {
+        markerFile = new File(markerFilePath);
+    }
+
+    /**
+     * マーカーファイルを確認する間隔(ミリ秒)を設定する。(デフォルトは1000)
+     *
+     * @param pollingInterval マーカーファイルを確認する間隔(ミリ秒)
+     */
+    public void setPollingInterval(long pollingInterval) {
+        this.pollingInterval = pollingInterval;
+    }
+
+    /**
+     * 最後の更新から再読み込みを行うまでの時間(ミリ秒)を設定する。(デフォルトは500)
+     *
+     * @param debounceInterval 最後の更新から再読み込みを行うまでの時間(ミリ秒)
+     */
+    public void setDebounceInterval(long debounceInterval) {
+        this.debounceInterval = debounceInterval;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 現在のマーカーファイルの状態を記録し、マーカーファイルの確認を開始する。
+     *
+     * @throws IllegalStateException キャッシュまたはマーカーファイルが設定されていない場合
+     */
+    public synchronized void initialize() throws IllegalStateException {
+        if (codeDefinitionCache == null || markerFile == null) {
+            throw new IllegalStateException("codeDefinitionCache and markerFilePath must be set.");
+        }
+        if (scheduler != null) {
+            return;
+        }
+        lastState = readState();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "code-reload-file-watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    poll(System.currentTimeMillis());
+                } catch (RuntimeException e) {
+                    LOGGER.logWarn("failed to reload codes. marker file = " + markerFile, e);
+                }
+            }
+        }, pollingInterval, pollingInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * マーカーファイルの確認を停止する。
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * マーカーファイルを確認し、必要に応じて再読み込みを行う。
+     *
+     * @param now 現在時刻(ミリ秒)
+     * @return 再読み込みを行った場合true
+     */
+    synchronized boolean poll(long now) {
+        String state = readState();
+        if (!state.equals(lastState)) {
+            lastState = state;
+            pendingSince = now;
+            return false;
+        }
+        if (pendingSince < 0 || now - pendingSince < debounceInterval) {
+            return false;
+        }
+        pendingSince = -1L;
+        reload(readCodeIds());
+        return true;
+    }
+
+    /**
+     * コードのキャッシュを再読み込みする。
+     *
+     * @param codeIds 再読み込みするコードID(全て再読み込みする場合は空のリスト)
+     */
+    private void reload(List<String> codeIds) {
+        if (!codeIds.isEmpty() && codeDefinitionCache instanceof AsyncCodeDefinitionCache) {
+            AsyncCodeDefinitionCache cache = (AsyncCodeDefinitionCache) codeDefinitionCache;
+            for (String codeId : codeIds) {
+                cache.refresh(codeId);
+            }
+        } else {
+            codeDefinitionCache.refresh();
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.logInfo("codes were reloaded. code ids = " + (codeIds.isEmpty() ? "(all)" : codeIds.toString()));
+        }
+    }
+
+    /**
+     * マーカーファイルの状態(最終更新日時とサイズ)を取得する。
+     *
+     * @return マーカーファイルの状態。ファイルが存在しない場合は空文字列
+     */
+    private String readState() {
+        if (!markerFile.exists()) {
+            return "";
+        }
+        return markerFile.lastModified() + ":" + markerFile.length();
+    }
+
+    /**
+     * マーカーファイルに記述されたコードIDを読み込む。
+     *
+     * @return コードIDのリスト。ファイルが存在しないか読み込めない場合は空のリスト
+     */
+    private List<String> readCodeIds() {
+        List<String> codeIds = new ArrayList<String>();
+        if (!markerFile.exists()) {
+            return codeIds;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(markerFile), MARKER_ENCODING));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String codeId = line.trim();
+                if (codeId.length() > 0 && !codeId.startsWith("#")) {
+                    codeIds.add(codeId);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.logWarn("failed to read marker file. all codes will be reloaded. marker file = " + markerFile, e);
+            codeIds.clear();
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // 読み込み済みのため無視する
+                }
+            }
+        }
+        return codeIds;
+    }
+}
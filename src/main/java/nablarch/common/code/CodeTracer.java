@@ -0,0 +1,118 @@
+package nablarch.common.code;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コードの検索、読み込み、バリデーションに要した時間をデバッグログに出力するクラス。
+ * <p/>
+ * p99レイテンシの悪化時などに、コードの処理が関係しているかを調査するために使用する。
+ * ログは本クラスのロガーにデバッグレベルで出力するため、本クラスのロガーのレベルをDEBUGにすることで出力できる。
+ * 以下に出力例を示す。
+ * <pre>
+ * code trace. event = lookup, elapsed(us) = 12, code id = 0001
+ * code trace. event = reload, elapsed(us) = 35421, code ids = (all), loaded codes = 120
+ * </pre>
+ * 検索のように頻繁に呼び出される処理は、サンプリング間隔を指定して生成した本クラスを使用し、
+ * 指定した回数に1回だけ時間を計測する。サンプリング間隔に0以下を指定した場合は計測しない。
+ * サンプリングの対象外となった呼び出しでは、カウンタの加算のみを行う。
+ * <pre>
+ * {@code
+ * long start = tracer.start();
+ * // 計測対象の処理
+ * if (start != CodeTracer.NOT_SAMPLED) {
+ *     tracer.end(start, "code id = " + codeId);
+ * }
+ * }
+ * </pre>
+ * サンプリングのカウンタはスレッドごとに保持するため、複数のスレッドから呼び出してもカウンタの更新は競合しない。
+ * サンプリング間隔は、スレッドごとの呼び出し回数に対して適用する。
+ */
+@Published(tag = "architect")
+public final class CodeTracer {
+
+    /** 計測の対象外であることを表す開始時刻 */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(CodeTracer.class);
+
+    /** イベント名 */
+    private final String event;
+
+    /** サンプリング間隔 */
+    private final int samplingInterval;
+
+    /** スレッドごとの、前回の計測以降の呼び出し回数のカウンタ */
+    private final ThreadLocal<int[]> counts = new ThreadLocal<int[]>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param event イベント名
+     * @param samplingInterval サンプリング間隔(0以下の場合は計測しない)
+     */
+    public CodeTracer(String event, int samplingInterval) {
+        this.event = event;
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * 計測を開始する。
+     *
+     * @return 開始時刻(ナノ秒)。計測の対象外の場合は{@link #NOT_SAMPLED}
+     */
+    public long start() {
+        if (samplingInterval <= 0) {
+            return NOT_SAMPLED;
+        }
+        int[] count = counts.get();
+        if (count == null) {
+            count = new int[1];
+            counts.set(count);
+        }
+        if (++count[0] < samplingInterval) {
+            return NOT_SAMPLED;
+        }
+        count[0] = 0;
+        return isEnabled() ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * 計測を終了し、経過時間をログに出力する。
+     *
+     * @param start {@link #start()}が返却した開始時刻
+     * @param detail ログに出力する詳細情報
+     */
+    public void end(long start, String detail) {
+        if (start != NOT_SAMPLED) {
+            trace(event, System.nanoTime() - start, detail);
+        }
+    }
+
+    /**
+     * 時間の計測を行うか否かを判定する。
+     *
+     * @return 本クラスのロガーでデバッグレベルのログを出力する場合true
+     */
+    public static boolean isEnabled() {
+        return LOGGER.isDebugEnabled();
+    }
+
+    /**
+     * 経過時間をログに出力する。
+     * <p/>
+     * 呼び出し元は、{@link #isEnabled()}がtrueの場合にのみ、時間を計測して本メソッドを呼び出すこと。
+     *
+     * @param event イベント名
+     * @param elapsedNanos 経過時間(ナノ秒)
+     * @param detail ログに出力する詳細情報
+     */
+    public static void trace(String event, long elapsedNanos, String detail) {
+        LOGGER.logDebug("code trace."
+                + " event = " + event
+                + ", elapsed(us) = " + elapsedNanos / 1000L
+                + ", " + detail);
+    }
+}
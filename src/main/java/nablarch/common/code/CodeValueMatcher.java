@@ -0,0 +1,24 @@
+package nablarch.common.code;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コード値が、特定のコード(及びパターン)に含まれるか判定するインタフェース。
+ * <p/>
+ * 本インタフェースの実装は、取得した時点で読み込まれているコードに対して判定を行う。
+ * 判定のたびにコードを検索しないため、大量の値を続けて判定する用途に適している。
+ * コードの再読み込みを反映する場合は、再度取得し直すこと。
+ *
+ * @see BasicCodeManager#getMatcher(String, String)
+ */
+@Published(tag = "architect")
+public interface CodeValueMatcher {
+
+    /**
+     * コード値がコード(及びパターン)に含まれるか判定する。
+     *
+     * @param value コード値
+     * @return コード値が含まれる場合true
+     */
+    boolean matches(String value);
+}
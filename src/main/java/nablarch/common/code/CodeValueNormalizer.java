@@ -0,0 +1,30 @@
+package nablarch.common.code;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コード値の照合時に、入力値の表記揺れ(全角・半角、大文字・小文字、前後の空白など)を吸収するためのインタフェース。
+ * <p/>
+ * 照合は入力値の文字単位で行われ、照合のために新たな文字列は生成されない。
+ * このため、本インタフェースの実装は文字単位の変換規則のみを定義する。
+ * @see BasicCodeManager#setValueNormalizers(java.util.Map)
+ */
+@Published(tag = "architect")
+public interface CodeValueNormalizer {
+
+    /**
+     * 入力値の前後から取り除く文字か否かを判定する。
+     *
+     * @param c 判定対象の文字
+     * @return 取り除く文字の場合true
+     */
+    boolean isIgnorable(char c);
+
+    /**
+     * 文字を正規化する。
+     *
+     * @param c 正規化対象の文字
+     * @return 正規化後の文字
+     */
+    char normalize(char c);
+}
@@ -0,0 +1,208 @@
+package nablarch.common.code;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import nablarch.common.code.validator.CodeValueValidator;
+import nablarch.core.cache.StaticDataLoader;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+import nablarch.core.util.I18NUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 起動時にコードを読み込み、コードの取得処理をウォームアップするクラス。
+ * <p/>
+ * 初期化時に、対象のコードを{@link BasicCodeManager}経由で読み込み、言語ごとの検索用データを生成した上で、
+ * コード値の判定、名称の取得、コード値の一覧の取得を{@link #setIterations(int)}で指定した回数繰り返す。
+ * バリデータ({@link nablarch.common.code.validator.CodeValueValidator}など)が行うコード値の判定と、
+ * エラーメッセージに埋め込むコード値の一覧の取得も、この処理でウォームアップされる。
+ * {@link #setCodeValueValidator(CodeValueValidator)}を設定した場合は、
+ * エラーメッセージに埋め込むコード値の文字列も対象と言語ごとに事前に生成する。
+ * <p/>
+ * 対象は{@link #setTargets(List)}に"コードID"または"コードID:パターン"の形式で指定する。
+ * 指定しない場合は、{@link #setCodeLoader(StaticDataLoader)}で設定したローダから全てのコードを読み込み、
+ * 全てのコードIDを対象とする。
+ * <p/>
+ * 初期化の順序は{@link BasicCodeManager}が使用するキャッシュの後になるように設定すること。
+ */
+@Published(tag = "architect")
+public class CodeWarmUp implements Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(CodeWarmUp.class);
+
+    /** コードIDとパターンの区切り文字 */
+    private static final String PATTERN_SEPARATOR = ":";
+
+    /** ウォームアップするコードマネージャ */
+    private BasicCodeManager codeManager;
+
+    /** 対象のコードIDを取得するローダ */
+    private StaticDataLoader<Code> codeLoader;
+
+    /** 対象("コードID"または"コードID:パターン") */
+    private List<String> targets;
+
+    /** 対象の言語 */
+    private List<Locale> locales;
+
+    /** 繰り返し回数 */
+    private int iterations = 100;
+
+    /** エラーメッセージを事前に生成するバリデータ */
+    private CodeValueValidator codeValueValidator;
+
+    /**
+     * ウォームアップするコードマネージャを設定する。
+     *
+     * @param codeManager ウォームアップするコードマネージャ
+     */
+    public void setCodeManager(BasicCodeManager codeManager) {
+        this.codeManager = codeManager;
+    }
+
+    /**
+     * 対象が指定されていない場合に、対象のコードIDを取得するローダを設定する。
+     *
+     * @param codeLoader 対象のコードIDを取得するローダ
+     */
+    public void setCodeLoader(StaticDataLoader<Code> codeLoader) {
+        this.codeLoader = codeLoader;
+    }
+
+    /**
+     * 対象を設定する。
+     * <p/>
+     * "コードID"または"コードID:パターン"の形式で指定する。
+     *
+     * @param targets 対象
+     */
+    public void setTargets(List<String> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * 対象の言語を設定する。(デフォルトは{@link nablarch.core.ThreadContext}で指定された言語)
+     *
+     * @param languages 対象の言語(例: "ja", "en")
+     */
+    public void setLanguages(List<String> languages) {
+        List<Locale> result = new ArrayList<Locale>(languages.size());
+        for (String language : languages) {
+            result.add(I18NUtil.createLocale(language));
+        }
+        locales = result;
+    }
+
+    /**
+     * 繰り返し回数を設定する。(デフォルトは100)
+     *
+     * @param iterations 繰り返し回数
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * エラーメッセージに埋め込むコード値の文字列を事前に生成するバリデータを設定する。
+     *
+     * @param codeValueValidator エラーメッセージを事前に生成するバリデータ
+     */
+    public void setCodeValueValidator(CodeValueValidator codeValueValidator) {
+        this.codeValueValidator = codeValueValidator;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 対象のコードを読み込み、コードの取得処理をウォームアップする。
+     *
+     * @throws IllegalStateException コードマネージャが設定されていない場合、
+     *                               または対象とローダのいずれも設定されていない場合
+     * @throws IllegalArgumentException 対象のコードID、パターン、言語が存在しない場合
+     */
+    public void initialize() throws IllegalStateException, IllegalArgumentException {
+        if (codeManager == null) {
+            throw new IllegalStateException("codeManager must be set.");
+        }
+        long start = System.currentTimeMillis();
+        List<String> resolved = resolveTargets();
+        List<Locale> languages = locales != null
+                ? locales
+                : Collections.singletonList(BasicCodeManager.getLanguage());
+        for (String target : resolved) {
+            int separator = target.indexOf(PATTERN_SEPARATOR);
+            String codeId = separator < 0 ? target : target.substring(0, separator);
+            String pattern = separator < 0 ? null : target.substring(separator + 1);
+            for (Locale locale : languages) {
+                warmUp(codeId, pattern, locale);
+            }
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.logInfo("code warm-up completed. targets = " + resolved.size()
+                    + ", languages = " + languages
+                    + ", iterations = " + iterations
+                    + ", elapsed = " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    /**
+     * 対象を取得する。
+     *
+     * @return 対象
+     * @throws IllegalStateException 対象とローダのいずれも設定されていない場合
+     */
+    private List<String> resolveTargets() throws IllegalStateException {
+        if (targets != null) {
+            return targets;
+        }
+        if (codeLoader == null) {
+            throw new IllegalStateException("targets or codeLoader must be set.");
+        }
+        List<String> codeIds = new ArrayList<String>();
+        for (Code code : codeLoader.loadAll()) {
+            codeIds.add(String.valueOf(codeLoader.getId(code)));
+        }
+        return codeIds;
+    }
+
+    /**
+     * コードの取得処理をウォームアップする。
+     *
+     * @param codeId コードID
+     * @param pattern パターン(パターンを使用しない場合はnull)
+     * @param locale 言語
+     * @throws IllegalArgumentException コードID、パターン、言語が存在しない場合
+     */
+    private void warmUp(String codeId, String pattern, Locale locale) throws IllegalArgumentException {
+        List<String> values = pattern == null
+                ? codeManager.getValues(codeId, locale)
+                : codeManager.getValues(codeId, pattern, locale);
+        if (codeManager.hasValidityColumns()) {
+            codeManager.getValues(codeId, pattern, locale, new Date());
+        }
+        for (int i = 0; i < iterations; i++) {
+            for (String value : values) {
+                if (pattern == null) {
+                    codeManager.contains(codeId, value);
+                } else {
+                    codeManager.contains(codeId, pattern, value);
+                }
+                codeManager.getName(codeId, value, locale);
+            }
+            if (pattern == null) {
+                codeManager.getValues(codeId, locale);
+            } else {
+                codeManager.getValues(codeId, pattern, locale);
+            }
+        }
+        if (codeValueValidator != null) {
+            codeValueValidator.prepareMessage(codeId, pattern, locale, codeManager);
+        }
+    }
+}
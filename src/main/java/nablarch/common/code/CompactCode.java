@@ -0,0 +1,391 @@
+package nablarch.common.code;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 配列を使用してコンパクトにデータを保持する{@link Code}の実装クラス。
+ * <p/>
+ * コード値はコードID内で1つの配列に保持し、名称、略称、オプション名称は言語ごとにコード値の位置に対応する配列で保持する。
+ * パターンはコード値の位置の{@link BitSet}で保持し、パターンごと、言語ごとのコード値のリストは生成時に構築する。
+ * <p/>
+ * 生成後は変更されないため、スレッドセーフである。
+ */
+@Published(tag = "architect")
+public final class CompactCode implements Code {
+
+    /** パターンに含まれることを表す値 */
+    private static final String PATTERN_INCLUDED = "1";
+
+    /** コードID */
+    private final String codeId;
+
+    /** コード値 */
+    private final String[] values;
+
+    /** コード値と位置のMap */
+    private final Map<String, Integer> positions;
+
+    /** パターンのカラム名と、パターンに含まれるコード値の位置のMap */
+    private final Map<String, BitSet> patterns;
+
+    /** オプション名称のカラム名と、カラムの位置のMap */
+    private final Map<String, Integer> optionColumns;
+
+    /** 言語と言語ごとのデータのMap */
+    private final Map<Locale, LocalizedValues> localizedValues;
+
+    /**
+     * コンストラクタ。
+     * <p/>
+     * 名称が1つも存在しないコード値は、コードに含めない。
+     *
+     * @param codeId コードID
+     * @param patternColumnNames パターンのカラム名
+     * @param optionColumnNames オプション名称のカラム名
+     * @param patternRows パターンの行
+     * @param nameRows 名称の行
+     * @throws IllegalArgumentException 同じコード値のパターンの行、または同じコード値・言語の名称の行が複数存在する場合
+     */
+    CompactCode(String codeId, String[] patternColumnNames, String[] optionColumnNames,
+            List<PatternRow> patternRows, List<NameRow> nameRows) throws IllegalArgumentException {
+        this.codeId = codeId;
+
+        Map<String, PatternRow> patternRowMap = new LinkedHashMap<String, PatternRow>();
+        for (PatternRow row : patternRows) {
+            if (patternRowMap.put(row.value, row) != null) {
+                throw new IllegalArgumentException("pattern row is duplicated."
+                        + " code id = " + codeId
+                        + ", value = " + row.value);
+            }
+        }
+        Map<Locale, List<NameRow>> nameRowMap = new LinkedHashMap<Locale, List<NameRow>>();
+        Map<String, Boolean> named = new HashMap<String, Boolean>();
+        for (NameRow row : nameRows) {
+            if (!patternRowMap.containsKey(row.value)) {
+                continue;
+            }
+            List<NameRow> rows = nameRowMap.get(row.locale);
+            if (rows == null) {
+                rows = new ArrayList<NameRow>();
+                nameRowMap.put(row.locale, rows);
+            }
+            rows.add(row);
+            named.put(row.value, Boolean.TRUE);
+        }
+
+        List<String> valueList = new ArrayList<String>(named.size());
+        positions = new HashMap<String, Integer>(named.size() * 2);
+        for (String value : patternRowMap.keySet()) {
+            if (named.containsKey(value)) {
+                positions.put(value, valueList.size());
+                valueList.add(value);
+            }
+        }
+        values = valueList.toArray(new String[valueList.size()]);
+
+        patterns = new HashMap<String, BitSet>(patternColumnNames.length * 2);
+        for (int i = 0; i < patternColumnNames.length; i++) {
+            BitSet included = new BitSet(values.length);
+            for (int position = 0; position < values.length; position++) {
+                if (PATTERN_INCLUDED.equals(patternRowMap.get(values[position]).flags[i])) {
+                    included.set(position);
+                }
+            }
+            patterns.put(patternColumnNames[i], included);
+        }
+
+        optionColumns = new HashMap<String, Integer>(optionColumnNames.length * 2);
+        for (int i = 0; i < optionColumnNames.length; i++) {
+            optionColumns.put(optionColumnNames[i], i);
+        }
+
+        localizedValues = new HashMap<Locale, LocalizedValues>(nameRowMap.size() * 2);
+        for (Map.Entry<Locale, List<NameRow>> entry : nameRowMap.entrySet()) {
+            localizedValues.put(entry.getKey(), new LocalizedValues(entry.getKey(), entry.getValue(),
+                    optionColumnNames.length));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getCodeId() {
+        return codeId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(String value) {
+        return positions.containsKey(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(String pattern, String value) throws IllegalArgumentException {
+        BitSet included = getPattern(pattern);
+        Integer position = positions.get(value);
+        return position != null && included.get(position);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<String> getValues(Locale locale) throws IllegalArgumentException {
+        return getLocalizedValues(locale).values;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<String> getValues(String pattern, Locale locale) throws IllegalArgumentException {
+        LocalizedValues localized = getLocalizedValues(locale);
+        List<String> result = localized.patternValues.get(pattern);
+        if (result == null) {
+            throw new IllegalArgumentException("pattern was not found. "
+                    + "code id = " + codeId
+                    + ", locale = " + locale
+                    + ", pattern = " + pattern);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getName(String value, Locale locale) throws IllegalArgumentException {
+        String name = get(getLocalizedValues(locale).names, value);
+        if (name == null) {
+            throw new IllegalArgumentException("name was not found. "
+                    + "code id = " + codeId
+                    + ", locale = " + locale
+                    + ", value = " + value);
+        }
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getShortName(String value, Locale locale) throws IllegalArgumentException {
+        String shortName = get(getLocalizedValues(locale).shortNames, value);
+        if (shortName == null) {
+            throw new IllegalArgumentException("short name was not found. "
+                    + "code id = " + codeId
+                    + ", locale = " + locale
+                    + ", value = " + value);
+        }
+        return shortName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getOptionalName(String value, String optionColumnName, Locale locale)
+            throws IllegalArgumentException {
+        LocalizedValues localized = getLocalizedValues(locale);
+        Integer column = optionColumns.get(optionColumnName);
+        String optionalName = column == null ? null : get(localized.optionalNames[column], value);
+        if (optionalName == null) {
+            throw new IllegalArgumentException("option name was not found. "
+                    + "code id = " + codeId
+                    + ", locale = " + locale
+                    + ", value = " + value
+                    + ", option name = " + optionColumnName);
+        }
+        return optionalName;
+    }
+
+    /**
+     * パターンに含まれるコード値の位置を取得する。
+     *
+     * @param pattern パターンのカラム名
+     * @return パターンに含まれるコード値の位置
+     * @throws IllegalArgumentException パターンが存在しない場合
+     */
+    private BitSet getPattern(String pattern) throws IllegalArgumentException {
+        BitSet included = patterns.get(pattern);
+        if (included == null) {
+            throw new IllegalArgumentException("pattern was not found. "
+                    + "code id = " + codeId
+                    + ", pattern = " + pattern);
+        }
+        return included;
+    }
+
+    /**
+     * 言語ごとのデータを取得する。
+     *
+     * @param locale 言語
+     * @return 言語ごとのデータ
+     * @throws IllegalArgumentException 言語に対応するデータが存在しない場合
+     */
+    private LocalizedValues getLocalizedValues(Locale locale) throws IllegalArgumentException {
+        LocalizedValues localized = localizedValues.get(locale);
+        if (localized == null) {
+            throw new IllegalArgumentException("locale was not found. "
+                    + "code id = " + codeId
+                    + ", locale = " + locale);
+        }
+        return localized;
+    }
+
+    /**
+     * コード値の位置に対応する要素を取得する。
+     *
+     * @param array コード値の位置に対応する配列
+     * @param value コード値
+     * @return 要素。コード値が存在しない場合はnull
+     */
+    private String get(String[] array, String value) {
+        Integer position = positions.get(value);
+        return position == null ? null : array[position];
+    }
+
+    /**
+     * 言語ごとのデータ。
+     */
+    private final class LocalizedValues {
+
+        /** コード値のリスト(ソート順) */
+        private final List<String> values;
+
+        /** パターンのカラム名と、パターンに含まれるコード値のリスト(ソート順)のMap */
+        private final Map<String, List<String>> patternValues;
+
+        /** 名称(コード値の位置に対応) */
+        private final String[] names;
+
+        /** 略称(コード値の位置に対応) */
+        private final String[] shortNames;
+
+        /** オプション名称(カラムの位置、コード値の位置に対応) */
+        private final String[][] optionalNames;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param locale 言語
+         * @param rows 名称の行
+         * @param optionColumnCount オプション名称のカラム数
+         * @throws IllegalArgumentException 同じコード値の名称の行が複数存在する場合
+         */
+        private LocalizedValues(Locale locale, List<NameRow> rows, int optionColumnCount)
+                throws IllegalArgumentException {
+            int size = CompactCode.this.values.length;
+            names = new String[size];
+            shortNames = new String[size];
+            optionalNames = new String[optionColumnCount][size];
+            List<NameRow> sorted = new ArrayList<NameRow>(rows);
+            Collections.sort(sorted, new Comparator<NameRow>() {
+                public int compare(NameRow o1, NameRow o2) {
+                    return o1.sortOrder < o2.sortOrder ? -1 : (o1.sortOrder == o2.sortOrder ? 0 : 1);
+                }
+            });
+            List<String> valueList = new ArrayList<String>(sorted.size());
+            for (NameRow row : sorted) {
+                int position = positions.get(row.value);
+                if (names[position] != null) {
+                    throw new IllegalArgumentException("name row is duplicated."
+                            + " code id = " + codeId
+                            + ", locale = " + locale
+                            + ", value = " + row.value);
+                }
+                names[position] = row.name;
+                shortNames[position] = row.shortName;
+                for (int i = 0; i < optionColumnCount; i++) {
+                    optionalNames[i][position] = row.optionalNames[i];
+                }
+                valueList.add(row.value);
+            }
+            values = Collections.unmodifiableList(valueList);
+            patternValues = new HashMap<String, List<String>>(patterns.size() * 2);
+            for (Map.Entry<String, BitSet> pattern : patterns.entrySet()) {
+                List<String> included = new ArrayList<String>();
+                for (String value : valueList) {
+                    if (pattern.getValue().get(positions.get(value))) {
+                        included.add(value);
+                    }
+                }
+                patternValues.put(pattern.getKey(), Collections.unmodifiableList(included));
+            }
+        }
+    }
+
+    /**
+     * パターンの行。
+     */
+    static final class PatternRow {
+
+        /** コード値 */
+        private final String value;
+
+        /** パターンのカラムの値("1"の場合にパターンに含まれる) */
+        private final String[] flags;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param value コード値
+         * @param flags パターンのカラムの値
+         */
+        PatternRow(String value, String[] flags) {
+            this.value = value;
+            this.flags = flags;
+        }
+    }
+
+    /**
+     * 名称の行。
+     */
+    static final class NameRow {
+
+        /** コード値 */
+        private final String value;
+
+        /** 言語 */
+        private final Locale locale;
+
+        /** ソート順 */
+        private final long sortOrder;
+
+        /** 名称 */
+        private final String name;
+
+        /** 略称 */
+        private final String shortName;
+
+        /** オプション名称 */
+        private final String[] optionalNames;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param value コード値
+         * @param locale 言語
+         * @param sortOrder ソート順
+         * @param name 名称
+         * @param shortName 略称
+         * @param optionalNames オプション名称
+         */
+        NameRow(String value, Locale locale, long sortOrder, String name, String shortName, String[] optionalNames) {
+            this.value = value;
+            this.locale = locale;
+            this.sortOrder = sortOrder;
+            this.name = name;
+            this.shortName = shortName;
+            this.optionalNames = optionalNames;
+        }
+    }
+}
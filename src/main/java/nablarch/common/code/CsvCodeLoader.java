@@ -0,0 +1,697 @@
+package nablarch.common.code;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import nablarch.core.cache.StaticDataLoader;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.repository.initialization.Initializable;
+import nablarch.core.util.I18NUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * CSVファイルからコードを読み込むクラス。
+ * <p/>
+ * コードパターンとコード名称を、それぞれ以下のヘッダ行を持つCSVファイルから読み込む。
+ * <pre>
+ * コードパターン: ID,VALUE,パターンのカラム名...
+ * コード名称    : ID,VALUE,LANG,SORT_ORDER,NAME,SHORT_NAME,オプション名称のカラム名...
+ * </pre>
+ * ダブルクォートで囲んだフィールドには、カンマおよびダブルクォート("")を含められる。改行は含められない。
+ * <p/>
+ * 初回の読み込み時に、ファイルを1回走査してコードIDごとの行の位置(バイトオフセット)のインデックスを作成する。
+ * {@link #getValue(Object)}はインデックスを使用して、指定したコードIDの行のみを読み込む。
+ * 同じコードIDの行がファイル内で連続している場合に、最も効率よく読み込める。
+ * ファイルの最終更新日時またはサイズが変わった場合は、次の読み込み時にインデックスを作成し直す。
+ * <p/>
+ * {@link #loadAll()}は、コードIDごとの読み込みを{@link #setParallelism(int)}で指定したスレッド数で並列に行う。
+ * 保持するのはインデックスと読み込んだコードのみであり、ファイル全体をメモリに読み込むことはない。
+ * <p/>
+ * 読み込んだコード値、名称、オプション名称などの文字列は、読み込み処理の単位で等しい文字列を1つのインスタンスにまとめる。
+ * まとめた文字列の数と削減したメモリ量の概算は、DEBUGレベルでログに出力する。
+ */
+@Published(tag = "architect")
+public class CsvCodeLoader implements StaticDataLoader<Code>, Initializable {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(CsvCodeLoader.class);
+
+    /** コードパターンのファイルの固定カラム */
+    private static final String[] PATTERN_HEADER = {"ID", "VALUE"};
+
+    /** コード名称のファイルの固定カラム */
+    private static final String[] NAME_HEADER = {"ID", "VALUE", "LANG", "SORT_ORDER", "NAME", "SHORT_NAME"};
+
+    /** コードパターンのファイル */
+    private File patternFile;
+
+    /** コード名称のファイル */
+    private File nameFile;
+
+    /** ファイルの文字コード */
+    private Charset charset = Charset.forName("UTF-8");
+
+    /** 全てのコードを読み込む際のスレッド数 */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /** 作成済みのインデックス */
+    private volatile CodeFiles codeFiles;
+
+    /**
+     * コードパターンのファイルのパスを設定する。
+     *
+     * @param patternFilePath コードパターンのファイルのパス
+     */
+    public void setPatternFilePath(String patternFilePath) {
+        patternFile = new File(patternFilePath);
+    }
+
+    /**
+     * コード名称のファイルのパスを設定する。
+     *
+     * @param nameFilePath コード名称のファイルのパス
+     */
+    public void setNameFilePath(String nameFilePath) {
+        nameFile = new File(nameFilePath);
+    }
+
+    /**
+     * ファイルの文字コードを設定する。(デフォルトはUTF-8)
+     *
+     * @param encoding ファイルの文字コード
+     */
+    public void setEncoding(String encoding) {
+        charset = Charset.forName(encoding);
+    }
+
+    /**
+     * 全てのコードを読み込む際のスレッド数を設定する。(デフォルトは利用可能なプロセッサ数)
+     * <p/>
+     * 1以下を設定した場合は、呼び出し元のスレッドで順に読み込む。
+     *
+     * @param parallelism 全てのコードを読み込む際のスレッド数
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * ファイルのインデックスを作成する。
+     */
+    public void initialize() {
+        getCodeFiles();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * インデックスを使用して、指定したコードIDの行のみを読み込む。
+     *
+     * @return コード。コードパターンのファイルにコードIDが存在しない場合はnull
+     */
+    public Code getValue(Object id) {
+        StringPool pool = new StringPool();
+        Code code = getCodeFiles().load(String.valueOf(id), pool);
+        logDeduplication(pool, "code id = " + id);
+        return code;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * インデックスはサポートしないため、常に空のリストを返す。
+     */
+    public List<Code> getValues(String indexName, Object key) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * コードパターンのファイルに出現する順に、全てのコードを読み込む。
+     */
+    public List<Code> loadAll() {
+        final CodeFiles files = getCodeFiles();
+        final StringPool pool = new StringPool();
+        List<String> codeIds = files.patterns.getCodeIds();
+        List<Code> result = new ArrayList<Code>(codeIds.size());
+        if (parallelism <= 1 || codeIds.size() <= 1) {
+            for (String codeId : codeIds) {
+                result.add(files.load(codeId, pool));
+            }
+            logDeduplication(pool, "code ids = " + codeIds.size());
+            return result;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, codeIds.size()),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "csv-code-loader");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            List<Future<Code>> futures = new ArrayList<Future<Code>>(codeIds.size());
+            for (final String codeId : codeIds) {
+                futures.add(executor.submit(new Callable<Code>() {
+                    public Code call() {
+                        return files.load(codeId, pool);
+                    }
+                }));
+            }
+            for (Future<Code> future : futures) {
+                result.add(future.get());
+            }
+            logDeduplication(pool, "code ids = " + codeIds.size());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while loading codes.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("failed to load codes.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * インデックスはサポートしないため、空のリストを返す。
+     */
+    public List<String> getIndexNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object getId(Code value) {
+        return value.getCodeId();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * インデックスはサポートしないため、常にnullを返す。
+     */
+    public Object generateIndexKey(String indexName, Code value) {
+        return null;
+    }
+
+    /**
+     * ファイルのインデックスを取得する。
+     * <p/>
+     * インデックスが未作成の場合、またはファイルが更新されている場合は、インデックスを作成する。
+     *
+     * @return ファイルのインデックス
+     * @throws IllegalStateException ファイルのパスが設定されていない場合
+     */
+    private CodeFiles getCodeFiles() throws IllegalStateException {
+        CodeFiles files = codeFiles;
+        if (files != null && !files.isModified()) {
+            return files;
+        }
+        synchronized (this) {
+            files = codeFiles;
+            if (files == null || files.isModified()) {
+                if (patternFile == null || nameFile == null) {
+                    throw new IllegalStateException("patternFilePath and nameFilePath must be set.");
+                }
+                files = new CodeFiles(CsvFile.scan(patternFile, charset, PATTERN_HEADER),
+                        CsvFile.scan(nameFile, charset, NAME_HEADER));
+                codeFiles = files;
+            }
+            return files;
+        }
+    }
+
+    /**
+     * 文字列をまとめた結果をログに出力する。
+     *
+     * @param pool 読み込みに使用した{@link StringPool}
+     * @param target 読み込み対象
+     */
+    private static void logDeduplication(StringPool pool, String target) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.logDebug("code strings were deduplicated. " + target
+                    + ", distinct strings = " + pool.size()
+                    + ", deduplicated strings = " + pool.getDeduplicated()
+                    + ", saved bytes (estimated) = " + pool.getSavedBytes());
+        }
+    }
+
+    /**
+     * CSVの1行をフィールドに分割する。
+     *
+     * @param line 行
+     * @return フィールド
+     */
+    static String[] parseLine(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    /**
+     * コードパターンとコード名称のファイルのインデックスの組み合わせ。
+     */
+    private static final class CodeFiles {
+
+        /** コードパターンのファイル */
+        private final CsvFile patterns;
+
+        /** コード名称のファイル */
+        private final CsvFile names;
+
+        /** パターンのカラム名 */
+        private final String[] patternColumnNames;
+
+        /** オプション名称のカラム名 */
+        private final String[] optionColumnNames;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param patterns コードパターンのファイル
+         * @param names コード名称のファイル
+         */
+        private CodeFiles(CsvFile patterns, CsvFile names) {
+            this.patterns = patterns;
+            this.names = names;
+            patternColumnNames = Arrays.copyOfRange(patterns.header, PATTERN_HEADER.length, patterns.header.length);
+            optionColumnNames = Arrays.copyOfRange(names.header, NAME_HEADER.length, names.header.length);
+        }
+
+        /**
+         * いずれかのファイルが更新されているか否か。
+         *
+         * @return 更新されている場合true
+         */
+        private boolean isModified() {
+            return patterns.isModified() || names.isModified();
+        }
+
+        /**
+         * コードを読み込む。
+         *
+         * @param codeId コードID
+         * @param pool 読み込んだ文字列をまとめる{@link StringPool}
+         * @return コード。コードパターンのファイルにコードIDが存在しない場合はnull
+         */
+        private Code load(String codeId, StringPool pool) {
+            List<String[]> patternLines = patterns.read(codeId, pool);
+            if (patternLines.isEmpty()) {
+                return null;
+            }
+            List<CompactCode.PatternRow> patternRows = new ArrayList<CompactCode.PatternRow>(patternLines.size());
+            for (String[] fields : patternLines) {
+                patternRows.add(new CompactCode.PatternRow(fields[1],
+                        Arrays.copyOfRange(fields, PATTERN_HEADER.length, fields.length)));
+            }
+            List<String[]> nameLines = names.read(codeId, pool);
+            List<CompactCode.NameRow> nameRows = new ArrayList<CompactCode.NameRow>(nameLines.size());
+            for (String[] fields : nameLines) {
+                long sortOrder;
+                try {
+                    sortOrder = Long.parseLong(fields[3].trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("sort order must be a number."
+                            + " file = " + names.file
+                            + ", code id = " + codeId
+                            + ", value = " + fields[1]
+                            + ", sort order = " + fields[3], e);
+                }
+                nameRows.add(new CompactCode.NameRow(fields[1], I18NUtil.createLocale(fields[2]), sortOrder,
+                        fields[4], fields[5], Arrays.copyOfRange(fields, NAME_HEADER.length, fields.length)));
+            }
+            return new CompactCode(codeId, patternColumnNames, optionColumnNames, patternRows, nameRows);
+        }
+    }
+
+    /**
+     * CSVファイルと、コードIDごとの行の位置のインデックス。
+     */
+    private static final class CsvFile {
+
+        /** 読み込みに使用するバッファのサイズ */
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        /** ファイル */
+        private final File file;
+
+        /** ファイルの文字コード */
+        private final Charset charset;
+
+        /** ヘッダ行のフィールド */
+        private final String[] header;
+
+        /** インデックス作成時のファイルの最終更新日時 */
+        private final long lastModified;
+
+        /** インデックス作成時のファイルのサイズ */
+        private final long length;
+
+        /** コードIDと行の位置のMap(ファイルに出現する順) */
+        private final Map<String, Segments> segments;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param file ファイル
+         * @param charset ファイルの文字コード
+         * @param header ヘッダ行のフィールド
+         * @param lastModified インデックス作成時のファイルの最終更新日時
+         * @param length インデックス作成時のファイルのサイズ
+         * @param segments コードIDと行の位置のMap
+         */
+        private CsvFile(File file, Charset charset, String[] header, long lastModified, long length,
+                Map<String, Segments> segments) {
+            this.file = file;
+            this.charset = charset;
+            this.header = header;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.segments = segments;
+        }
+
+        /**
+         * ファイルを走査して、インデックスを作成する。
+         *
+         * @param file ファイル
+         * @param charset ファイルの文字コード
+         * @param fixedHeader ヘッダ行の固定カラム
+         * @return インデックス
+         * @throws IllegalArgumentException ヘッダ行が不正な場合
+         * @throws IllegalStateException ファイルを読み込めない場合
+         */
+        private static CsvFile scan(File file, Charset charset, String[] fixedHeader)
+                throws IllegalArgumentException, IllegalStateException {
+            long lastModified = file.lastModified();
+            long length = file.length();
+            Map<String, Segments> segments = new LinkedHashMap<String, Segments>();
+            String[] header = null;
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                byte[] line = new byte[256];
+                int lineLength = 0;
+                String lastCodeId = null;
+                Segments lastSegments = null;
+                long offset = 0;
+                long lineStart = 0;
+                boolean eof = false;
+                while (!eof) {
+                    int read = in.read(buffer);
+                    eof = read < 0;
+                    int count = eof ? 1 : read;
+                    for (int i = 0; i < count; i++) {
+                        if (!eof && buffer[i] != '\n') {
+                            if (lineLength == line.length) {
+                                line = Arrays.copyOf(line, line.length * 2);
+                            }
+                            line[lineLength++] = buffer[i];
+                            offset++;
+                            continue;
+                        }
+                        long lineEnd = offset;
+                        if (!eof) {
+                            offset++;
+                        }
+                        if (header == null) {
+                            header = parseHeader(file, decode(line, lineLength, charset), fixedHeader);
+                        } else {
+                            String codeId = readCodeId(line, lineLength, charset);
+                            if (codeId == null) {
+                                // 空行は読み込み時に読み飛ばす
+                            } else if (codeId.equals(lastCodeId)) {
+                                lastSegments.extend(lineEnd);
+                            } else {
+                                Segments found = segments.get(codeId);
+                                if (found == null) {
+                                    found = new Segments();
+                                    segments.put(codeId, found);
+                                }
+                                found.add(lineStart, lineEnd);
+                                lastCodeId = codeId;
+                                lastSegments = found;
+                            }
+                        }
+                        lineLength = 0;
+                        lineStart = offset;
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to read code file. file = " + file, e);
+            } finally {
+                close(in);
+            }
+            return new CsvFile(file, charset, header, lastModified, length, segments);
+        }
+
+        /**
+         * ヘッダ行を解析する。
+         *
+         * @param file ファイル
+         * @param line ヘッダ行
+         * @param fixedHeader ヘッダ行の固定カラム
+         * @return ヘッダ行のフィールド
+         * @throws IllegalArgumentException ヘッダ行が固定カラムで始まっていない場合
+         */
+        private static String[] parseHeader(File file, String line, String[] fixedHeader)
+                throws IllegalArgumentException {
+            if (line.length() > 0 && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1);
+            }
+            String[] header = parseLine(line);
+            boolean valid = header.length >= fixedHeader.length;
+            for (int i = 0; valid && i < fixedHeader.length; i++) {
+                header[i] = header[i].trim();
+                valid = fixedHeader[i].equalsIgnoreCase(header[i]);
+            }
+            if (!valid) {
+                throw new IllegalArgumentException("invalid header line."
+                        + " file = " + file
+                        + ", expected = " + Arrays.toString(fixedHeader) + "..."
+                        + ", actual = " + Arrays.toString(header));
+            }
+            for (int i = fixedHeader.length; i < header.length; i++) {
+                header[i] = header[i].trim();
+            }
+            return header;
+        }
+
+        /**
+         * 行からコードIDを取得する。
+         * <p/>
+         * 先頭のフィールドがダブルクォートで囲まれていない場合は、先頭のフィールドのみを文字列に変換する。
+         *
+         * @param line 行のバイト列
+         * @param lineLength 行のバイト数
+         * @param charset ファイルの文字コード
+         * @return コードID。空行の場合はnull
+         */
+        private static String readCodeId(byte[] line, int lineLength, Charset charset) {
+            int length = lineLength;
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            if (length == 0) {
+                return null;
+            }
+            if (line[0] == '"') {
+                return parseLine(new String(line, 0, length, charset))[0];
+            }
+            int end = 0;
+            while (end < length && line[end] != ',') {
+                end++;
+            }
+            return new String(line, 0, end, charset);
+        }
+
+        /**
+         * バイト列を行の文字列に変換する。
+         *
+         * @param line 行のバイト列
+         * @param lineLength 行のバイト数
+         * @param charset ファイルの文字コード
+         * @return 行の文字列(行末の復帰文字は除く)
+         */
+        private static String decode(byte[] line, int lineLength, Charset charset) {
+            int length = lineLength;
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, charset);
+        }
+
+        /**
+         * ファイルが更新されているか否か。
+         *
+         * @return インデックス作成時から最終更新日時またはサイズが変わっている場合true
+         */
+        private boolean isModified() {
+            return file.lastModified() != lastModified || file.length() != length;
+        }
+
+        /**
+         * ファイルに出現する順に、コードIDを取得する。
+         *
+         * @return コードIDのリスト
+         */
+        private List<String> getCodeIds() {
+            return new ArrayList<String>(segments.keySet());
+        }
+
+        /**
+         * コードIDの行を読み込む。
+         *
+         * @param codeId コードID
+         * @param pool フィールドの文字列をまとめる{@link StringPool}
+         * @return 行ごとのフィールド。コードIDが存在しない場合は空のリスト
+         * @throws IllegalArgumentException 行のフィールド数がヘッダ行と異なる場合
+         * @throws IllegalStateException ファイルを読み込めない場合
+         */
+        private List<String[]> read(String codeId, StringPool pool) throws IllegalArgumentException, IllegalStateException {
+            Segments found = segments.get(codeId);
+            if (found == null) {
+                return Collections.emptyList();
+            }
+            List<String[]> result = new ArrayList<String[]>();
+            RandomAccessFile in = null;
+            try {
+                in = new RandomAccessFile(file, "r");
+                for (int i = 0; i < found.size; i++) {
+                    long start = found.offsets[i * 2];
+                    byte[] bytes = new byte[(int) (found.offsets[i * 2 + 1] - start)];
+                    in.seek(start);
+                    in.readFully(bytes);
+                    for (String line : new String(bytes, charset).split("\n")) {
+                        if (line.endsWith("\r")) {
+                            line = line.substring(0, line.length() - 1);
+                        }
+                        if (line.length() == 0) {
+                            continue;
+                        }
+                        String[] fields = parseLine(line);
+                        if (fields.length != header.length) {
+                            throw new IllegalArgumentException("invalid number of columns."
+                                    + " file = " + file
+                                    + ", code id = " + codeId
+                                    + ", expected = " + header.length
+                                    + ", actual = " + fields.length
+                                    + ", line = " + line);
+                        }
+                        result.add(pool.intern(fields));
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to read code file. file = " + file
+                        + ", code id = " + codeId, e);
+            } finally {
+                close(in);
+            }
+            return result;
+        }
+
+        /**
+         * ストリームを閉じる。
+         *
+         * @param closeable ストリーム(nullの場合は何もしない)
+         */
+        private static void close(Closeable closeable) {
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    // 読み込み済みのため無視する
+                }
+            }
+        }
+    }
+
+    /**
+     * コードIDの行が存在する範囲(開始位置と終了位置の組)のリスト。
+     */
+    private static final class Segments {
+
+        /** 開始位置と終了位置を交互に格納した配列 */
+        private long[] offsets = new long[2];
+
+        /** 範囲の数 */
+        private int size;
+
+        /**
+         * 範囲を追加する。
+         *
+         * @param start 開始位置
+         * @param end 終了位置
+         */
+        private void add(long start, long end) {
+            if (offsets.length < (size + 1) * 2) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size * 2] = start;
+            offsets[size * 2 + 1] = end;
+            size++;
+        }
+
+        /**
+         * 最後の範囲の終了位置を延長する。
+         *
+         * @param end 終了位置
+         */
+        private void extend(long end) {
+            offsets[size * 2 - 1] = end;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package nablarch.common.code;
+
+import java.util.Arrays;
+
+/**
+ * 昇順に追加されるint値を、重複を除いて配列に蓄積するクラス。
+ */
+final class IntArrayBuilder {
+
+    /** 蓄積した値 */
+    private int[] elements = new int[4];
+
+    /** 蓄積した値の数 */
+    private int size;
+
+    /**
+     * 値を追加する。<br/>
+     * 直前に追加した値と同じ値の場合は追加しない。
+     *
+     * @param value 値
+     */
+    void add(int value) {
+        if (size > 0 && elements[size - 1] == value) {
+            return;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * 蓄積した値の配列を生成する。
+     *
+     * @return 蓄積した値の配列
+     */
+    int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,802 @@
+package nablarch.common.code;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link Code}から導出した、言語ごとの検索用のデータを保持するクラス。
+ */
+final class LocalizedCodeIndex {
+
+    /** 導出元のコード */
+    private final Code code;
+
+    /** 言語 */
+    private final Locale locale;
+
+    /** コード値のリスト(ソート順) */
+    private final List<String> values;
+
+    /** コード値とソート順での位置のMap */
+    private final Map<String, Integer> positions;
+
+    /** 正規化したコード値のインデックス(正規化しない場合はnull) */
+    private final NormalizedValueIndex normalizedValues;
+
+    /** パターン名と仮想パターンのMap */
+    private final Map<String, VirtualPattern> virtualPatterns;
+
+    /** パターンとパターンに含まれるコード値のリストのMap */
+    private final ConcurrentMap<String, List<String>> patternValues
+            = new ConcurrentHashMap<String, List<String>>();
+
+    /** パターンとパターンに含まれるコード値の位置のMap */
+    private final ConcurrentMap<String, BitSet> patternPositions = new ConcurrentHashMap<String, BitSet>();
+
+    /** パターンの条件式と、条件式を満たすコード値の位置のMap */
+    private final ConcurrentMap<CodePatternExpression, BitSet> expressionPositions
+            = new ConcurrentHashMap<CodePatternExpression, BitSet>();
+
+    /** パターンの条件式と、条件式を満たすコード値のリストのMap */
+    private final ConcurrentMap<CodePatternExpression, List<String>> expressionValues
+            = new ConcurrentHashMap<CodePatternExpression, List<String>>();
+
+    /** コード名称(ソート順)。初めて使用された時点で生成する。 */
+    private volatile String[] names;
+
+    /** コード名称の検索用インデックス。初めて使用された時点で生成する。 */
+    private volatile NameSearchIndex nameSearchIndex;
+
+    /** コード値と名称のエントリ(ソート順)。初めて使用された時点で生成する。 */
+    private volatile CodeEntry[] entries;
+
+    /** コード値と名称のエントリの変更不可能なリスト(ソート順)。初めて使用された時点で生成する。 */
+    private volatile List<CodeEntry> entryList;
+
+    /** パターンと、パターンに含まれるコード値と名称のエントリの変更不可能なリストのMap */
+    private final ConcurrentMap<String, List<CodeEntry>> patternEntryLists
+            = new ConcurrentHashMap<String, List<CodeEntry>>();
+
+    /** コード名称の照合順に並べたコード値の位置。初めて使用された時点で生成する。 */
+    private volatile int[] collatedPositions;
+
+    /** コード名称の照合順に並べたコード値とエントリ。初めて使用された時点で生成する。 */
+    private volatile CollatedSequence collatedSequence;
+
+    /** パターンと、パターンに含まれるコード値とエントリをコード名称の照合順に並べたもののMap */
+    private final ConcurrentMap<String, CollatedSequence> patternCollatedSequences
+            = new ConcurrentHashMap<String, CollatedSequence>();
+
+    /** コードの略称(ソート順)。初めて使用された時点で生成する。 */
+    private volatile String[] shortNames;
+
+    /** オプション名称のカラム名とオプション名称(ソート順)のMap */
+    private final ConcurrentMap<String, String[]> optionalNames = new ConcurrentHashMap<String, String[]>();
+
+    /** 型変換の種類、日付の書式およびオプション名称のカラム名と、型変換したオプション名称のMap */
+    private final ConcurrentMap<String, ParsedOptionColumn> parsedOptionalNames
+            = new ConcurrentHashMap<String, ParsedOptionColumn>();
+
+    /** 有効期間のインデックス。初めて使用された時点で生成する。 */
+    private volatile ValidityIndex validityIndex;
+
+    /** コード名称からコード値を検索するインデックス。初めて使用された時点で生成する。 */
+    private volatile ReverseLookupIndex nameLookupIndex;
+
+    /** コードの略称からコード値を検索するインデックス。初めて使用された時点で生成する。 */
+    private volatile ReverseLookupIndex shortNameLookupIndex;
+
+    /** オプション名称のカラム名と、オプション名称からコード値を検索するインデックスのMap */
+    private final ConcurrentMap<String, ReverseLookupIndex> optionalNameLookupIndexes
+            = new ConcurrentHashMap<String, ReverseLookupIndex>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param code 導出元のコード
+     * @param locale 言語
+     * @param normalizer コード値の正規化ルール(正規化しない場合はnull)
+     * @param virtualPatterns パターン名と仮想パターンのMap
+     * @throws IllegalArgumentException 言語に対応するデータが存在しなかった場合。
+     */
+    LocalizedCodeIndex(Code code, Locale locale, CodeValueNormalizer normalizer,
+            Map<String, VirtualPattern> virtualPatterns) throws IllegalArgumentException {
+        this.code = code;
+        this.locale = locale;
+        this.virtualPatterns = virtualPatterns;
+        values = code.getValues(locale);
+        positions = new HashMap<String, Integer>(values.size() * 2);
+        for (int i = 0; i < values.size(); i++) {
+            positions.put(values.get(i), i);
+        }
+        normalizedValues = normalizer == null ? null : new NormalizedValueIndex(normalizer, values);
+    }
+
+    /**
+     * 言語を取得する。
+     *
+     * @return 言語
+     */
+    Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * コード値のリストを取得する。
+     *
+     * @return コード値のリスト(ソート順)
+     */
+    List<String> getValues() {
+        return values;
+    }
+
+    /**
+     * コード値のソート順での位置を取得する。
+     *
+     * @param value コード値
+     * @return ソート順での位置。コード値が存在しない場合は-1
+     */
+    int indexOf(String value) {
+        Integer position = positions.get(value);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * 入力値に対応するコード値のソート順での位置を取得する。
+     * <p/>
+     * 正規化ルールが設定されていない場合は、入力値と一致するコード値のみを対象とする。
+     *
+     * @param input 入力値
+     * @return ソート順での位置。対応するコード値が存在しない場合は-1
+     */
+    int findPosition(String input) {
+        if (normalizedValues != null) {
+            String canonical = normalizedValues.find(input);
+            return canonical == null ? -1 : indexOf(canonical);
+        }
+        return indexOf(input);
+    }
+
+    /**
+     * コード値がパターンに含まれるか判定する{@link CodeValueMatcher}を生成する。
+     *
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return 生成した{@link CodeValueMatcher}
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    CodeValueMatcher createMatcher(String pattern) throws IllegalArgumentException {
+        final BitSet positionSet = pattern == null ? null : getPatternPositions(pattern);
+        return new CodeValueMatcher() {
+            public boolean matches(String value) {
+                int position = findPosition(value);
+                return position >= 0 && (positionSet == null || positionSet.get(position));
+            }
+        };
+    }
+
+    /**
+     * 入力値に対応する、格納されているコード値を取得する。
+     * <p/>
+     * 正規化ルールが設定されていない場合は、入力値と一致するコード値のみを対象とする。
+     *
+     * @param input 入力値
+     * @return 格納されているコード値。対応するコード値が存在しない場合はnull
+     */
+    String findCanonicalValue(String input) {
+        if (normalizedValues != null) {
+            return normalizedValues.find(input);
+        }
+        return positions.containsKey(input) ? input : null;
+    }
+
+    /**
+     * パターンに含まれるコード値の位置を取得する。
+     *
+     * @param pattern 使用するパターンのカラム名
+     * @return パターンに含まれるコード値の位置
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    BitSet getPatternPositions(String pattern) throws IllegalArgumentException {
+        BitSet positionSet = patternPositions.get(pattern);
+        if (positionSet == null) {
+            positionSet = new BitSet(values.size());
+            VirtualPattern virtualPattern = virtualPatterns.get(pattern);
+            if (virtualPattern != null) {
+                for (CodeEntry entry : getEntries()) {
+                    if (virtualPattern.accept(entry)) {
+                        positionSet.set(entry.getSortOrder());
+                    }
+                }
+            } else {
+                for (String value : code.getValues(pattern, locale)) {
+                    int position = indexOf(value);
+                    if (position >= 0) {
+                        positionSet.set(position);
+                    }
+                }
+            }
+            patternPositions.putIfAbsent(pattern, positionSet);
+        }
+        return positionSet;
+    }
+
+    /**
+     * パターンに含まれるコード値のリストを取得する。
+     * <p/>
+     * 仮想パターンも指定できる。
+     *
+     * @param pattern 使用するパターンのカラム名
+     * @return パターンに含まれるコード値のリスト(ソート順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    List<String> getPatternValues(String pattern) throws IllegalArgumentException {
+        List<String> result = patternValues.get(pattern);
+        if (result == null) {
+            result = toValueList(getPatternPositions(pattern));
+            patternValues.putIfAbsent(pattern, result);
+        }
+        return result;
+    }
+
+    /**
+     * 位置の集合を、コード値の変更不可能なリストに変換する。
+     *
+     * @param positionSet 位置の集合
+     * @return コード値のリスト(ソート順)
+     */
+    private List<String> toValueList(BitSet positionSet) {
+        List<String> found = new ArrayList<String>(positionSet.cardinality());
+        for (int i = positionSet.nextSetBit(0); i >= 0; i = positionSet.nextSetBit(i + 1)) {
+            found.add(values.get(i));
+        }
+        return Collections.unmodifiableList(found);
+    }
+
+    /**
+     * パターンの条件式を満たすコード値の位置を取得する。
+     *
+     * @param expression パターンの条件式
+     * @return 条件式を満たすコード値の位置
+     * @throws IllegalArgumentException 条件式に含まれるパターンが存在しなかった場合。
+     */
+    BitSet getPatternPositions(CodePatternExpression expression) throws IllegalArgumentException {
+        BitSet positionSet = expressionPositions.get(expression);
+        if (positionSet == null) {
+            positionSet = expression.evaluate(this);
+            expressionPositions.putIfAbsent(expression, positionSet);
+        }
+        return positionSet;
+    }
+
+    /**
+     * パターンの条件式を満たすコード値のリストを取得する。
+     *
+     * @param expression パターンの条件式
+     * @return 条件式を満たすコード値のリスト(ソート順)
+     * @throws IllegalArgumentException 条件式に含まれるパターンが存在しなかった場合。
+     */
+    List<String> getValues(CodePatternExpression expression) throws IllegalArgumentException {
+        List<String> result = expressionValues.get(expression);
+        if (result == null) {
+            result = toValueList(getPatternPositions(expression));
+            expressionValues.putIfAbsent(expression, result);
+        }
+        return result;
+    }
+
+    /**
+     * コード名称を取得する。
+     *
+     * @return コード名称(ソート順)
+     */
+    String[] getNames() {
+        String[] result = names;
+        if (result == null) {
+            result = new String[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = code.getName(values.get(i), locale);
+            }
+            names = result;
+        }
+        return result;
+    }
+
+    /**
+     * 入力値に対応するコード値の名称を取得する。
+     *
+     * @param input 入力値
+     * @return コード名称
+     * @throws IllegalArgumentException 対応するコード値が存在しなかった場合。
+     */
+    String getName(String input) throws IllegalArgumentException {
+        int position = findPosition(input);
+        if (position < 0) {
+            // 例外はコードの実装に合わせる
+            return code.getName(input, locale);
+        }
+        return getNames()[position];
+    }
+
+    /**
+     * 入力値に対応するコード値の略称を取得する。
+     *
+     * @param input 入力値
+     * @return コードの略称
+     * @throws IllegalArgumentException 対応するコード値または略称が存在しなかった場合。
+     */
+    String getShortName(String input) throws IllegalArgumentException {
+        int position = findPosition(input);
+        String shortName = position < 0 ? null : getShortNames()[position];
+        // 例外はコードの実装に合わせる
+        return shortName != null ? shortName : code.getShortName(input, locale);
+    }
+
+    /**
+     * 入力値に対応するコード値のオプション名称を取得する。
+     *
+     * @param input 入力値
+     * @param optionColumnName オプション名称のカラム名
+     * @return オプション名称
+     * @throws IllegalArgumentException 対応するコード値、オプション名称のカラムまたはオプション名称が存在しなかった場合。
+     */
+    String getOptionalName(String input, String optionColumnName) throws IllegalArgumentException {
+        int position = findPosition(input);
+        String optionalName = position < 0 ? null : getOptionalNames(optionColumnName)[position];
+        // 例外はコードの実装に合わせる
+        return optionalName != null ? optionalName : code.getOptionalName(input, optionColumnName, locale);
+    }
+
+    /**
+     * コード名称を検索する。
+     *
+     * @param keyword 検索文字列
+     * @param mode 一致条件
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param limit 取得する最大件数
+     * @return 名称が一致したコード値のリスト(ソート順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    List<String> searchByName(String keyword, CodeNameSearchMode mode, String pattern, int limit)
+            throws IllegalArgumentException {
+        BitSet filter = pattern == null ? null : getPatternPositions(pattern);
+        if (keyword.length() == 0) {
+            List<String> result = new ArrayList<String>(Math.min(limit, values.size()));
+            for (int i = 0; i < values.size() && result.size() < limit; i++) {
+                if (filter == null || filter.get(i)) {
+                    result.add(values.get(i));
+                }
+            }
+            return result;
+        }
+        NameSearchIndex index = nameSearchIndex;
+        if (index == null) {
+            index = new NameSearchIndex(getNames());
+            nameSearchIndex = index;
+        }
+        int[] found = index.search(keyword, mode, filter, limit);
+        List<String> result = new ArrayList<String>(found.length);
+        for (int position : found) {
+            result.add(values.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * コードの略称を取得する。
+     *
+     * @return コードの略称(ソート順)。略称が存在しないコード値はnull
+     */
+    String[] getShortNames() {
+        String[] result = shortNames;
+        if (result == null) {
+            result = new String[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                try {
+                    result[i] = code.getShortName(values.get(i), locale);
+                } catch (IllegalArgumentException e) {
+                    // 略称が存在しないコード値
+                    result[i] = null;
+                }
+            }
+            shortNames = result;
+        }
+        return result;
+    }
+
+    /**
+     * オプション名称を取得する。
+     *
+     * @param optionColumnName オプション名称のカラム名
+     * @return オプション名称(ソート順)。オプション名称が存在しないコード値はnull
+     * @throws IllegalArgumentException オプション名称のカラムが存在しなかった場合。
+     */
+    String[] getOptionalNames(String optionColumnName) throws IllegalArgumentException {
+        String[] result = optionalNames.get(optionColumnName);
+        if (result == null) {
+            result = new String[values.size()];
+            IllegalArgumentException notFound = null;
+            boolean found = false;
+            for (int i = 0; i < result.length; i++) {
+                try {
+                    result[i] = code.getOptionalName(values.get(i), optionColumnName, locale);
+                    found = true;
+                } catch (IllegalArgumentException e) {
+                    // オプション名称が存在しないコード値
+                    notFound = e;
+                }
+            }
+            if (!found && notFound != null) {
+                // 全てのコード値でオプション名称が取得できない場合は、カラムが存在しないとみなす
+                throw notFound;
+            }
+            optionalNames.putIfAbsent(optionColumnName, result);
+        }
+        return result;
+    }
+
+    /**
+     * 型変換したオプション名称を取得する。
+     *
+     * @param optionColumnName オプション名称のカラム名
+     * @param type 型変換の種類
+     * @param datePattern 日付の書式(型がDATEの場合のみ使用する)
+     * @return 型変換したオプション名称
+     * @throws IllegalArgumentException オプション名称のカラムが存在しなかった場合、型変換できないオプション名称が存在した場合。
+     */
+    ParsedOptionColumn getParsedOptionalNames(String optionColumnName, ParsedOptionColumn.Type type,
+            String datePattern) throws IllegalArgumentException {
+        String key = type == ParsedOptionColumn.Type.DATE
+                ? type + ":" + datePattern + ":" + optionColumnName
+                : type + ":" + optionColumnName;
+        ParsedOptionColumn result = parsedOptionalNames.get(key);
+        if (result == null) {
+            String[] names = getOptionalNames(optionColumnName);
+            try {
+                result = ParsedOptionColumn.parse(type, datePattern, values, names);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(e.getMessage()
+                        + ", code id = " + code.getCodeId()
+                        + ", locale = " + locale
+                        + ", option name = " + optionColumnName, e);
+            }
+            parsedOptionalNames.putIfAbsent(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * 有効期間のインデックスを取得する。
+     * <p/>
+     * 有効期間のカラムが存在しない場合、またはオプション名称が存在しないコード値は、期間の制限がないものとして扱う。
+     *
+     * @param validFromColumnName 有効期間の開始日時を格納したオプション名称のカラム名(使用しない場合はnull)
+     * @param validToColumnName 有効期間の終了日時を格納したオプション名称のカラム名(使用しない場合はnull)
+     * @param datePattern 日時の書式
+     * @return 有効期間のインデックス
+     * @throws IllegalArgumentException 日時に変換できないオプション名称が存在した場合。
+     */
+    ValidityIndex getValidityIndex(String validFromColumnName, String validToColumnName, String datePattern)
+            throws IllegalArgumentException {
+        ValidityIndex result = validityIndex;
+        if (result == null) {
+            result = new ValidityIndex(
+                    toTimes(validFromColumnName, datePattern, Long.MIN_VALUE),
+                    toTimes(validToColumnName, datePattern, Long.MAX_VALUE));
+            validityIndex = result;
+        }
+        return result;
+    }
+
+    /**
+     * オプション名称の列を日時(エポックミリ秒)の配列に変換する。
+     *
+     * @param optionColumnName オプション名称のカラム名(使用しない場合はnull)
+     * @param datePattern 日時の書式
+     * @param absent オプション名称が存在しない場合の値
+     * @return 日時の配列(ソート順)
+     * @throws IllegalArgumentException 日時に変換できないオプション名称が存在した場合。
+     */
+    private long[] toTimes(String optionColumnName, String datePattern, long absent) throws IllegalArgumentException {
+        long[] result = new long[values.size()];
+        Arrays.fill(result, absent);
+        if (optionColumnName == null) {
+            return result;
+        }
+        try {
+            getOptionalNames(optionColumnName);
+        } catch (IllegalArgumentException e) {
+            // カラムが存在しないコードは期間の制限なし
+            return result;
+        }
+        ParsedOptionColumn parsed = getParsedOptionalNames(optionColumnName, ParsedOptionColumn.Type.DATE, datePattern);
+        for (int i = 0; i < result.length; i++) {
+            if (parsed.isPresent(i)) {
+                result[i] = parsed.getLong(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 日時時点で有効なコード値のリストを取得する。
+     *
+     * @param validity 有効期間のインデックス
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param time 日時(エポックミリ秒)
+     * @return 有効なコード値のリスト(ソート順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    List<String> getValidValues(ValidityIndex validity, String pattern, long time) throws IllegalArgumentException {
+        // 存在しないパターンをキャッシュに登録しないよう、先にパターンを確認する
+        BitSet filter = pattern == null ? null : getPatternPositions(pattern);
+        return validity.getValidValues(values, pattern, filter, time);
+    }
+
+    /**
+     * コード名称に対応するコード値を取得する。
+     *
+     * @param name コード名称
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード値のリスト(ソート順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    List<String> getValuesByName(String name, String pattern) throws IllegalArgumentException {
+        ReverseLookupIndex index = nameLookupIndex;
+        if (index == null) {
+            index = new ReverseLookupIndex(getNames());
+            nameLookupIndex = index;
+        }
+        return toValues(index.get(name), pattern);
+    }
+
+    /**
+     * コードの略称に対応するコード値を取得する。
+     *
+     * @param shortName コードの略称
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード値のリスト(ソート順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    List<String> getValuesByShortName(String shortName, String pattern) throws IllegalArgumentException {
+        ReverseLookupIndex index = shortNameLookupIndex;
+        if (index == null) {
+            index = new ReverseLookupIndex(getShortNames());
+            shortNameLookupIndex = index;
+        }
+        return toValues(index.get(shortName), pattern);
+    }
+
+    /**
+     * オプション名称に対応するコード値を取得する。
+     *
+     * @param optionColumnName オプション名称のカラム名
+     * @param optionalName オプション名称
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード値のリスト(ソート順)
+     * @throws IllegalArgumentException オプション名称のカラムまたはパターンが存在しなかった場合。
+     */
+    List<String> getValuesByOptionalName(String optionColumnName, String optionalName, String pattern)
+            throws IllegalArgumentException {
+        ReverseLookupIndex index = optionalNameLookupIndexes.get(optionColumnName);
+        if (index == null) {
+            index = new ReverseLookupIndex(getOptionalNames(optionColumnName));
+            optionalNameLookupIndexes.putIfAbsent(optionColumnName, index);
+        }
+        return toValues(index.get(optionalName), pattern);
+    }
+
+    /**
+     * 位置のリストをコード値のリストに変換する。
+     *
+     * @param positionList 位置のリスト(昇順)
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード値のリスト(ソート順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    private List<String> toValues(int[] positionList, String pattern) throws IllegalArgumentException {
+        BitSet filter = pattern == null ? null : getPatternPositions(pattern);
+        List<String> result = new ArrayList<String>(positionList.length);
+        for (int position : positionList) {
+            if (filter == null || filter.get(position)) {
+                result.add(values.get(position));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * コード値と名称のエントリを取得する。
+     *
+     * @return コード値と名称のエントリ(ソート順)
+     */
+    CodeEntry[] getEntries() {
+        CodeEntry[] result = entries;
+        if (result == null) {
+            String[] nameArray = getNames();
+            String[] shortNameArray = getShortNames();
+            result = new CodeEntry[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = new CodeEntry(this, i, values.get(i), nameArray[i], shortNameArray[i]);
+            }
+            entries = result;
+        }
+        return result;
+    }
+
+    /**
+     * コード値と名称のエントリの変更不可能なリストを取得する。
+     * <p/>
+     * リストはパターンごとに1回だけ生成し、以降は同じインスタンスを返却する。
+     *
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード値と名称のエントリのリスト(ソート順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    List<CodeEntry> getEntryList(String pattern) throws IllegalArgumentException {
+        if (pattern == null) {
+            List<CodeEntry> result = entryList;
+            if (result == null) {
+                result = Collections.unmodifiableList(Arrays.asList(getEntries()));
+                entryList = result;
+            }
+            return result;
+        }
+        List<CodeEntry> result = patternEntryLists.get(pattern);
+        if (result == null) {
+            BitSet filter = getPatternPositions(pattern);
+            CodeEntry[] entryArray = getEntries();
+            List<CodeEntry> included = new ArrayList<CodeEntry>(filter.cardinality());
+            for (int i = filter.nextSetBit(0); i >= 0; i = filter.nextSetBit(i + 1)) {
+                included.add(entryArray[i]);
+            }
+            result = Collections.unmodifiableList(included);
+            List<CodeEntry> existing = patternEntryLists.putIfAbsent(pattern, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * コード名称の照合順に並べたコード値の変更不可能なリストを取得する。
+     *
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード値のリスト(コード名称の照合順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     * @see #getCollatedEntryList(String)
+     */
+    List<String> getCollatedValues(String pattern) throws IllegalArgumentException {
+        return getCollatedSequence(pattern).values;
+    }
+
+    /**
+     * コード名称の照合順に並べたコード値と名称のエントリの変更不可能なリストを取得する。
+     * <p/>
+     * 並び順は本インデックスの言語の{@link Collator}で決定する。
+     * 照合には名称ごとに1回だけ生成した{@link CollationKey}を使用し、リストはパターンごとに1回だけ生成する。
+     * 照合順が等しい名称は、ソート順に並べる。
+     *
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード値と名称のエントリのリスト(コード名称の照合順)
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    List<CodeEntry> getCollatedEntryList(String pattern) throws IllegalArgumentException {
+        return getCollatedSequence(pattern).entries;
+    }
+
+    /**
+     * コード名称の照合順に並べたコード値とエントリを取得する。
+     *
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return コード名称の照合順に並べたコード値とエントリ
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    private CollatedSequence getCollatedSequence(String pattern) throws IllegalArgumentException {
+        if (pattern == null) {
+            CollatedSequence result = collatedSequence;
+            if (result == null) {
+                result = new CollatedSequence(getEntries(), getCollatedPositions(), null);
+                collatedSequence = result;
+            }
+            return result;
+        }
+        CollatedSequence result = patternCollatedSequences.get(pattern);
+        if (result == null) {
+            result = new CollatedSequence(getEntries(), getCollatedPositions(), getPatternPositions(pattern));
+            CollatedSequence existing = patternCollatedSequences.putIfAbsent(pattern, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * コード名称の照合順に並べたコード値の位置を取得する。
+     *
+     * @return コード値の位置(コード名称の照合順)
+     */
+    private int[] getCollatedPositions() {
+        int[] result = collatedPositions;
+        if (result == null) {
+            String[] nameArray = getNames();
+            Collator collator = Collator.getInstance(locale);
+            final CollationKey[] keys = new CollationKey[nameArray.length];
+            Integer[] sorted = new Integer[nameArray.length];
+            for (int i = 0; i < nameArray.length; i++) {
+                keys[i] = collator.getCollationKey(nameArray[i]);
+                sorted[i] = i;
+            }
+            // 安定ソートのため、照合順が等しい名称はソート順のまま並ぶ
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                public int compare(Integer o1, Integer o2) {
+                    return keys[o1].compareTo(keys[o2]);
+                }
+            });
+            result = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                result[i] = sorted[i];
+            }
+            collatedPositions = result;
+        }
+        return result;
+    }
+
+    /**
+     * コード値と名称のエントリを走査する{@link CodeEntryIterator}を生成する。
+     *
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @return 生成した{@link CodeEntryIterator}
+     * @throws IllegalArgumentException パターンが存在しなかった場合。
+     */
+    CodeEntryIterator createEntryIterator(String pattern) throws IllegalArgumentException {
+        BitSet filter = pattern == null ? null : getPatternPositions(pattern);
+        CodeEntry[] entryArray = getEntries();
+        return new CodeEntryIterator(entryArray, filter, 0, entryArray.length);
+    }
+
+    /**
+     * コード名称の照合順に並べたコード値とエントリ。
+     */
+    private static final class CollatedSequence {
+
+        /** コード値の変更不可能なリスト */
+        private final List<String> values;
+
+        /** コード値と名称のエントリの変更不可能なリスト */
+        private final List<CodeEntry> entries;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param entryArray コード値と名称のエントリ(ソート順)
+         * @param collated コード値の位置(コード名称の照合順)
+         * @param filter 含めるコード値の位置(全てのコード値を含める場合はnull)
+         */
+        private CollatedSequence(CodeEntry[] entryArray, int[] collated, BitSet filter) {
+            int size = filter == null ? collated.length : filter.cardinality();
+            List<String> valueList = new ArrayList<String>(size);
+            List<CodeEntry> entryList = new ArrayList<CodeEntry>(size);
+            for (int position : collated) {
+                if (filter == null || filter.get(position)) {
+                    valueList.add(entryArray[position].getValue());
+                    entryList.add(entryArray[position]);
+                }
+            }
+            values = Collections.unmodifiableList(valueList);
+            entries = Collections.unmodifiableList(entryList);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package nablarch.common.code;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * コード名称の前方一致・部分一致検索に使用するインデックス。
+ * <p/>
+ * 前方一致検索には、名称の昇順に並べた名称の配列を使用する。
+ * 検索文字列で始まる名称は配列上で連続するため、二分探索で求めた範囲のみを走査する。
+ * <p/>
+ * 部分一致検索には、名称に含まれる1文字・2文字の文字列ごとに、
+ * その文字列を持つ名称のソート順での位置を昇順に保持したN-gramインデックスを使用する。
+ * 検索時は、検索文字列から求めた最も短い位置のリストのみを走査して照合する。
+ * <p/>
+ * いずれの場合も、検索時間はコード値の件数ではなく候補の件数に比例する。
+ */
+final class NameSearchIndex {
+
+    /** 空の位置のリスト */
+    private static final int[] EMPTY = new int[0];
+
+    /** コード名称(ソート順) */
+    private final String[] names;
+
+    /** 名称の昇順に並べた名称 */
+    private final String[] sortedNames;
+
+    /** 名称の昇順に並べた名称の、ソート順での位置 */
+    private final int[] sortedPositions;
+
+    /** 名称に含まれる1文字・2文字の文字列と位置のリストのMap */
+    private final Map<String, int[]> gramPostings;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param names コード名称(ソート順)
+     */
+    NameSearchIndex(final String[] names) {
+        this.names = names;
+        Integer[] sorted = new Integer[names.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        // 安定ソートのため、同じ名称はソート順のまま並ぶ
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return names[o1].compareTo(names[o2]);
+            }
+        });
+        sortedNames = new String[sorted.length];
+        sortedPositions = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sortedPositions[i] = sorted[i];
+            sortedNames[i] = names[sorted[i]];
+        }
+        Map<String, IntArrayBuilder> grams = new HashMap<String, IntArrayBuilder>();
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            for (int begin = 0; begin < name.length(); begin++) {
+                add(grams, name.substring(begin, begin + 1), i);
+                if (begin + 2 <= name.length()) {
+                    add(grams, name.substring(begin, begin + 2), i);
+                }
+            }
+        }
+        gramPostings = toPostings(grams);
+    }
+
+    /**
+     * 名称を検索する。
+     *
+     * @param keyword 検索文字列
+     * @param mode 一致条件
+     * @param filter 対象とする位置(全ての位置を対象とする場合はnull)
+     * @param limit 取得する最大件数
+     * @return 一致した名称の位置(昇順)
+     */
+    int[] search(String keyword, CodeNameSearchMode mode, BitSet filter, int limit) {
+        return mode == CodeNameSearchMode.PREFIX
+                ? searchByPrefix(keyword, filter, limit)
+                : searchBySubstring(keyword, filter, limit);
+    }
+
+    /**
+     * 名称を前方一致で検索する。
+     * <p/>
+     * 検索文字列で始まる名称の範囲を二分探索で求め、範囲内の位置をソート順に並べ替えて返却する。
+     *
+     * @param keyword 検索文字列(1文字以上)
+     * @param filter 対象とする位置(全ての位置を対象とする場合はnull)
+     * @param limit 取得する最大件数
+     * @return 一致した名称の位置(昇順)
+     */
+    private int[] searchByPrefix(String keyword, BitSet filter, int limit) {
+        int from = lowerBound(keyword);
+        int to = upperBound(keyword, from);
+        int[] found = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int position = sortedPositions[i];
+            if (filter == null || filter.get(position)) {
+                found[count++] = position;
+            }
+        }
+        Arrays.sort(found, 0, count);
+        return Arrays.copyOf(found, Math.min(limit, count));
+    }
+
+    /**
+     * 名称の昇順に並べた名称のうち、検索文字列以上となる最初の位置を取得する。
+     *
+     * @param keyword 検索文字列
+     * @return 検索文字列以上となる最初の位置。存在しない場合は名称の件数
+     */
+    private int lowerBound(String keyword) {
+        int low = 0;
+        int high = sortedNames.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedNames[mid].compareTo(keyword) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 名称の昇順に並べた名称のうち、指定された位置以降で検索文字列で始まらない最初の位置を取得する。
+     *
+     * @param keyword 検索文字列
+     * @param from 検索文字列以上となる最初の位置
+     * @return 検索文字列で始まらない最初の位置。存在しない場合は名称の件数
+     */
+    private int upperBound(String keyword, int from) {
+        int low = from;
+        int high = sortedNames.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedNames[mid].startsWith(keyword)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 名称を部分一致で検索する。
+     *
+     * @param keyword 検索文字列(1文字以上)
+     * @param filter 対象とする位置(全ての位置を対象とする場合はnull)
+     * @param limit 取得する最大件数
+     * @return 一致した名称の位置(昇順)
+     */
+    private int[] searchBySubstring(String keyword, BitSet filter, int limit) {
+        int[] candidates = substringCandidates(keyword);
+        int[] found = new int[Math.min(limit, candidates.length)];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < found.length; i++) {
+            int position = candidates[i];
+            if (filter != null && !filter.get(position)) {
+                continue;
+            }
+            if (names[position].contains(keyword)) {
+                found[count++] = position;
+            }
+        }
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    /**
+     * 部分一致の候補となる位置のリストを取得する。<br/>
+     * 検索文字列に含まれる2文字の文字列のうち、最も候補の少ないものを使用する。
+     *
+     * @param keyword 検索文字列(1文字以上)
+     * @return 候補となる位置のリスト
+     */
+    private int[] substringCandidates(String keyword) {
+        if (keyword.length() == 1) {
+            return get(gramPostings, keyword);
+        }
+        int[] candidates = null;
+        for (int begin = 0; begin + 2 <= keyword.length(); begin++) {
+            int[] postings = get(gramPostings, keyword.substring(begin, begin + 2));
+            if (candidates == null || postings.length < candidates.length) {
+                candidates = postings;
+            }
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 位置のリストを取得する。
+     *
+     * @param postings 位置のリストのMap
+     * @param key キー
+     * @return 位置のリスト。キーが存在しない場合は空の配列
+     */
+    private static int[] get(Map<String, int[]> postings, String key) {
+        int[] positions = postings.get(key);
+        return positions == null ? EMPTY : positions;
+    }
+
+    /**
+     * 位置を追加する。
+     *
+     * @param builders キーと位置のリストのMap
+     * @param key キー
+     * @param position 位置
+     */
+    private static void add(Map<String, IntArrayBuilder> builders, String key, int position) {
+        IntArrayBuilder builder = builders.get(key);
+        if (builder == null) {
+            builder = new IntArrayBuilder();
+            builders.put(key, builder);
+        }
+        builder.add(position);
+    }
+
+    /**
+     * 蓄積した位置のリストを配列に変換する。
+     *
+     * @param builders キーと位置のリストのMap
+     * @return キーと位置のリストのMap
+     */
+    private static Map<String, int[]> toPostings(Map<String, IntArrayBuilder> builders) {
+        Map<String, int[]> postings = new HashMap<String, int[]>(builders.size() * 2);
+        for (Map.Entry<String, IntArrayBuilder> entry : builders.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return postings;
+    }
+}
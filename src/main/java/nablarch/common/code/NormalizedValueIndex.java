@@ -0,0 +1,175 @@
+package nablarch.common.code;
+
+import java.util.List;
+
+/**
+ * 正規化したコード値をキーとして、格納されているコード値を検索するインデックス。
+ * <p/>
+ * 検索時は入力値を1文字ずつ正規化しながらハッシュ値の計算と比較を行うため、
+ * 入力値ごとに正規化した文字列を生成しない。
+ * <p/>
+ * 正規化後に同一となるコード値が複数存在する場合は、先に登録されたコード値(ソート順で先頭のもの)に対応付ける。
+ */
+final class NormalizedValueIndex {
+
+    /** 正規化ルール */
+    private final CodeValueNormalizer normalizer;
+
+    /** 正規化したコード値(オープンアドレス法のハッシュテーブル) */
+    private final String[] keys;
+
+    /** 正規化したコード値に対応する、格納されているコード値 */
+    private final String[] values;
+
+    /** ハッシュテーブルのインデックスを求めるマスク */
+    private final int mask;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param normalizer 正規化ルール
+     * @param codeValues 格納されているコード値(ソート順)
+     */
+    NormalizedValueIndex(CodeValueNormalizer normalizer, List<String> codeValues) {
+        this.normalizer = normalizer;
+        int capacity = Integer.highestOneBit(Math.max(codeValues.size(), 1) * 2) << 1;
+        keys = new String[capacity];
+        values = new String[capacity];
+        mask = capacity - 1;
+        for (String value : codeValues) {
+            String key = normalize(value);
+            int slot = hash(key) & mask;
+            while (keys[slot] != null && !keys[slot].equals(key)) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == null) {
+                keys[slot] = key;
+                values[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * 入力値を正規化した値に対応する、格納されているコード値を取得する。
+     *
+     * @param input 入力値
+     * @return 格納されているコード値。対応するコード値が存在しない場合はnull
+     */
+    String find(String input) {
+        if (input == null) {
+            return null;
+        }
+        int begin = begin(input);
+        int end = end(input, begin);
+        int slot = hash(input, begin, end) & mask;
+        while (keys[slot] != null) {
+            if (matches(keys[slot], input, begin, end)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * コード値を正規化する。
+     *
+     * @param value コード値
+     * @return 正規化したコード値
+     */
+    private String normalize(String value) {
+        int begin = begin(value);
+        int end = end(value, begin);
+        char[] chars = new char[end - begin];
+        for (int i = begin; i < end; i++) {
+            chars[i - begin] = normalizer.normalize(value.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 前方の除去対象文字を除いた開始位置を求める。
+     *
+     * @param value 値
+     * @return 開始位置
+     */
+    private int begin(String value) {
+        int begin = 0;
+        while (begin < value.length() && normalizer.isIgnorable(value.charAt(begin))) {
+            begin++;
+        }
+        return begin;
+    }
+
+    /**
+     * 後方の除去対象文字を除いた終了位置を求める。
+     *
+     * @param value 値
+     * @param begin 開始位置
+     * @return 終了位置
+     */
+    private int end(String value, int begin) {
+        int end = value.length();
+        while (end > begin && normalizer.isIgnorable(value.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * 入力値の範囲を正規化しながら、正規化したコード値と一致するか判定する。
+     *
+     * @param key 正規化したコード値
+     * @param input 入力値
+     * @param begin 開始位置
+     * @param end 終了位置
+     * @return 一致する場合true
+     */
+    private boolean matches(String key, String input, int begin, int end) {
+        if (key.length() != end - begin) {
+            return false;
+        }
+        for (int i = begin; i < end; i++) {
+            if (key.charAt(i - begin) != normalizer.normalize(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 正規化したコード値のハッシュ値を求める。
+     *
+     * @param key 正規化したコード値
+     * @return ハッシュ値
+     */
+    private static int hash(String key) {
+        return spread(key.hashCode());
+    }
+
+    /**
+     * 入力値の範囲を正規化しながら、{@link String#hashCode()}と同じ方法でハッシュ値を求める。
+     *
+     * @param input 入力値
+     * @param begin 開始位置
+     * @param end 終了位置
+     * @return ハッシュ値
+     */
+    private int hash(String input, int begin, int end) {
+        int h = 0;
+        for (int i = begin; i < end; i++) {
+            h = 31 * h + normalizer.normalize(input.charAt(i));
+        }
+        return spread(h);
+    }
+
+    /**
+     * ハッシュ値の上位ビットを下位ビットに拡散する。
+     *
+     * @param h ハッシュ値
+     * @return 拡散したハッシュ値
+     */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,488 @@
+package nablarch.common.code;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コードIDとオプション名称のカラムの組み合わせを表すハンドル。
+ * <p/>
+ * {@link BasicCodeManager#getOptionColumn(String, String)}で取得したハンドルを保持して使い回すことで、
+ * オプション名称の取得のたびにカラム名からデータを検索せず、言語ごとに列単位で保持したオプション名称の配列から直接取得できる。
+ * オプション名称の列は、コードおよび指定された言語ごとに初めて取得した時点で解決し、
+ * 以降は指定された言語のインスタンスを優先して照合することで、解決済みの列を再利用する。
+ * 解決済みの列は言語を{@value #MAX_LOCALES}件まで保持し、以降の言語は保持せずに都度解決する。
+ * ハンドルは、コードが再読み込みされた場合は新しいコードを参照する。
+ * <p/>
+ * 数値、真偽値、日付を格納したオプション名称は、型を指定した取得メソッドで取得できる。
+ * 型変換はコードおよび言語ごとに初めて取得した時点で列の全ての値に対して一度だけ行い、
+ * 変換結果を型ごとの配列で保持する。変換できない値が存在する場合は、その時点で変換できない全ての値を例外で通知する。
+ * <p/>
+ * 本クラスはスレッドセーフであり、複数のスレッドから同時に使用できる。
+ */
+@Published
+public final class OptionColumn {
+
+    /** 取得元の{@link BasicCodeManager} */
+    private final BasicCodeManager codeManager;
+
+    /** コードID */
+    private final String codeId;
+
+    /** オプション名称のカラム名 */
+    private final String optionColumnName;
+
+    /** 解決済みのオプション名称の列を保持する言語の最大数 */
+    static final int MAX_LOCALES = 16;
+
+    /** 現在読み込まれているコードの、解決済みのオプション名称の列 */
+    private volatile ResolvedColumns resolved;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param codeManager 取得元の{@link BasicCodeManager}
+     * @param codeId コードID
+     * @param optionColumnName オプション名称のカラム名
+     */
+    OptionColumn(BasicCodeManager codeManager, String codeId, String optionColumnName) {
+        this.codeManager = codeManager;
+        this.codeId = codeId;
+        this.optionColumnName = optionColumnName;
+    }
+
+    /**
+     * コードIDを取得する。
+     *
+     * @return コードID
+     */
+    public String getCodeId() {
+        return codeId;
+    }
+
+    /**
+     * オプション名称のカラム名を取得する。
+     *
+     * @return オプション名称のカラム名
+     */
+    public String getOptionColumnName() {
+        return optionColumnName;
+    }
+
+    /**
+     * コード値に対応するオプション名称を取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     * {@link nablarch.core.ThreadContext}からデフォルト言語を取得できなかった場合、
+     * デフォルトロケールから言語を取得する。
+     *
+     * @param value コード値
+     * @return オプション名称
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合
+     */
+    public String getName(String value) throws IllegalArgumentException {
+        return getName(value, BasicCodeManager.getLanguage());
+    }
+
+    /**
+     * コード値、言語に対応するオプション名称を取得する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return オプション名称
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合
+     */
+    public String getName(String value, Locale locale) throws IllegalArgumentException {
+        return resolve(locale).getName(value);
+    }
+
+    /**
+     * 複数のコード値に対応するオプション名称をまとめて取得する。
+     *
+     * @param values コード値のリスト
+     * @param locale 言語
+     * @return オプション名称の配列(コード値のリストと同じ順序)
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合
+     */
+    public String[] getNames(List<String> values, Locale locale) throws IllegalArgumentException {
+        ResolvedColumn column = resolve(locale);
+        String[] result = new String[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = column.getName(values.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * コード値に対応するオプション名称をintに変換して取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param value コード値
+     * @return int値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列にintに変換できない値が存在する場合
+     */
+    public int getInt(String value) throws IllegalArgumentException {
+        return getInt(value, BasicCodeManager.getLanguage());
+    }
+
+    /**
+     * コード値、言語に対応するオプション名称をintに変換して取得する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return int値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列にintに変換できない値が存在する場合
+     */
+    public int getInt(String value, Locale locale) throws IllegalArgumentException {
+        ResolvedColumn column = resolve(locale);
+        ParsedOptionColumn parsed = column.parse(ParsedOptionColumn.Type.INT);
+        int position = column.parsedPositionOf(parsed, value);
+        return parsed.getInt(position);
+    }
+
+    /**
+     * コード値に対応するオプション名称をlongに変換して取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param value コード値
+     * @return long値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列にlongに変換できない値が存在する場合
+     */
+    public long getLong(String value) throws IllegalArgumentException {
+        return getLong(value, BasicCodeManager.getLanguage());
+    }
+
+    /**
+     * コード値、言語に対応するオプション名称をlongに変換して取得する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return long値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列にlongに変換できない値が存在する場合
+     */
+    public long getLong(String value, Locale locale) throws IllegalArgumentException {
+        ResolvedColumn column = resolve(locale);
+        ParsedOptionColumn parsed = column.parse(ParsedOptionColumn.Type.LONG);
+        int position = column.parsedPositionOf(parsed, value);
+        return parsed.getLong(position);
+    }
+
+    /**
+     * コード値に対応するオプション名称を{@link BigDecimal}に変換して取得する。<br/>
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param value コード値
+     * @return {@link BigDecimal}値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列に{@link BigDecimal}に変換できない値が存在する場合
+     */
+    public BigDecimal getBigDecimal(String value) throws IllegalArgumentException {
+        return getBigDecimal(value, BasicCodeManager.getLanguage());
+    }
+
+    /**
+     * コード値、言語に対応するオプション名称を{@link BigDecimal}に変換して取得する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return {@link BigDecimal}値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列に{@link BigDecimal}に変換できない値が存在する場合
+     */
+    public BigDecimal getBigDecimal(String value, Locale locale) throws IllegalArgumentException {
+        ResolvedColumn column = resolve(locale);
+        ParsedOptionColumn parsed = column.parse(ParsedOptionColumn.Type.DECIMAL);
+        int position = column.parsedPositionOf(parsed, value);
+        return parsed.getDecimal(position);
+    }
+
+    /**
+     * コード値に対応するオプション名称を真偽値に変換して取得する。<br/>
+     * "1"、"true"はtrue、"0"、"false"はfalseとして扱う(大文字・小文字は区別しない)。
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param value コード値
+     * @return 真偽値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列に真偽値に変換できない値が存在する場合
+     */
+    public boolean getBoolean(String value) throws IllegalArgumentException {
+        return getBoolean(value, BasicCodeManager.getLanguage());
+    }
+
+    /**
+     * コード値、言語に対応するオプション名称を真偽値に変換して取得する。
+     * "1"、"true"はtrue、"0"、"false"はfalseとして扱う(大文字・小文字は区別しない)。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return 真偽値
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列に真偽値に変換できない値が存在する場合
+     */
+    public boolean getBoolean(String value, Locale locale) throws IllegalArgumentException {
+        ResolvedColumn column = resolve(locale);
+        ParsedOptionColumn parsed = column.parse(ParsedOptionColumn.Type.BOOLEAN);
+        int position = column.parsedPositionOf(parsed, value);
+        return parsed.getBoolean(position);
+    }
+
+    /**
+     * コード値に対応するオプション名称を日付に変換して取得する。<br/>
+     * オプション名称は、{@link BasicCodeManager#setOptionDatePattern(String)}で指定した書式で解析する。
+     * 取得対象言語は、{@link nablarch.core.ThreadContext}でデフォルトとして指定された言語とする。
+     *
+     * @param value コード値
+     * @return 日付
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列に日付に変換できない値が存在する場合
+     */
+    public Date getDate(String value) throws IllegalArgumentException {
+        return getDate(value, BasicCodeManager.getLanguage());
+    }
+
+    /**
+     * コード値、言語に対応するオプション名称を日付に変換して取得する。
+     * オプション名称は、{@link BasicCodeManager#setOptionDatePattern(String)}で指定した書式で解析する。
+     *
+     * @param value コード値
+     * @param locale 言語
+     * @return 日付
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   対象のコード値または言語に対応するデータが存在しない場合、
+     *                                   オプション名称の列に日付に変換できない値が存在する場合
+     */
+    public Date getDate(String value, Locale locale) throws IllegalArgumentException {
+        ResolvedColumn column = resolve(locale);
+        ParsedOptionColumn parsed = column.parse(ParsedOptionColumn.Type.DATE);
+        int position = column.parsedPositionOf(parsed, value);
+        return new Date(parsed.getLong(position));
+    }
+
+    /**
+     * 現在読み込まれているコードの、言語に対応するオプション名称の列を取得する。
+     * <p/>
+     * 解決済みの列は、指定された言語ごとに保持する。
+     * 国やバリアントを含む言語のデータが言語のみのデータにフォールバックした場合も、指定された言語で保持する。
+     *
+     * @param locale 言語
+     * @return オプション名称の列
+     * @throws IllegalArgumentException 指定したコードIDまたはオプション名称のカラムが存在しない場合、
+     *                                   言語に対応するデータが存在しない場合
+     */
+    ResolvedColumn resolve(Locale locale) throws IllegalArgumentException {
+        Code def = codeManager.getCodeDefinition(codeId);
+        ResolvedColumns columns = resolved;
+        if (columns == null || columns.code != def) {
+            columns = new ResolvedColumns(def, new Locale[0], new ResolvedColumn[0]);
+            resolved = columns;
+        }
+        ResolvedColumn column = columns.find(locale);
+        if (column != null) {
+            return column;
+        }
+        LocalizedCodeIndex index = codeManager.getCodeIndex(codeId, def).getLocalized(locale);
+        column = columns.findByIndex(index);
+        if (column == null) {
+            column = new ResolvedColumn(index, index.getOptionalNames(optionColumnName));
+        }
+        if (columns.locales.length < MAX_LOCALES) {
+            // 同時に追加された場合は一方が失われるが、次に解決した時点で再び追加する
+            resolved = columns.add(locale, column);
+        }
+        return column;
+    }
+
+    /**
+     * 同じコードから解決した、指定された言語ごとのオプション名称の列。
+     */
+    private static final class ResolvedColumns {
+
+        /** 解決に使用したコード */
+        private final Code code;
+
+        /** 指定された言語 */
+        private final Locale[] locales;
+
+        /** 指定された言語に対応するオプション名称の列 */
+        private final ResolvedColumn[] columns;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param code 解決に使用したコード
+         * @param locales 指定された言語
+         * @param columns 指定された言語に対応するオプション名称の列
+         */
+        private ResolvedColumns(Code code, Locale[] locales, ResolvedColumn[] columns) {
+            this.code = code;
+            this.locales = locales;
+            this.columns = columns;
+        }
+
+        /**
+         * 指定された言語に対応するオプション名称の列を検索する。
+         * <p/>
+         * 同じインスタンスの言語を優先して検索し、見つからない場合は{@link Locale#equals(Object)}で比較する。
+         *
+         * @param locale 言語
+         * @return オプション名称の列。保持していない場合はnull
+         */
+        private ResolvedColumn find(Locale locale) {
+            for (int i = 0; i < locales.length; i++) {
+                if (locales[i] == locale) {
+                    return columns[i];
+                }
+            }
+            for (int i = 0; i < locales.length; i++) {
+                if (locales[i].equals(locale)) {
+                    return columns[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 言語ごとのデータから解決したオプション名称の列を検索する。
+         *
+         * @param index 言語ごとのデータ
+         * @return オプション名称の列。保持していない場合はnull
+         */
+        private ResolvedColumn findByIndex(LocalizedCodeIndex index) {
+            for (ResolvedColumn column : columns) {
+                if (column.index == index) {
+                    return column;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 指定された言語に対応するオプション名称の列を追加したものを生成する。
+         *
+         * @param locale 言語
+         * @param column オプション名称の列
+         * @return 追加したもの
+         */
+        private ResolvedColumns add(Locale locale, ResolvedColumn column) {
+            Locale[] newLocales = Arrays.copyOf(locales, locales.length + 1);
+            newLocales[locales.length] = locale;
+            ResolvedColumn[] newColumns = Arrays.copyOf(columns, columns.length + 1);
+            newColumns[columns.length] = column;
+            return new ResolvedColumns(code, newLocales, newColumns);
+        }
+    }
+
+    /**
+     * 解決済みのオプション名称の列。
+     */
+    final class ResolvedColumn {
+
+        /** 解決に使用した言語ごとのデータ */
+        private final LocalizedCodeIndex index;
+
+        /** オプション名称(ソート順) */
+        private final String[] names;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param index 解決に使用した言語ごとのデータ
+         * @param names オプション名称(ソート順)
+         */
+        private ResolvedColumn(LocalizedCodeIndex index, String[] names) {
+            this.index = index;
+            this.names = names;
+        }
+
+        /**
+         * コード値のソート順での位置を取得する。
+         *
+         * @param value コード値
+         * @return ソート順での位置
+         * @throws IllegalArgumentException コード値が存在しない場合
+         */
+        int positionOf(String value) throws IllegalArgumentException {
+            int position = index.findPosition(value);
+            if (position < 0) {
+                throw notFound(value);
+            }
+            return position;
+        }
+
+        /**
+         * オプション名称の列を型変換する。
+         *
+         * @param type 型変換の種類
+         * @return 型変換したオプション名称
+         * @throws IllegalArgumentException 型変換できないオプション名称が存在した場合
+         */
+        ParsedOptionColumn parse(ParsedOptionColumn.Type type) throws IllegalArgumentException {
+            return index.getParsedOptionalNames(optionColumnName, type, codeManager.getOptionDatePattern());
+        }
+
+        /**
+         * 型変換したオプション名称が存在するコード値の、ソート順での位置を取得する。
+         *
+         * @param parsed 型変換したオプション名称
+         * @param value コード値
+         * @return ソート順での位置
+         * @throws IllegalArgumentException コード値またはオプション名称が存在しない場合
+         */
+        int parsedPositionOf(ParsedOptionColumn parsed, String value) throws IllegalArgumentException {
+            int position = positionOf(value);
+            if (!parsed.isPresent(position)) {
+                throw notFound(value);
+            }
+            return position;
+        }
+
+        /**
+         * コード値に対応するオプション名称を取得する。
+         *
+         * @param value コード値
+         * @return オプション名称
+         * @throws IllegalArgumentException コード値またはオプション名称が存在しない場合
+         */
+        String getName(String value) throws IllegalArgumentException {
+            String name = names[positionOf(value)];
+            if (name == null) {
+                throw notFound(value);
+            }
+            return name;
+        }
+
+        /**
+         * オプション名称が存在しない場合の例外を生成する。
+         *
+         * @param value コード値
+         * @return 例外
+         */
+        private IllegalArgumentException notFound(String value) {
+            return new IllegalArgumentException("option name was not found."
+                    + " code id = " + codeId
+                    + ", locale = " + index.getLocale()
+                    + ", value = " + value
+                    + ", option name = " + optionColumnName);
+        }
+    }
+}
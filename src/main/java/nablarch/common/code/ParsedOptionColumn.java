@@ -0,0 +1,208 @@
+package nablarch.common.code;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * オプション名称を型変換した値を、型ごとの配列でソート順に保持するクラス。
+ * <p/>
+ * 空文字列のオプション名称は、オプション名称が存在しないものとして扱う。
+ * 型変換はオプション名称の列の全てのコード値に対して一度だけ行い、変換できない値が存在する場合は、
+ * 変換できなかった全てのコード値をまとめて例外で通知する。
+ */
+final class ParsedOptionColumn {
+
+    /**
+     * 型変換の種類。
+     */
+    enum Type {
+        /** int */
+        INT,
+        /** long */
+        LONG,
+        /** {@link BigDecimal} */
+        DECIMAL,
+        /** boolean */
+        BOOLEAN,
+        /** 日付 */
+        DATE
+    }
+
+    /** オプション名称が存在するコード値の位置 */
+    private final BitSet present;
+
+    /** int値(型がINTの場合のみ) */
+    private final int[] ints;
+
+    /** long値(型がLONGの場合はlong値、DATEの場合はエポックミリ秒) */
+    private final long[] longs;
+
+    /** boolean値(型がBOOLEANの場合のみ) */
+    private final boolean[] booleans;
+
+    /** {@link BigDecimal}値(型がDECIMALの場合のみ) */
+    private final BigDecimal[] decimals;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param type 型変換の種類
+     * @param size コード値の数
+     */
+    private ParsedOptionColumn(Type type, int size) {
+        present = new BitSet(size);
+        ints = type == Type.INT ? new int[size] : null;
+        longs = type == Type.LONG || type == Type.DATE ? new long[size] : null;
+        booleans = type == Type.BOOLEAN ? new boolean[size] : null;
+        decimals = type == Type.DECIMAL ? new BigDecimal[size] : null;
+    }
+
+    /**
+     * オプション名称の列を型変換する。
+     * <p/>
+     * booleanは、"1"、"true"をtrue、"0"、"false"をfalseに変換する(大文字・小文字は区別しない)。
+     * 日付は、datePatternで指定した書式({@link SimpleDateFormat}の書式)で厳密に解析する。
+     *
+     * @param type 型変換の種類
+     * @param datePattern 日付の書式(型がDATEの場合のみ使用する)
+     * @param values コード値(ソート順)
+     * @param names オプション名称(ソート順)。オプション名称が存在しないコード値はnull
+     * @return 型変換した値
+     * @throws IllegalArgumentException 型変換できないオプション名称が存在した場合。
+     */
+    static ParsedOptionColumn parse(Type type, String datePattern, List<String> values, String[] names)
+            throws IllegalArgumentException {
+        ParsedOptionColumn result = new ParsedOptionColumn(type, names.length);
+        SimpleDateFormat dateFormat = null;
+        if (type == Type.DATE) {
+            dateFormat = new SimpleDateFormat(datePattern);
+            dateFormat.setLenient(false);
+        }
+        List<String> failures = new ArrayList<String>();
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if (name == null || name.length() == 0) {
+                continue;
+            }
+            try {
+                switch (type) {
+                    case INT:
+                        result.ints[i] = Integer.parseInt(name);
+                        break;
+                    case LONG:
+                        result.longs[i] = Long.parseLong(name);
+                        break;
+                    case DECIMAL:
+                        result.decimals[i] = new BigDecimal(name);
+                        break;
+                    case BOOLEAN:
+                        result.booleans[i] = parseBoolean(name);
+                        break;
+                    default:
+                        result.longs[i] = parseDate(dateFormat, name);
+                        break;
+                }
+                result.present.set(i);
+            } catch (NumberFormatException e) {
+                failures.add(values.get(i) + '=' + name);
+            } catch (ParseException e) {
+                failures.add(values.get(i) + '=' + name);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalArgumentException("option name could not be converted to " + type
+                    + ". invalid values = " + failures);
+        }
+        return result;
+    }
+
+    /**
+     * 文字列をbooleanに変換する。
+     *
+     * @param name 文字列
+     * @return 変換結果
+     * @throws NumberFormatException booleanに変換できない場合
+     */
+    private static boolean parseBoolean(String name) throws NumberFormatException {
+        if ("1".equals(name) || "true".equalsIgnoreCase(name)) {
+            return true;
+        }
+        if ("0".equals(name) || "false".equalsIgnoreCase(name)) {
+            return false;
+        }
+        throw new NumberFormatException(name);
+    }
+
+    /**
+     * 文字列を日付(エポックミリ秒)に変換する。
+     *
+     * @param dateFormat 日付の書式
+     * @param name 文字列
+     * @return エポックミリ秒
+     * @throws ParseException 日付に変換できない場合
+     */
+    private static long parseDate(SimpleDateFormat dateFormat, String name) throws ParseException {
+        ParsePosition position = new ParsePosition(0);
+        Date date = dateFormat.parse(name, position);
+        if (date == null || position.getIndex() != name.length()) {
+            throw new ParseException(name, position.getErrorIndex());
+        }
+        return date.getTime();
+    }
+
+    /**
+     * 指定した位置のオプション名称が存在するか否か。
+     *
+     * @param position ソート順での位置
+     * @return 存在する場合true
+     */
+    boolean isPresent(int position) {
+        return present.get(position);
+    }
+
+    /**
+     * int値を取得する。
+     *
+     * @param position ソート順での位置
+     * @return int値
+     */
+    int getInt(int position) {
+        return ints[position];
+    }
+
+    /**
+     * long値を取得する。
+     *
+     * @param position ソート順での位置
+     * @return long値(型がDATEの場合はエポックミリ秒)
+     */
+    long getLong(int position) {
+        return longs[position];
+    }
+
+    /**
+     * boolean値を取得する。
+     *
+     * @param position ソート順での位置
+     * @return boolean値
+     */
+    boolean getBoolean(int position) {
+        return booleans[position];
+    }
+
+    /**
+     * {@link BigDecimal}値を取得する。
+     *
+     * @param position ソート順での位置
+     * @return {@link BigDecimal}値
+     */
+    BigDecimal getDecimal(int position) {
+        return decimals[position];
+    }
+}
@@ -0,0 +1,53 @@
+package nablarch.common.code;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 名称からコード値のソート順での位置を検索するインデックス。
+ * <p/>
+ * 同一の名称を持つコード値が複数存在する場合は、その全ての位置を昇順に保持する。
+ */
+final class ReverseLookupIndex {
+
+    /** 空の位置のリスト */
+    private static final int[] EMPTY = new int[0];
+
+    /** 名称と位置のリストのMap */
+    private final Map<String, int[]> positions;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param names 名称(ソート順)。名称が存在しないコード値はnull
+     */
+    ReverseLookupIndex(String[] names) {
+        Map<String, IntArrayBuilder> builders = new HashMap<String, IntArrayBuilder>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                continue;
+            }
+            IntArrayBuilder builder = builders.get(names[i]);
+            if (builder == null) {
+                builder = new IntArrayBuilder();
+                builders.put(names[i], builder);
+            }
+            builder.add(i);
+        }
+        positions = new HashMap<String, int[]>(builders.size() * 2);
+        for (Map.Entry<String, IntArrayBuilder> entry : builders.entrySet()) {
+            positions.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * 名称に対応する位置を取得する。
+     *
+     * @param name 名称
+     * @return 位置のリスト(昇順)。名称が存在しない場合は空の配列
+     */
+    int[] get(String name) {
+        int[] found = positions.get(name);
+        return found == null ? EMPTY : found;
+    }
+}
@@ -0,0 +1,99 @@
+package nablarch.common.code;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * コードの読み込み中に、等しい文字列を1つのインスタンスにまとめるクラス。
+ * <p/>
+ * コード値("0", "1", "01"など)や名称("その他"など)は、言語やコードIDをまたいで繰り返し出現する。
+ * 読み込んだ文字列を本クラスに通すことで、キャッシュに保持する文字列のインスタンスを共有し、メモリ使用量を削減する。
+ * <p/>
+ * 本クラスは読み込み処理の間だけ使用し、読み込み完了後は破棄する。複数のスレッドから同時に使用できる。
+ */
+final class StringPool {
+
+    /** 文字列1つあたりの固定のサイズ(Stringと配列のオブジェクトヘッダ等の概算) */
+    private static final int STRING_OVERHEAD = 40;
+
+    /** 保持している文字列 */
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+    /** 共有したインスタンスに置き換えた文字列の数 */
+    private final AtomicLong deduplicated = new AtomicLong();
+
+    /** 置き換えにより削減したメモリ量(バイト数の概算) */
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * 等しい文字列を保持している場合は、保持している文字列を返す。
+     *
+     * @param value 文字列
+     * @return 保持している文字列。保持していない場合は、指定した文字列を保持して返す。nullの場合はnull
+     */
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = strings.putIfAbsent(value, value);
+        if (pooled == null) {
+            return value;
+        }
+        if (pooled != value) {
+            deduplicated.incrementAndGet();
+            savedBytes.addAndGet(estimateSize(value));
+        }
+        return pooled;
+    }
+
+    /**
+     * 配列の要素の文字列を、保持している文字列に置き換える。
+     *
+     * @param values 文字列の配列(要素を置き換える)
+     * @return 指定した配列
+     */
+    String[] intern(String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = intern(values[i]);
+        }
+        return values;
+    }
+
+    /**
+     * 文字列が使用するメモリ量を概算する。
+     *
+     * @param value 文字列
+     * @return メモリ量(バイト数の概算)。nullの場合は0
+     */
+    static long estimateSize(String value) {
+        return value == null ? 0L : STRING_OVERHEAD + 2L * value.length();
+    }
+
+    /**
+     * 保持している文字列の数を取得する。
+     *
+     * @return 保持している文字列の数
+     */
+    int size() {
+        return strings.size();
+    }
+
+    /**
+     * 共有したインスタンスに置き換えた文字列の数を取得する。
+     *
+     * @return 置き換えた文字列の数
+     */
+    long getDeduplicated() {
+        return deduplicated.get();
+    }
+
+    /**
+     * 置き換えにより削減したメモリ量を取得する。
+     *
+     * @return 削減したメモリ量(バイト数の概算)
+     */
+    long getSavedBytes() {
+        return savedBytes.get();
+    }
+}
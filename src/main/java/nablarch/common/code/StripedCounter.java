@@ -0,0 +1,62 @@
+package nablarch.common.code;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 複数のスレッドから加算される回数を、スレッドごとに分散したセルで数えるクラス。
+ * <p/>
+ * 1つの値を全てのスレッドで更新すると競合するため、スレッドIDに応じたセルを加算し、取得時に全てのセルを合計する。
+ * セルの数はプロセッサ数以上の2のべき乗({@value #MAX_STRIPES}まで)とし、
+ * 異なるセルがキャッシュラインを共有しないよう間隔を空けて配置する。
+ */
+final class StripedCounter {
+
+    /** セルの最大数 */
+    static final int MAX_STRIPES = 16;
+
+    /** セルの間隔(64バイト分のlong値の数) */
+    private static final int PADDING = 8;
+
+    /** セルの数 */
+    private static final int STRIPES = stripes();
+
+    /** セル */
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * 回数を1加算する。
+     */
+    void increment() {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.incrementAndGet(stripe * PADDING);
+    }
+
+    /**
+     * 回数を取得する。
+     * <p/>
+     * 取得中に加算された回数は、含まれない場合がある。
+     *
+     * @return 全てのセルの合計
+     */
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * セルの数を決定する。
+     *
+     * @return プロセッサ数以上の2のべき乗({@value #MAX_STRIPES}まで)
+     */
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,463 @@
+package nablarch.common.code;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * テナントごとの差分を共通のコードに重ねて提供する{@link CodeManager}の実装クラス。
+ * <p/>
+ * コードの大部分をテナント間で共有し、一部の名称の上書きやコード値の追加のみがテナントごとに異なる場合に使用する。
+ * 共通のコードは{@link #setBaseCodeManager(CodeManager)}で設定した{@link CodeManager}から取得し、
+ * テナントごとの差分({@link CodeOverlay})のみをテナント単位で保持する。
+ * このため、テナントごとに必要なメモリは差分の量に比例する。
+ * <p/>
+ * 対象のテナントは、{@link #setTenantKey(String)}で設定したキーで{@link ThreadContext}から取得する。
+ * {@link ThreadContext}に依存せずにテナントを指定する場合は、{@link #forTenant(String)}で取得した
+ * {@link CodeManager}を使用する。言語も固定する場合は、{@link #forTenant(String, Locale)}を使用する。
+ * テナントを取得できない場合や、テナントに差分が登録されていない場合は、共通のコードをそのまま返す。
+ */
+@Published(tag = "architect")
+public class TenantCodeManager implements CodeManager {
+
+    /** テナントIDを格納する{@link ThreadContext}のキーのデフォルト値 */
+    private static final String DEFAULT_TENANT_KEY = "tenantId";
+
+    /** 共通のコードを提供する{@link CodeManager} */
+    private CodeManager baseCodeManager;
+
+    /** テナントIDを格納する{@link ThreadContext}のキー */
+    private String tenantKey = DEFAULT_TENANT_KEY;
+
+    /** 差分が登録されていない場合のテナント */
+    private final TenantScope baseScope = new TenantScope(Collections.<String, CodeOverlay>emptyMap());
+
+    /** テナントIDとテナントのMap */
+    private volatile Map<String, TenantScope> tenantScopes = Collections.emptyMap();
+
+    /**
+     * 共通のコードを提供する{@link CodeManager}を設定する。
+     *
+     * @param baseCodeManager 共通のコードを提供する{@link CodeManager}
+     */
+    public void setBaseCodeManager(CodeManager baseCodeManager) {
+        this.baseCodeManager = baseCodeManager;
+    }
+
+    /**
+     * テナントIDを格納する{@link ThreadContext}のキーを設定する。(デフォルトは"tenantId")
+     *
+     * @param tenantKey テナントIDを格納する{@link ThreadContext}のキー
+     */
+    public void setTenantKey(String tenantKey) {
+        this.tenantKey = tenantKey;
+    }
+
+    /**
+     * テナントごとの差分を設定する。<br/>
+     *
+     * 設定済みの差分は全て置き換える。
+     * 同じテナントID、コードIDの差分が複数含まれる場合は例外を送出する。
+     *
+     * @param overlays テナントごとの差分
+     * @throws IllegalArgumentException 同じテナントID、コードIDの差分が複数含まれる場合
+     */
+    public void setOverlays(List<CodeOverlay> overlays) throws IllegalArgumentException {
+        Map<String, Map<String, CodeOverlay>> byTenant = new HashMap<String, Map<String, CodeOverlay>>();
+        for (CodeOverlay overlay : overlays) {
+            Map<String, CodeOverlay> byCodeId = byTenant.get(overlay.getTenantId());
+            if (byCodeId == null) {
+                byCodeId = new HashMap<String, CodeOverlay>();
+                byTenant.put(overlay.getTenantId(), byCodeId);
+            }
+            if (byCodeId.put(overlay.getCodeId(), overlay) != null) {
+                throw new IllegalArgumentException("overlay is duplicated."
+                        + " tenant id = " + overlay.getTenantId()
+                        + ", code id = " + overlay.getCodeId());
+            }
+        }
+        Map<String, TenantScope> scopes = new HashMap<String, TenantScope>(byTenant.size() * 2);
+        for (Map.Entry<String, Map<String, CodeOverlay>> entry : byTenant.entrySet()) {
+            scopes.put(entry.getKey(), new TenantScope(entry.getValue()));
+        }
+        tenantScopes = scopes;
+    }
+
+    /**
+     * 指定したテナントのコードを提供する{@link CodeManager}を取得する。<br/>
+     *
+     * 取得した{@link CodeManager}は{@link ThreadContext}からテナントを取得しない。
+     * 差分を再設定した場合は、再設定後の差分を参照する。
+     *
+     * @param tenantId テナントID
+     * @return 指定したテナントのコードを提供する{@link CodeManager}
+     */
+    public CodeManager forTenant(String tenantId) {
+        return new TenantView(tenantId, null, baseCodeManager);
+    }
+
+    /**
+     * 指定したテナントのコードを、指定した言語で提供する{@link CodeManager}を取得する。<br/>
+     *
+     * 取得した{@link CodeManager}は{@link ThreadContext}からテナントと言語のいずれも取得せず、
+     * 言語を指定しないメソッドでも指定した言語を使用する。
+     * 共通のコードを提供する{@link CodeManager}が{@link BasicCodeManager}の場合は、
+     * {@link BasicCodeManager#withLocale(Locale)}で言語を固定して使用する。
+     *
+     * @param tenantId テナントID
+     * @param locale 言語
+     * @return 指定したテナントのコードを指定した言語で提供する{@link CodeManager}
+     * @throws IllegalArgumentException 言語がnullの場合
+     */
+    public CodeManager forTenant(String tenantId, Locale locale) throws IllegalArgumentException {
+        if (locale == null) {
+            throw new IllegalArgumentException("locale must not be null.");
+        }
+        CodeManager base = baseCodeManager instanceof BasicCodeManager
+                ? ((BasicCodeManager) baseCodeManager).withLocale(locale)
+                : baseCodeManager;
+        return new TenantView(tenantId, locale, base);
+    }
+
+    /**
+     * テナントIDに対応するテナントを取得する。
+     *
+     * @param tenantId テナントID
+     * @return テナント。差分が登録されていない場合は共通のコードのみを提供するテナント
+     */
+    private TenantScope getScope(Object tenantId) {
+        if (tenantId == null) {
+            return baseScope;
+        }
+        TenantScope scope = tenantScopes.get(tenantId.toString());
+        return scope == null ? baseScope : scope;
+    }
+
+    /**
+     * {@link ThreadContext}から取得したテナントを取得する。
+     *
+     * @return テナント
+     */
+    private TenantScope getCurrentScope() {
+        return getScope(ThreadContext.getObject(tenantKey));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getName(String codeId, String value) throws IllegalArgumentException {
+        return getCurrentScope().getName(codeId, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+        return getCurrentScope().getName(codeId, value, locale);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getShortName(String codeId, String value) throws IllegalArgumentException {
+        return getCurrentScope().getShortName(codeId, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getShortName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+        return getCurrentScope().getShortName(codeId, value, locale);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getOptionalName(String codeId, String value, String optionColumnName)
+            throws IllegalArgumentException {
+        return getCurrentScope().getOptionalName(codeId, value, optionColumnName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getOptionalName(String codeId, String value, String optionColumnName, Locale locale)
+            throws IllegalArgumentException {
+        return getCurrentScope().getOptionalName(codeId, value, optionColumnName, locale);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<String> getValues(String codeId) throws IllegalArgumentException {
+        return getCurrentScope().getValues(codeId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<String> getValues(String codeId, String pattern) throws IllegalArgumentException {
+        return getCurrentScope().getValues(codeId, pattern);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<String> getValues(String codeId, Locale locale) throws IllegalArgumentException {
+        return getCurrentScope().getValues(codeId, locale);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<String> getValues(String codeId, String pattern, Locale locale) throws IllegalArgumentException {
+        return getCurrentScope().getValues(codeId, pattern, locale);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(String codeId, String value) throws IllegalArgumentException {
+        return getCurrentScope().contains(codeId, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(String codeId, String pattern, String value) throws IllegalArgumentException {
+        return getCurrentScope().contains(codeId, pattern, value);
+    }
+
+    /**
+     * 1つのテナントの差分を共通のコードに重ねて提供するクラス。
+     */
+    private final class TenantScope implements CodeManager {
+
+        /** コードIDと差分のMap */
+        private final Map<String, CodeOverlay> overlays;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param overlays コードIDと差分のMap
+         */
+        private TenantScope(Map<String, CodeOverlay> overlays) {
+            this.overlays = overlays;
+        }
+
+        @Override
+        public String getName(String codeId, String value) throws IllegalArgumentException {
+            return getName(codeId, value, BasicCodeManager.getLanguage());
+        }
+
+        @Override
+        public String getName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+            CodeOverlay overlay = overlays.get(codeId);
+            String name = overlay == null ? null : overlay.getName(value, locale);
+            return name != null ? name : baseCodeManager.getName(codeId, value, locale);
+        }
+
+        @Override
+        public String getShortName(String codeId, String value) throws IllegalArgumentException {
+            return getShortName(codeId, value, BasicCodeManager.getLanguage());
+        }
+
+        @Override
+        public String getShortName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+            CodeOverlay overlay = overlays.get(codeId);
+            String shortName = overlay == null ? null : overlay.getShortName(value, locale);
+            return shortName != null ? shortName : baseCodeManager.getShortName(codeId, value, locale);
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName)
+                throws IllegalArgumentException {
+            return getOptionalName(codeId, value, optionColumnName, BasicCodeManager.getLanguage());
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName, Locale locale)
+                throws IllegalArgumentException {
+            CodeOverlay overlay = overlays.get(codeId);
+            String optionalName = overlay == null ? null : overlay.getOptionalName(value, optionColumnName, locale);
+            return optionalName != null
+                    ? optionalName
+                    : baseCodeManager.getOptionalName(codeId, value, optionColumnName, locale);
+        }
+
+        @Override
+        public List<String> getValues(String codeId) throws IllegalArgumentException {
+            return getValues(codeId, BasicCodeManager.getLanguage());
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern) throws IllegalArgumentException {
+            return getValues(codeId, pattern, BasicCodeManager.getLanguage());
+        }
+
+        @Override
+        public List<String> getValues(String codeId, Locale locale) throws IllegalArgumentException {
+            List<String> values = baseCodeManager.getValues(codeId, locale);
+            CodeOverlay overlay = overlays.get(codeId);
+            return overlay == null ? values : overlay.merge(values, "", locale, baseCodeManager);
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern, Locale locale) throws IllegalArgumentException {
+            List<String> values = baseCodeManager.getValues(codeId, pattern, locale);
+            CodeOverlay overlay = overlays.get(codeId);
+            return overlay == null ? values : overlay.merge(values, pattern, locale, baseCodeManager);
+        }
+
+        @Override
+        public boolean contains(String codeId, String value) throws IllegalArgumentException {
+            return contains(baseCodeManager, codeId, value);
+        }
+
+        @Override
+        public boolean contains(String codeId, String pattern, String value) throws IllegalArgumentException {
+            return contains(baseCodeManager, codeId, pattern, value);
+        }
+
+        /**
+         * 指定した共通のコードを使用して、コード値が存在するか判定する。
+         *
+         * @param base 共通のコードを提供する{@link CodeManager}
+         * @param codeId コードID
+         * @param value コード値
+         * @return コード値が存在する場合true
+         * @throws IllegalArgumentException 指定したコードIDが存在しない場合
+         */
+        private boolean contains(CodeManager base, String codeId, String value) throws IllegalArgumentException {
+            CodeOverlay overlay = overlays.get(codeId);
+            if (overlay != null && overlay.containsAddedValue(value)) {
+                return true;
+            }
+            return base.contains(codeId, value);
+        }
+
+        /**
+         * 指定した共通のコードを使用して、コード値がパターンに含まれるか判定する。
+         *
+         * @param base 共通のコードを提供する{@link CodeManager}
+         * @param codeId コードID
+         * @param pattern 使用するパターンのカラム名
+         * @param value コード値
+         * @return コード値がパターンに含まれる場合true
+         * @throws IllegalArgumentException 指定したコードIDまたはパターンが存在しない場合
+         */
+        private boolean contains(CodeManager base, String codeId, String pattern, String value)
+                throws IllegalArgumentException {
+            CodeOverlay overlay = overlays.get(codeId);
+            if (overlay != null && overlay.containsAddedValue(pattern, value)) {
+                return true;
+            }
+            return base.contains(codeId, pattern, value);
+        }
+    }
+
+    /**
+     * テナント(および言語)を固定して{@link TenantCodeManager}のコードを提供するクラス。
+     */
+    private final class TenantView implements CodeManager {
+
+        /** テナントID */
+        private final String tenantId;
+
+        /** 言語(固定しない場合はnull) */
+        private final Locale locale;
+
+        /** 共通のコードを提供する{@link CodeManager} */
+        private final CodeManager base;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param tenantId テナントID
+         * @param locale 言語(固定しない場合はnull)
+         * @param base 共通のコードを提供する{@link CodeManager}
+         */
+        private TenantView(String tenantId, Locale locale, CodeManager base) {
+            this.tenantId = tenantId;
+            this.locale = locale;
+            this.base = base;
+        }
+
+        @Override
+        public String getName(String codeId, String value) throws IllegalArgumentException {
+            return locale != null
+                    ? getScope(tenantId).getName(codeId, value, locale)
+                    : getScope(tenantId).getName(codeId, value);
+        }
+
+        @Override
+        public String getName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+            return getScope(tenantId).getName(codeId, value, locale);
+        }
+
+        @Override
+        public String getShortName(String codeId, String value) throws IllegalArgumentException {
+            return locale != null
+                    ? getScope(tenantId).getShortName(codeId, value, locale)
+                    : getScope(tenantId).getShortName(codeId, value);
+        }
+
+        @Override
+        public String getShortName(String codeId, String value, Locale locale) throws IllegalArgumentException {
+            return getScope(tenantId).getShortName(codeId, value, locale);
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName)
+                throws IllegalArgumentException {
+            return locale != null
+                    ? getScope(tenantId).getOptionalName(codeId, value, optionColumnName, locale)
+                    : getScope(tenantId).getOptionalName(codeId, value, optionColumnName);
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName, Locale locale)
+                throws IllegalArgumentException {
+            return getScope(tenantId).getOptionalName(codeId, value, optionColumnName, locale);
+        }
+
+        @Override
+        public List<String> getValues(String codeId) throws IllegalArgumentException {
+            return locale != null
+                    ? getScope(tenantId).getValues(codeId, locale)
+                    : getScope(tenantId).getValues(codeId);
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern) throws IllegalArgumentException {
+            return locale != null
+                    ? getScope(tenantId).getValues(codeId, pattern, locale)
+                    : getScope(tenantId).getValues(codeId, pattern);
+        }
+
+        @Override
+        public List<String> getValues(String codeId, Locale locale) throws IllegalArgumentException {
+            return getScope(tenantId).getValues(codeId, locale);
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern, Locale locale) throws IllegalArgumentException {
+            return getScope(tenantId).getValues(codeId, pattern, locale);
+        }
+
+        @Override
+        public boolean contains(String codeId, String value) throws IllegalArgumentException {
+            return getScope(tenantId).contains(base, codeId, value);
+        }
+
+        @Override
+        public boolean contains(String codeId, String pattern, String value) throws IllegalArgumentException {
+            return getScope(tenantId).contains(base, codeId, pattern, value);
+        }
+    }
+}
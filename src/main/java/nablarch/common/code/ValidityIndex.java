@@ -0,0 +1,184 @@
+package nablarch.common.code;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * コード値の有効期間から、日時ごとに有効なコード値を検索するインデックス。
+ * <p/>
+ * コード値ごとの有効期間の開始日時・終了日時を位置ごとの配列で保持し、
+ * コード値が有効かの判定は、その位置の開始日時・終了日時との比較のみで行う。
+ * <p/>
+ * 全てのコード値の有効期間の開始日時・終了日時を境界として時間軸を区間に分割し、
+ * 有効なコード値の一覧は、要求された区間についてのみ生成してキャッシュする。
+ * 一覧は有効なコード値の位置の配列と、コード値のリストを参照するビューで構成する。
+ * キャッシュはパターンごとに{@value #MAX_CACHED_SEGMENTS}区間分とし、区間の番号で格納先を決めて古い区間を置き換える。
+ * このため、メモリ使用量は境界の数に比例しない。
+ * <p/>
+ * 有効期間は開始日時を含み、終了日時を含まない。
+ */
+final class ValidityIndex {
+
+    /** コード値ごとの有効期間の開始日時(ソート順) */
+    private final long[] validFrom;
+
+    /** コード値ごとの有効期間の終了日時(ソート順) */
+    private final long[] validTo;
+
+    /** 区間の境界(昇順、重複なし) */
+    private final long[] boundaries;
+
+    /** パターンごとにキャッシュする区間の数(2のべき乗) */
+    static final int MAX_CACHED_SEGMENTS = 8;
+
+    /** パターン(パターンを使用しない場合は空文字列)と、キャッシュした区間の有効なコード値のリストのMap */
+    private final ConcurrentMap<String, AtomicReferenceArray<SegmentValues>> segmentValues
+            = new ConcurrentHashMap<String, AtomicReferenceArray<SegmentValues>>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param validFrom コード値ごとの有効期間の開始日時(ソート順)。開始日時がない場合は{@link Long#MIN_VALUE}
+     * @param validTo コード値ごとの有効期間の終了日時(ソート順)。終了日時がない場合は{@link Long#MAX_VALUE}
+     */
+    ValidityIndex(long[] validFrom, long[] validTo) {
+        this.validFrom = validFrom;
+        this.validTo = validTo;
+        long[] all = new long[validFrom.length * 2];
+        int count = 0;
+        for (int i = 0; i < validFrom.length; i++) {
+            if (validFrom[i] != Long.MIN_VALUE) {
+                all[count++] = validFrom[i];
+            }
+            if (validTo[i] != Long.MAX_VALUE) {
+                all[count++] = validTo[i];
+            }
+        }
+        Arrays.sort(all, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || all[distinct - 1] != all[i]) {
+                all[distinct++] = all[i];
+            }
+        }
+        boundaries = Arrays.copyOf(all, distinct);
+    }
+
+    /**
+     * 指定した位置のコード値が、日時に有効か否かを判定する。
+     *
+     * @param position コード値の位置
+     * @param time 日時(エポックミリ秒)
+     * @return 有効な場合true
+     */
+    boolean isValid(int position, long time) {
+        return validFrom[position] <= time && time < validTo[position];
+    }
+
+    /**
+     * 日時が含まれる区間を取得する。
+     *
+     * @param time 日時(エポックミリ秒)
+     * @return 区間
+     */
+    int segmentOf(long time) {
+        int index = Arrays.binarySearch(boundaries, time);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * 区間で有効なコード値の位置を取得する。
+     *
+     * @param segment 区間
+     * @param filter 対象とする位置(全ての位置を対象とする場合はnull)
+     * @return 有効なコード値の位置(昇順)
+     */
+    int[] getValidPositions(int segment, BitSet filter) {
+        // 区間内では有効なコード値が変わらないため、区間の開始日時で判定する
+        long time = segment == 0 ? Long.MIN_VALUE : boundaries[segment - 1];
+        IntArrayBuilder result = new IntArrayBuilder();
+        for (int i = 0; i < validFrom.length; i++) {
+            if (isValid(i, time) && (filter == null || filter.get(i))) {
+                result.add(i);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * 日時時点で有効なコード値のリストを取得する。
+     * <p/>
+     * パターンは呼び出し元で存在を確認し、パターンに含まれるコード値の位置を指定すること。
+     *
+     * @param values コード値のリスト(ソート順)
+     * @param pattern パターン(パターンを使用しない場合はnull)
+     * @param patternPositions パターンに含まれるコード値の位置(パターンを使用しない場合はnull)
+     * @param time 日時(エポックミリ秒)
+     * @return 有効なコード値の変更不可能なリスト(ソート順)
+     */
+    List<String> getValidValues(List<String> values, String pattern, BitSet patternPositions, long time) {
+        int segment = segmentOf(time);
+        String key = pattern == null ? "" : pattern;
+        AtomicReferenceArray<SegmentValues> cache = segmentValues.get(key);
+        if (cache == null) {
+            segmentValues.putIfAbsent(key, new AtomicReferenceArray<SegmentValues>(MAX_CACHED_SEGMENTS));
+            cache = segmentValues.get(key);
+        }
+        int slot = segment & (MAX_CACHED_SEGMENTS - 1);
+        SegmentValues cached = cache.get(slot);
+        if (cached == null || cached.segment != segment) {
+            cached = new SegmentValues(segment, values, getValidPositions(segment, patternPositions));
+            cache.set(slot, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * 区間で有効なコード値の、変更不可能なリスト。
+     * <p/>
+     * コード値のリストを複製せず、有効なコード値の位置のみを保持する。
+     */
+    private static final class SegmentValues extends AbstractList<String> implements RandomAccess {
+
+        /** 区間 */
+        private final int segment;
+
+        /** コード値のリスト(ソート順) */
+        private final List<String> values;
+
+        /** 有効なコード値の位置(昇順) */
+        private final int[] positions;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param segment 区間
+         * @param values コード値のリスト(ソート順)
+         * @param positions 有効なコード値の位置(昇順)
+         */
+        private SegmentValues(int segment, List<String> values, int[] positions) {
+            this.segment = segment;
+            this.values = values;
+            this.positions = positions;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= positions.length) {
+                throw new IndexOutOfBoundsException("index = " + index + ", size = " + positions.length);
+            }
+            return values.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+}
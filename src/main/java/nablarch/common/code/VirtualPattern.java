@@ -0,0 +1,48 @@
+package nablarch.common.code;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 実行時に登録された、コードのテーブルに存在しないパターン(仮想パターン)の定義。
+ */
+final class VirtualPattern {
+
+    /** パターンに含めるコード値を選別する条件(コード値の集合で定義した場合はnull) */
+    private final CodeEntryFilter filter;
+
+    /** パターンに含めるコード値の集合(条件で定義した場合はnull) */
+    private final Set<String> values;
+
+    /**
+     * 条件で定義した仮想パターンを生成する。
+     *
+     * @param filter パターンに含めるコード値を選別する条件
+     */
+    VirtualPattern(CodeEntryFilter filter) {
+        this.filter = filter;
+        values = null;
+    }
+
+    /**
+     * コード値の集合で定義した仮想パターンを生成する。
+     *
+     * @param values パターンに含めるコード値
+     */
+    VirtualPattern(Collection<String> values) {
+        filter = null;
+        this.values = Collections.unmodifiableSet(new HashSet<String>(values));
+    }
+
+    /**
+     * エントリがパターンに含まれるか判定する。
+     *
+     * @param entry コード値と名称のエントリ
+     * @return パターンに含まれる場合true
+     */
+    boolean accept(CodeEntry entry) {
+        return filter != null ? filter.accept(entry) : values.contains(entry.getValue());
+    }
+}
@@ -0,0 +1,86 @@
+package nablarch.common.code.validator;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link CodeColumnValidator}で検出した、コードに含まれない値の位置を表すクラス。
+ */
+@Published
+public final class CodeColumnError {
+
+    /** レコードの位置 */
+    private final int recordIndex;
+
+    /** カラムの位置 */
+    private final int columnIndex;
+
+    /** 値 */
+    private final String value;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param recordIndex レコードの位置
+     * @param columnIndex カラムの位置
+     * @param value 値
+     */
+    public CodeColumnError(int recordIndex, int columnIndex, String value) {
+        this.recordIndex = recordIndex;
+        this.columnIndex = columnIndex;
+        this.value = value;
+    }
+
+    /**
+     * レコードの位置を取得する。
+     *
+     * @return レコードの位置(0始まり)
+     */
+    public int getRecordIndex() {
+        return recordIndex;
+    }
+
+    /**
+     * カラムの位置を取得する。
+     *
+     * @return カラムの位置(0始まり)
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * 値を取得する。
+     *
+     * @return 値
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CodeColumnError)) {
+            return false;
+        }
+        CodeColumnError other = (CodeColumnError) o;
+        return recordIndex == other.recordIndex
+                && columnIndex == other.columnIndex
+                && (value == null ? other.value == null : value.equals(other.value));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = recordIndex;
+        result = 31 * result + columnIndex;
+        result = 31 * result + (value == null ? 0 : value.hashCode());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "record index = " + recordIndex + ", column index = " + columnIndex + ", value = " + value;
+    }
+}
@@ -0,0 +1,309 @@
+package nablarch.common.code.validator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import nablarch.common.code.BasicCodeManager;
+import nablarch.common.code.CodeTracer;
+import nablarch.common.code.CodeValueMatcher;
+import nablarch.core.util.StringUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * CSVや固定長ファイルのレコードなど、大量のレコードのカラムがコード値として有効であるかを一括でチェックするクラス。
+ *
+ * <p>
+ *   チェック対象のカラムの位置と、コードID・パターンの組み合わせ(スキーマ)をあらかじめ登録しておき、
+ *   {@link #validate(List)}などでレコードを一括でチェックする。
+ *   チェックのたびに{@link nablarch.common.code.CodeUtil}を経由してコードを検索せず、
+ *   チェック開始時に取得した{@link CodeValueMatcher}を全てのレコードに使用する。
+ *   null及び空文字列の値は、{@link CodeValue}と同様に有効な値として扱う。
+ * </p>
+ * <pre>
+ *   {@code CodeColumnValidator validator = new CodeColumnValidator(codeManager)
+ *           .addColumn(0, "0001")
+ *           .addColumn(3, "0002", "PATTERN1");
+ *   List<CodeColumnError> errors = validator.validate(records);}
+ * </pre>
+ * <p>
+ *   チェック対象の言語は、チェックを開始したスレッドの{@link nablarch.core.ThreadContext}で指定された言語とする。
+ *   本クラスはスキーマの登録後はスレッドセーフであり、複数のスレッドから同時に使用できる。
+ * </p>
+ */
+@Published
+public class CodeColumnValidator {
+
+    /** コードの値と名称を取り扱うクラス */
+    private final BasicCodeManager codeManager;
+
+    /** チェック対象のカラムの定義 */
+    private final List<ColumnDefinition> columns = new ArrayList<ColumnDefinition>();
+
+    /** チェックに要した時間を計測する{@link CodeTracer} */
+    private CodeTracer tracer = new CodeTracer("column validation", 0);
+
+    /**
+     * コンストラクタ。
+     *
+     * @param codeManager コードの値と名称を取り扱うクラス
+     */
+    public CodeColumnValidator(BasicCodeManager codeManager) {
+        this.codeManager = codeManager;
+    }
+
+    /**
+     * チェックに要した時間を計測するサンプリング間隔を設定する。(デフォルトは0)
+     * <p/>
+     * {@link #validate(List)}などの一括チェックの呼び出し回数に対して、指定した回数に1回、
+     * チェックに要した時間を{@link CodeTracer}のロガーにデバッグレベルで出力する。
+     * 0以下を指定した場合は計測しない。
+     *
+     * @param samplingInterval サンプリング間隔
+     */
+    public void setTraceSamplingInterval(int samplingInterval) {
+        tracer = new CodeTracer("column validation", samplingInterval);
+    }
+
+    /**
+     * チェック対象のカラムを追加する。
+     *
+     * @param columnIndex カラムの位置(0始まり)
+     * @param codeId コードID
+     * @return 本オブジェクト
+     */
+    public CodeColumnValidator addColumn(int columnIndex, String codeId) {
+        return addColumn(columnIndex, codeId, "");
+    }
+
+    /**
+     * チェック対象のカラムを追加する。<br/>
+     * 同じカラムに複数のコードIDまたはパターンを追加した場合は、その全てに含まれる値のみを有効とする。
+     *
+     * @param columnIndex カラムの位置(0始まり)
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名
+     * @return 本オブジェクト
+     */
+    public CodeColumnValidator addColumn(int columnIndex, String codeId, String pattern) {
+        if (columnIndex < 0) {
+            throw new IllegalArgumentException("column index must not be negative."
+                    + " column index = " + columnIndex);
+        }
+        // 同じカラムの定義が連続するよう、カラムの位置順に保持する
+        int insertAt = columns.size();
+        while (insertAt > 0 && columns.get(insertAt - 1).columnIndex > columnIndex) {
+            insertAt--;
+        }
+        columns.add(insertAt, new ColumnDefinition(columnIndex, codeId, pattern));
+        return this;
+    }
+
+    /**
+     * レコードをチェックする。
+     *
+     * @param records レコード(カラムの値の配列)のリスト
+     * @return コードに含まれない値の位置のリスト(レコードの位置、カラムの位置順)
+     * @throws IllegalArgumentException 登録したコードIDまたはパターンが存在しない場合
+     */
+    public List<CodeColumnError> validate(List<String[]> records) throws IllegalArgumentException {
+        long start = tracer.start();
+        List<CodeColumnError> errors = new ArrayList<CodeColumnError>();
+        validate(records, 0, records.size(), resolveMatchers(), errors);
+        if (start != CodeTracer.NOT_SAMPLED) {
+            tracer.end(start, createDetail(records.size(), errors.size()));
+        }
+        return errors;
+    }
+
+    /**
+     * レコードを指定された件数ごとに分割し、{@link ExecutorService}を使用して並列にチェックする。
+     *
+     * @param records レコード(カラムの値の配列)のリスト
+     * @param executor チェックに使用する{@link ExecutorService}
+     * @param chunkSize 1回のタスクでチェックするレコードの件数
+     * @return コードに含まれない値の位置のリスト(レコードの位置、カラムの位置順)
+     * @throws IllegalArgumentException 登録したコードIDまたはパターンが存在しない場合
+     */
+    public List<CodeColumnError> validate(final List<String[]> records, ExecutorService executor, int chunkSize)
+            throws IllegalArgumentException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be greater than 0."
+                    + " chunk size = " + chunkSize);
+        }
+        long start = tracer.start();
+        final CodeValueMatcher[] matchers = resolveMatchers();
+        List<Future<List<CodeColumnError>>> futures = new ArrayList<Future<List<CodeColumnError>>>();
+        for (int begin = 0; begin < records.size(); begin += chunkSize) {
+            final int from = begin;
+            final int to = Math.min(begin + chunkSize, records.size());
+            futures.add(executor.submit(new Callable<List<CodeColumnError>>() {
+                public List<CodeColumnError> call() {
+                    List<CodeColumnError> errors = new ArrayList<CodeColumnError>();
+                    validate(records, from, to, matchers, errors);
+                    return errors;
+                }
+            }));
+        }
+        List<CodeColumnError> errors = new ArrayList<CodeColumnError>();
+        for (Future<List<CodeColumnError>> future : futures) {
+            errors.addAll(getResult(future));
+        }
+        if (start != CodeTracer.NOT_SAMPLED) {
+            tracer.end(start, createDetail(records.size(), errors.size()) + ", chunk size = " + chunkSize);
+        }
+        return errors;
+    }
+
+    /**
+     * 1カラム分の値をまとめてチェックする。<br/>
+     * 列指向で保持しているデータをチェックする場合に使用する。
+     *
+     * @param columnIndex カラムの位置(0始まり)
+     * @param values カラムの値(レコードの位置順)
+     * @return コードに含まれない値の位置のリスト(レコードの位置順)
+     * @throws IllegalArgumentException 登録したコードIDまたはパターンが存在しない場合
+     */
+    public List<CodeColumnError> validateColumn(int columnIndex, String[] values) throws IllegalArgumentException {
+        long start = tracer.start();
+        List<CodeValueMatcher> matchers = new ArrayList<CodeValueMatcher>();
+        for (ColumnDefinition column : columns) {
+            if (column.columnIndex == columnIndex) {
+                matchers.add(codeManager.getMatcher(column.codeId, column.pattern));
+            }
+        }
+        if (matchers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CodeColumnError> errors = new ArrayList<CodeColumnError>();
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (StringUtil.isNullOrEmpty(value)) {
+                continue;
+            }
+            for (CodeValueMatcher matcher : matchers) {
+                if (!matcher.matches(value)) {
+                    errors.add(new CodeColumnError(i, columnIndex, value));
+                    break;
+                }
+            }
+        }
+        if (start != CodeTracer.NOT_SAMPLED) {
+            tracer.end(start, "column index = " + columnIndex
+                    + ", values = " + values.length
+                    + ", errors = " + errors.size());
+        }
+        return errors;
+    }
+
+    /**
+     * 登録されたカラムの定義ごとに{@link CodeValueMatcher}を取得する。
+     *
+     * @return カラムの定義ごとの{@link CodeValueMatcher}
+     */
+    private CodeValueMatcher[] resolveMatchers() {
+        CodeValueMatcher[] matchers = new CodeValueMatcher[columns.size()];
+        for (int i = 0; i < matchers.length; i++) {
+            ColumnDefinition column = columns.get(i);
+            matchers[i] = codeManager.getMatcher(column.codeId, column.pattern);
+        }
+        return matchers;
+    }
+
+    /**
+     * 指定された範囲のレコードをチェックする。
+     *
+     * @param records レコードのリスト
+     * @param from チェックを開始するレコードの位置
+     * @param to チェックを終了するレコードの位置(この位置のレコードは含まない)
+     * @param matchers カラムの定義ごとの{@link CodeValueMatcher}
+     * @param errors コードに含まれない値の位置を追加するリスト
+     */
+    private void validate(List<String[]> records, int from, int to, CodeValueMatcher[] matchers,
+            List<CodeColumnError> errors) {
+        for (int recordIndex = from; recordIndex < to; recordIndex++) {
+            String[] record = records.get(recordIndex);
+            int lastErrorColumn = -1;
+            for (int i = 0; i < matchers.length; i++) {
+                int columnIndex = columns.get(i).columnIndex;
+                if (columnIndex >= record.length || columnIndex == lastErrorColumn) {
+                    continue;
+                }
+                String value = record[columnIndex];
+                if (!StringUtil.isNullOrEmpty(value) && !matchers[i].matches(value)) {
+                    errors.add(new CodeColumnError(recordIndex, columnIndex, value));
+                    lastErrorColumn = columnIndex;
+                }
+            }
+        }
+    }
+
+    /**
+     * 一括チェックのログに出力する詳細情報を作成する。
+     *
+     * @param recordCount チェックしたレコードの件数
+     * @param errorCount コードに含まれない値の件数
+     * @return 詳細情報
+     */
+    private String createDetail(int recordCount, int errorCount) {
+        return "records = " + recordCount
+                + ", columns = " + columns.size()
+                + ", errors = " + errorCount;
+    }
+
+    /**
+     * タスクの実行結果を取得する。
+     *
+     * @param future タスク
+     * @return タスクの実行結果
+     */
+    private static List<CodeColumnError> getResult(Future<List<CodeColumnError>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("code column validation was interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * チェック対象のカラムの定義。
+     */
+    private static final class ColumnDefinition {
+
+        /** カラムの位置 */
+        private final int columnIndex;
+
+        /** コードID */
+        private final String codeId;
+
+        /** 使用するパターンのカラム名 */
+        private final String pattern;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param columnIndex カラムの位置
+         * @param codeId コードID
+         * @param pattern 使用するパターンのカラム名
+         */
+        private ColumnDefinition(int columnIndex, String codeId, String pattern) {
+            this.columnIndex = columnIndex;
+            this.codeId = codeId;
+            this.pattern = pattern;
+        }
+    }
+}
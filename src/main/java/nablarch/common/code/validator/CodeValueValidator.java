@@ -4,7 +4,11 @@ import java.lang.annotation.Annotation;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import nablarch.common.code.CodeManager;
+import nablarch.common.code.CodeTracer;
 import nablarch.common.code.CodeUtil;
 import nablarch.core.message.StringResource;
 import nablarch.core.util.StringUtil;
@@ -59,6 +63,19 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
      */
     private String messageId;
 
+    /**
+     * チェックに要した時間を計測する{@link CodeTracer}。
+     */
+    private CodeTracer tracer = new CodeTracer("validation", 0);
+
+    /**
+     * コードIDと、パターンのカラム名とエラーメッセージに埋め込む文字列リソースのMapのMap。
+     * <p/>
+     * 文字列リソースはコードIDとパターンの組み合わせごとに1つだけ生成し、チェックのたびに生成しない。
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, AllCodeValuesStringResource>> stringResources
+            = new ConcurrentHashMap<String, ConcurrentMap<String, AllCodeValuesStringResource>>();
+
     /**
      * コードに含まれない値が指定された場合のデフォルトのエラーメッセージのメッセージIDを設定する。<br/>
      * 例 : "{0}には\"{1}\"のいずれかの値を指定してください。"<br/>
@@ -73,6 +90,17 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
         this.messageId = messageId;
     }
 
+    /**
+     * チェックに要した時間を計測するサンプリング間隔を設定する。(デフォルトは0)<br/>
+     * 指定した回数に1回、チェックに要した時間を{@link CodeTracer}のロガーにデバッグレベルで出力する。
+     * 0以下を指定した場合は計測しない。
+     *
+     * @param samplingInterval サンプリング間隔
+     */
+    public void setTraceSamplingInterval(int samplingInterval) {
+        tracer = new CodeTracer("validation", samplingInterval);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -89,6 +117,30 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
     public <T> boolean validateSingleValue(ValidationContext<T> context,
             String propertyName, Object propertyDisplayObject,
             CodeValue codeValue, String value) {
+        long start = tracer.start();
+        boolean valid = validateCodeValue(context, propertyName, propertyDisplayObject, codeValue, value);
+        if (start != CodeTracer.NOT_SAMPLED) {
+            tracer.end(start, "code id = " + codeValue.codeId()
+                    + ", pattern = " + codeValue.pattern()
+                    + ", valid = " + valid);
+        }
+        return valid;
+    }
+
+    /**
+     * コード値の有効性をチェックする。
+     *
+     * @param <T> バリデーション結果で取得できる型
+     * @param context ValidationContext
+     * @param propertyName プロパティ名
+     * @param propertyDisplayObject プロパティの表示名オブジェクト
+     * @param codeValue バリデーション条件のアノテーション
+     * @param value チェック対象の値
+     * @return コード値が有効な場合true
+     */
+    private <T> boolean validateCodeValue(ValidationContext<T> context,
+            String propertyName, Object propertyDisplayObject,
+            CodeValue codeValue, String value) {
         if (StringUtil.isNullOrEmpty(value)) {
             return true;
         }
@@ -119,8 +171,63 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
     private <T> void addMessage(ValidationContext<T> context,
             String propertyName, Object propertyDisplayName, CodeValue codeValue) {
         ValidationResultMessageUtil.addResultMessage(context, propertyName,
-                getMessageId(codeValue), propertyDisplayName, new AllCodeValuesStringResource(
-                codeValue.codeId(), codeValue.pattern()));
+                getMessageId(codeValue), propertyDisplayName, getStringResource(codeValue));
+    }
+
+    /**
+     * エラーメッセージに埋め込む、コード値を全て取得する文字列リソースを取得する。
+     *
+     * @param codeValue バリデーション条件のアノテーション
+     * @return 文字列リソース
+     */
+    private AllCodeValuesStringResource getStringResource(CodeValue codeValue) {
+        return getStringResource(codeValue.codeId(), codeValue.pattern());
+    }
+
+    /**
+     * エラーメッセージに埋め込む、コード値を全て取得する文字列リソースを取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合は空文字列)
+     * @return 文字列リソース
+     */
+    private AllCodeValuesStringResource getStringResource(String codeId, String pattern) {
+        ConcurrentMap<String, AllCodeValuesStringResource> resources = stringResources.get(codeId);
+        if (resources == null) {
+            resources = new ConcurrentHashMap<String, AllCodeValuesStringResource>();
+            ConcurrentMap<String, AllCodeValuesStringResource> existing = stringResources.putIfAbsent(codeId, resources);
+            if (existing != null) {
+                resources = existing;
+            }
+        }
+        AllCodeValuesStringResource resource = resources.get(pattern);
+        if (resource == null) {
+            resource = new AllCodeValuesStringResource(codeId, pattern);
+            AllCodeValuesStringResource existing = resources.putIfAbsent(pattern, resource);
+            if (existing != null) {
+                resource = existing;
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * エラーメッセージに埋め込むコード値の文字列を、事前に生成する。
+     * <p/>
+     * 起動時のウォームアップで使用する。チェックに失敗した際にメッセージを整形する時点で、
+     * {@link CodeUtil}が同じコード値のリストを返却する場合は、ここで生成した文字列を再利用する。
+     * {@link CodeUtil}はリポジトリの初期化が完了するまで使用できないため、コード値は指定した{@link CodeManager}から取得する。
+     *
+     * @param codeId コードID
+     * @param pattern 使用するパターンのカラム名(パターンを使用しない場合はnull)
+     * @param locale 言語
+     * @param codeManager コード値の取得に使用する{@link CodeManager}
+     */
+    public void prepareMessage(String codeId, String pattern, Locale locale, CodeManager codeManager) {
+        List<String> values = pattern == null
+                ? codeManager.getValues(codeId, locale)
+                : codeManager.getValues(codeId, pattern, locale);
+        getStringResource(codeId, pattern == null ? "" : pattern).render(locale, values);
     }
 
     /**
@@ -143,7 +250,10 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
 
     /**
      * コード値を全て取得する文字列リソース。
-     * 
+     * <p/>
+     * コード値の文字列は、メッセージが整形される時点で初めて生成する。
+     * 生成した文字列は言語ごとに保持し、取得したコード値のリストが前回と同一のインスタンスであれば再利用する。
+     * コードが再読み込みされた場合は、リストのインスタンスが変わるため文字列を生成し直す。
      */
     private static class AllCodeValuesStringResource implements StringResource {
 
@@ -166,6 +276,11 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
          * 使用するパターンのカラム名
          */
         private final String pattern;
+        /**
+         * 言語と、生成したコード値の文字列のMap
+         */
+        private final ConcurrentMap<Locale, RenderedValues> renderedValues
+                = new ConcurrentHashMap<Locale, RenderedValues>();
         /**
          * {@inheritDoc}
          */
@@ -180,16 +295,33 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
          * Localeに紐付くコード値のリストを取得する。
          */
         public String getValue(Locale locale) {
-            StringBuilder allowValues = new StringBuilder();
-
-            boolean isFirst = true;
-
             List<String> values;
             if ("".equals(pattern)) {
                 values = CodeUtil.getValues(codeId, locale);
             } else {
                 values = CodeUtil.getValues(codeId, pattern, locale);
             }
+            return render(locale, values);
+        }
+
+        /**
+         * コード値のリストを文字列に変換する。
+         * <p/>
+         * 言語に対して前回変換したリストと同一のインスタンスの場合は、前回の文字列を返却する。
+         *
+         * @param locale 言語
+         * @param values コード値のリスト
+         * @return コード値の文字列
+         */
+        private String render(Locale locale, List<String> values) {
+            RenderedValues rendered = renderedValues.get(locale);
+            if (rendered != null && rendered.values == values) {
+                return rendered.text;
+            }
+
+            StringBuilder allowValues = new StringBuilder();
+
+            boolean isFirst = true;
 
             for (String value : values) {
                 if (!isFirst) {
@@ -202,11 +334,39 @@ public class CodeValueValidator extends StringValidatorSupport<CodeValue> {
                 isFirst = false;
             }
 
-            return allowValues.toString();
+            String text = allowValues.toString();
+            renderedValues.put(locale, new RenderedValues(values, text));
+            return text;
         }
         
     }
 
+    /**
+     * 生成したコード値の文字列と、生成元のコード値のリストの組み合わせ。
+     */
+    private static final class RenderedValues {
+
+        /**
+         * 生成元のコード値のリスト
+         */
+        private final List<String> values;
+        /**
+         * 生成したコード値の文字列
+         */
+        private final String text;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param values 生成元のコード値のリスト
+         * @param text 生成したコード値の文字列
+         */
+        private RenderedValues(List<String> values, String text) {
+            this.values = values;
+            this.text = text;
+        }
+    }
+
     @Override
     public CodeValue createAnnotation(final Map<String, Object> params) {
         return new CodeValue() {
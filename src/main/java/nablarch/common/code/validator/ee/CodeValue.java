@@ -1,8 +1,10 @@
 package nablarch.common.code.validator.ee;
 
+import nablarch.common.code.CodeTracer;
 import nablarch.common.code.CodeUtil;
 import nablarch.common.code.validator.ee.CodeValue.CodeValueArrayValidator;
 import nablarch.common.code.validator.ee.CodeValue.CodeValueValidator;
+import nablarch.core.repository.SystemRepository;
 import nablarch.core.util.StringUtil;
 import nablarch.core.util.annotation.Published;
 
@@ -87,26 +89,90 @@ public @interface CodeValue {
 
     /**
      * 検証対象の値が、指定したコードに適合することを検証する{@link ConstraintValidator}実装クラス(抽象クラス)。
+     * <p/>
+     * 本クラスのインスタンスはBean Validationの実装が生成するため、検証に要した時間を計測するサンプリング間隔は、
+     * {@link SystemRepository}に名前{@value #TRACE_SAMPLING_INTERVAL_KEY}で設定する。
+     * 指定した回数に1回、検証に要した時間を{@link CodeTracer}のロガーにデバッグレベルで出力する。
+     * 設定しない場合、または0以下を設定した場合は計測しない。整数でない値を設定した場合は、初期化時に例外を送出する。
      *
      * @author Naoki Yamamoto
      */
     abstract class AbstractCodeValueValidator<T> implements ConstraintValidator<CodeValue, T> {
 
+        /** サンプリング間隔を取得する{@link SystemRepository}の名前 */
+        public static final String TRACE_SAMPLING_INTERVAL_KEY = "nablarch.codeValue.traceSamplingInterval";
+
         /** コードID */
         private String codeId;
 
         /** パターン */
         private String pattern;
 
+        /** 変換済みのサンプリング間隔の設定値 */
+        private static volatile TraceSamplingInterval traceSamplingInterval;
+
+        /** 検証に要した時間を計測する{@link CodeTracer} */
+        private CodeTracer tracer;
+
         @Override
         public void initialize(CodeValue constraintAnnotation) {
             codeId = constraintAnnotation.codeId();
             pattern = constraintAnnotation.pattern();
+            tracer = new CodeTracer("bean validation", getTraceSamplingInterval());
+        }
+
+        /**
+         * {@link SystemRepository}に設定されたサンプリング間隔を取得する。
+         * <p/>
+         * 設定値の変換結果は保持し、設定値が変更された場合のみ変換し直す。
+         *
+         * @return サンプリング間隔(設定されていない場合は0)
+         * @throws IllegalStateException 設定値が整数でない場合
+         */
+        private static int getTraceSamplingInterval() throws IllegalStateException {
+            String value = SystemRepository.getString(TRACE_SAMPLING_INTERVAL_KEY);
+            if (!StringUtil.hasValue(value)) {
+                return 0;
+            }
+            TraceSamplingInterval interval = traceSamplingInterval;
+            if (interval == null || !interval.value.equals(value)) {
+                try {
+                    interval = new TraceSamplingInterval(value, Integer.parseInt(value.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalStateException(TRACE_SAMPLING_INTERVAL_KEY + " must be an integer."
+                            + " value = " + value, e);
+                }
+                traceSamplingInterval = interval;
+            }
+            return interval.samplingInterval;
         }
 
         @Override
         public abstract boolean isValid(T t, final ConstraintValidatorContext context);
 
+        /**
+         * 検証に要した時間の計測を開始する。
+         *
+         * @return 開始時刻(ナノ秒)。計測の対象外の場合は{@link CodeTracer#NOT_SAMPLED}
+         */
+        protected long startTrace() {
+            return tracer.start();
+        }
+
+        /**
+         * 検証に要した時間の計測を終了し、経過時間をログに出力する。
+         *
+         * @param start {@link #startTrace()}が返却した開始時刻
+         * @param valid 検証結果
+         */
+        protected void endTrace(long start, boolean valid) {
+            if (start != CodeTracer.NOT_SAMPLED) {
+                tracer.end(start, "code id = " + codeId
+                        + ", pattern = " + pattern
+                        + ", valid = " + valid);
+            }
+        }
+
         /**
          * 対象の値が指定したコードに適合するかを検証する。
          *
@@ -122,6 +188,29 @@ public @interface CodeValue {
                     CodeUtil.contains(codeId, pattern, value) :  // パターンあり
                     CodeUtil.contains(codeId, value);            // パターンなし
         }
+
+        /**
+         * サンプリング間隔の設定値と変換結果。
+         */
+        private static final class TraceSamplingInterval {
+
+            /** 設定値 */
+            private final String value;
+
+            /** サンプリング間隔 */
+            private final int samplingInterval;
+
+            /**
+             * コンストラクタ。
+             *
+             * @param value 設定値
+             * @param samplingInterval サンプリング間隔
+             */
+            private TraceSamplingInterval(String value, int samplingInterval) {
+                this.value = value;
+                this.samplingInterval = samplingInterval;
+            }
+        }
     }
 
     /**
@@ -133,7 +222,10 @@ public @interface CodeValue {
 
         @Override
         public boolean isValid(String value, ConstraintValidatorContext context) {
-            return isValidCodeValue(value);
+            long start = startTrace();
+            boolean valid = isValidCodeValue(value);
+            endTrace(start, valid);
+            return valid;
         }
     }
 
@@ -146,6 +238,19 @@ public @interface CodeValue {
 
         @Override
         public boolean isValid(String[] values, ConstraintValidatorContext context) {
+            long start = startTrace();
+            boolean valid = isValidCodeValues(values);
+            endTrace(start, valid);
+            return valid;
+        }
+
+        /**
+         * 対象の値の配列が指定したコードに全て適合するかを検証する。
+         *
+         * @param values コード値の配列
+         * @return 全て適合する場合に{@code true}を返す
+         */
+        private boolean isValidCodeValues(String[] values) {
             if (StringUtil.isNullOrEmpty(values)) {
                 return true;
             }
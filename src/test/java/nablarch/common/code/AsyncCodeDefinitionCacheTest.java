@@ -0,0 +1,310 @@
+package nablarch.common.code;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nablarch.core.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link AsyncCodeDefinitionCache}のテストクラス。
+ */
+public class AsyncCodeDefinitionCacheTest {
+
+    private BlockingCodeLoader loader;
+
+    private ExecutorService executor;
+
+    private AsyncCodeDefinitionCache target;
+
+    @Before
+    public void setUp() throws Exception {
+        loader = new BlockingCodeLoader();
+        executor = Executors.newFixedThreadPool(4);
+        target = new AsyncCodeDefinitionCache();
+        target.setLoader(loader);
+        target.setExecutor(executor);
+        target.initialize();
+        ThreadContext.setLanguage(Locale.JAPANESE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        loader.release();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLoadAsyncCoalescesConcurrentMisses() throws Exception {
+        RecordingListener listener = new RecordingListener(10);
+        Future<Code> first = null;
+        for (int i = 0; i < 10; i++) {
+            Future<Code> future = target.loadAsync("0002", listener);
+            if (first == null) {
+                first = future;
+            }
+            assertSame("読み込み中の同じタスクが返されること", first, future);
+        }
+        assertNull("読み込み完了前はブロックせずにnullが返されること", target.getValueIfPresent("0002"));
+        assertFalse(first.isDone());
+
+        loader.release();
+        Code code = first.get(10, TimeUnit.SECONDS);
+        assertEquals("0002", code.getCodeId());
+        assertTrue(listener.await());
+        assertEquals(10, listener.loaded.get());
+        assertEquals("ローダは1回だけ呼び出されること", 1, loader.count("0002"));
+        assertSame(code, target.getValueIfPresent("0002"));
+
+        // 読み込み済みの場合は完了済みのFutureが返され、リスナーは呼び出し元のスレッドで呼び出される
+        RecordingListener loadedListener = new RecordingListener(1);
+        Future<Code> loaded = target.loadAsync("0002", loadedListener);
+        assertTrue(loaded.isDone());
+        assertSame(code, loaded.get());
+        assertEquals(1, loadedListener.loaded.get());
+        assertEquals(1, loader.count("0002"));
+    }
+
+    @Test
+    public void testGetValueBlocksUntilLoaded() throws Exception {
+        loader.release();
+        Code code = target.getValue("0001");
+        assertEquals("0001", code.getCodeId());
+        assertSame(code, target.getValue("0001"));
+        assertEquals(1, loader.count("0001"));
+
+        // 存在しないコードIDはnullが返され、キャッシュされない
+        assertNull(target.getValue("9999"));
+        assertNull(target.getValue("9999"));
+        assertEquals(2, loader.count("9999"));
+        RecordingListener listener = new RecordingListener(1);
+        assertNull(target.loadAsync("9999", listener).get());
+        assertTrue(listener.await());
+        assertEquals(1, listener.loaded.get());
+        assertTrue(listener.failed.isEmpty());
+    }
+
+    @Test
+    public void testLoadFailure() throws Exception {
+        loader.release();
+        loader.fail = true;
+        RecordingListener listener = new RecordingListener(1);
+        Future<Code> future = target.loadAsync("0001", listener);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("例外が発生するはず。");
+        } catch (ExecutionException e) {
+            assertEquals("load failed.", e.getCause().getMessage());
+        }
+        assertTrue(listener.await());
+        assertEquals(1, listener.failed.size());
+        try {
+            target.getValue("0001");
+            fail("例外が発生するはず。");
+        } catch (IllegalStateException e) {
+            assertEquals("load failed.", e.getMessage());
+        }
+
+        // 失敗した読み込みはキャッシュされず、再度読み込める
+        loader.fail = false;
+        assertNotNull(target.getValue("0001"));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        loader.release();
+        Code before = target.getValue("0001");
+        target.getValue("0002");
+
+        target.refresh("0001");
+        assertNull(target.getValueIfPresent("0001"));
+        assertNotNull(target.getValueIfPresent("0002"));
+        loader.loader.publishNext();
+        Code after = target.getValue("0001");
+        assertFalse(before == after);
+
+        target.refresh();
+        assertNull(target.getValueIfPresent("0001"));
+        assertNull(target.getValueIfPresent("0002"));
+    }
+
+    @Test
+    public void testRefreshWhileLoading() throws Exception {
+        Future<Code> future = target.loadAsync("0001", null);
+        target.refresh("0001");
+        loader.release();
+        assertNotNull("読み込み結果は返されること", future.get(10, TimeUnit.SECONDS));
+        assertNull("破棄後に完了した読み込みはキャッシュされないこと", target.getValueIfPresent("0001"));
+    }
+
+    @Test
+    public void testCancelDoesNotAffectOtherCallers() throws Exception {
+        RecordingListener listener = new RecordingListener(1);
+        Future<Code> first = target.loadAsync("0001", listener);
+        Future<Code> second = target.loadAsync("0001", null);
+        assertFalse("共有している読み込みは取り消せないこと", first.cancel(true));
+        assertFalse(first.isCancelled());
+
+        loader.release();
+        assertEquals("0001", target.getValue("0001").getCodeId());
+        assertEquals("0001", second.get(10, TimeUnit.SECONDS).getCodeId());
+        assertEquals("0001", first.get(10, TimeUnit.SECONDS).getCodeId());
+        assertTrue(listener.await());
+        assertEquals(1, listener.loaded.get());
+        assertEquals("ローダは1回だけ呼び出されること", 1, loader.count("0001"));
+    }
+
+    @Test
+    public void testLoadOnStartup() throws Exception {
+        loader.release();
+        target.setLoadOnStartup(true);
+        target.initialize();
+        assertNotNull(target.getValueIfPresent("0001"));
+        assertNotNull(target.getValueIfPresent("0002"));
+        assertEquals(0, loader.count("0001"));
+        assertTrue(target.getValues("index", "key").isEmpty());
+    }
+
+    @Test
+    public void testWithBasicCodeManager() throws Exception {
+        BasicCodeManager manager = new BasicCodeManager();
+        manager.setCodeDefinitionCache(target);
+        final CountDownLatch loaded = new CountDownLatch(1);
+        final AtomicInteger names = new AtomicInteger();
+        final BasicCodeManager codeManager = manager;
+        target.loadAsync("0002", new CodeLoadListener() {
+            public void onLoaded(Object codeId, Code code) {
+                ThreadContext.setLanguage(Locale.JAPANESE);
+                if (codeManager.getName("0002", "01").endsWith("状態1")) {
+                    names.incrementAndGet();
+                }
+                loaded.countDown();
+            }
+
+            public void onFailed(Object codeId, Throwable cause) {
+                loaded.countDown();
+            }
+        });
+        loader.release();
+        assertTrue(loaded.await(10, TimeUnit.SECONDS));
+        assertEquals(1, names.get());
+        assertTrue(target.getValueIfPresent("0002") != null);
+        assertEquals(VersionedCodeLoader.valueCount("0002", 0), manager.getValues("0002").size());
+    }
+
+    /**
+     * 読み込みを指定されるまで待機し、読み込み回数を記録するローダ。
+     */
+    private static final class BlockingCodeLoader implements nablarch.core.cache.StaticDataLoader<Code> {
+
+        private final VersionedCodeLoader loader = new VersionedCodeLoader();
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private final Queue<Object> requested = new ConcurrentLinkedQueue<Object>();
+
+        private volatile boolean fail;
+
+        private void release() {
+            latch.countDown();
+        }
+
+        private int count(Object id) {
+            int count = 0;
+            for (Object requestedId : requested) {
+                if (requestedId.equals(id)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public Code getValue(Object id) {
+            requested.add(id);
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            if (fail) {
+                throw new IllegalStateException("load failed.");
+            }
+            return loader.getValue(id);
+        }
+
+        @Override
+        public List<Code> getValues(String indexName, Object key) {
+            return loader.getValues(indexName, key);
+        }
+
+        @Override
+        public List<Code> loadAll() {
+            return loader.loadAll();
+        }
+
+        @Override
+        public List<String> getIndexNames() {
+            return loader.getIndexNames();
+        }
+
+        @Override
+        public Object getId(Code value) {
+            return loader.getId(value);
+        }
+
+        @Override
+        public Object generateIndexKey(String indexName, Code value) {
+            return loader.generateIndexKey(indexName, value);
+        }
+    }
+
+    /**
+     * 読み込み結果を記録するリスナー。
+     */
+    private static final class RecordingListener implements CodeLoadListener {
+
+        private final AtomicInteger loaded = new AtomicInteger();
+
+        private final Queue<Throwable> failed = new ConcurrentLinkedQueue<Throwable>();
+
+        private final CountDownLatch latch;
+
+        private RecordingListener(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        private boolean await() throws InterruptedException {
+            return latch.await(10, TimeUnit.SECONDS);
+        }
+
+        public void onLoaded(Object codeId, Code code) {
+            loaded.incrementAndGet();
+            latch.countDown();
+        }
+
+        public void onFailed(Object codeId, Throwable cause) {
+            failed.add(cause);
+            latch.countDown();
+        }
+    }
+}
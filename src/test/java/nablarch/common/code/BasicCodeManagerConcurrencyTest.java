@@ -0,0 +1,307 @@
+package nablarch.common.code;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nablarch.common.code.validator.CodeColumnError;
+import nablarch.common.code.validator.CodeColumnValidator;
+import nablarch.common.code.validator.CodeValue;
+import nablarch.core.ThreadContext;
+import nablarch.core.cache.BasicStaticDataCache;
+import nablarch.core.validation.PropertyName;
+import nablarch.core.validation.ValidateFor;
+import nablarch.core.validation.ValidationContext;
+import nablarch.core.validation.ValidationUtil;
+import nablarch.test.support.SystemRepositoryResource;
+import nablarch.test.support.message.MockStringResourceHolder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * コードの再読み込みと読み込みを並行して行った場合の{@link BasicCodeManager}およびバリデータのテスト。
+ * <p/>
+ * 複数のスレッドからコードを参照している間にコードの世代を切り替えて再読み込みし、
+ * 以下を満たすことを確認する。
+ * <ul>
+ *     <li>コードIDが存在しない状態が参照されないこと</li>
+ *     <li>1回の呼び出しの結果に、異なる世代のコードが混在しないこと</li>
+ *     <li>公開前の世代のコードが参照されないこと</li>
+ * </ul>
+ * また、再読み込みを行わない場合と行う場合のスループットを標準出力に出力する。
+ * (スループットは実行環境に依存するため、値の検証は行わない。)
+ */
+public class BasicCodeManagerConcurrencyTest {
+
+    /** 読み込みを行うスレッド数 */
+    private static final int READER_COUNT = 8;
+
+    /** 1フェーズの実行時間(ミリ秒) */
+    private static final long PHASE_MILLIS = 500L;
+
+    private static final String[][] MESSAGES = {
+            {"MSG00001", "ja", "{0}には'{'{1}'}'のいずれかの値を指定してください。", "en", "{0}''s value must be in '{'{1}'}'"},
+            {"PROP0002", "ja", "状態", "en", "state"},
+    };
+
+    @Rule
+    public SystemRepositoryResource repositoryResource
+            = new SystemRepositoryResource("nablarch/common/code/basic-code-manager-concurrency-test.xml");
+
+    private BasicCodeManager target;
+
+    private VersionedCodeLoader codeLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        repositoryResource.getComponentByType(MockStringResourceHolder.class).setMessages(MESSAGES);
+        target = repositoryResource.getComponentByType(BasicCodeManager.class);
+        codeLoader = repositoryResource.getComponent("codeLoader");
+    }
+
+    @Test
+    public void testReloadWhileReadingWithLoadOnStartup() throws Exception {
+        BasicStaticDataCache<Code> codeCache = repositoryResource.getComponent("codeCache");
+        run("loadOnStartup=true", codeCache);
+    }
+
+    @Test
+    public void testReloadWhileReadingWithLazyLoad() throws Exception {
+        BasicStaticDataCache<Code> codeCache = new BasicStaticDataCache<Code>();
+        codeCache.setLoader(codeLoader);
+        codeCache.setLoadOnStartup(false);
+        codeCache.initialize();
+        target.setCodeDefinitionCache(codeCache);
+        run("loadOnStartup=false", codeCache);
+    }
+
+    /**
+     * 再読み込みなしと再読み込みありのフェーズを順に実行し、スループットを出力する。
+     *
+     * @param label 出力時のラベル
+     * @param codeCache 再読み込みするキャッシュ
+     * @throws Exception 例外
+     */
+    private void run(String label, BasicStaticDataCache<Code> codeCache) throws Exception {
+        OptionColumn optionColumn = target.getOptionColumn("0002", "OPTION01");
+        // JITコンパイルの影響を除くため、計測前に1フェーズ実行する
+        runPhase(null, optionColumn);
+        long baseline = runPhase(null, optionColumn).operations;
+        PhaseResult reloading = runPhase(codeCache, optionColumn);
+        assertTrue("再読み込みが行われていること", reloading.reloads > 0);
+        assertTrue("読み込みが行われていること", baseline > 0 && reloading.operations > 0);
+        System.out.println(String.format(
+                "%s: baseline %,d ops/s, during reload %,d ops/s (%.1f%%, %,d reloads)",
+                label,
+                baseline * 1000 / PHASE_MILLIS,
+                reloading.operations * 1000 / PHASE_MILLIS,
+                reloading.operations * 100.0 / baseline,
+                reloading.reloads));
+    }
+
+    /**
+     * 読み込みスレッドと、必要に応じて再読み込みスレッドを実行する。
+     *
+     * @param codeCache 再読み込みするキャッシュ(再読み込みしない場合はnull)
+     * @param optionColumn 全てのスレッドで共有するオプション名称のハンドル
+     * @return 実行結果
+     * @throws Exception 例外
+     */
+    private PhaseResult runPhase(final BasicStaticDataCache<Code> codeCache, final OptionColumn optionColumn)
+            throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong operations = new AtomicLong();
+        final AtomicLong reloads = new AtomicLong();
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+        final long[] deadline = new long[1];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < READER_COUNT; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    ThreadContext.setLanguage(Locale.JAPANESE);
+                    CodeColumnValidator columnValidator = new CodeColumnValidator(target)
+                            .addColumn(0, "0001")
+                            .addColumn(1, "0002", "PATTERN1");
+                    nablarch.common.code.validator.ee.CodeValue.CodeValueValidator beanValidator
+                            = new nablarch.common.code.validator.ee.CodeValue.CodeValueValidator();
+                    beanValidator.initialize(StateBean.annotation());
+                    try {
+                        start.await();
+                        long count = 0;
+                        while (System.currentTimeMillis() < deadline[0]) {
+                            read(optionColumn, columnValidator, beanValidator);
+                            count++;
+                        }
+                        operations.addAndGet(count);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+        }
+        if (codeCache != null) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        while (System.currentTimeMillis() < deadline[0]) {
+                            codeLoader.publishNext();
+                            codeCache.refresh();
+                            reloads.incrementAndGet();
+                            Thread.sleep(1L);
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+        }
+        deadline[0] = System.currentTimeMillis() + PHASE_MILLIS;
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse("スレッドが終了していること", thread.isAlive());
+        }
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError(failures.size() + " failures. first = " + failures.peek());
+            error.initCause(failures.peek());
+            throw error;
+        }
+        return new PhaseResult(operations.get(), reloads.get());
+    }
+
+    /**
+     * 1回分の読み込みを行い、結果を検証する。
+     *
+     * @param optionColumn オプション名称のハンドル
+     * @param columnValidator 列単位のバリデータ
+     * @param beanValidator Bean Validationのバリデータ
+     */
+    private void read(OptionColumn optionColumn, CodeColumnValidator columnValidator,
+            nablarch.common.code.validator.ee.CodeValue.CodeValueValidator beanValidator) {
+        // 1つの世代のコードから取得した結果に、他の世代が混在しない
+        List<String> versionNames = new ArrayList<String>();
+        CodeEntryIterator entries = target.iterateEntries("0002", Locale.JAPANESE);
+        int version = -1;
+        while (entries.hasNext()) {
+            CodeEntry entry = entries.next();
+            int entryVersion = VersionedCodeLoader.versionOf(entry.getName());
+            if (version < 0) {
+                version = entryVersion;
+            }
+            assertEquals("同じ世代のエントリであること", version, entryVersion);
+            assertEquals(entry.getName(), VersionedCodeLoader.versionOf(entry.getOptionalName("OPTION01")), version);
+            versionNames.add(entry.getName());
+        }
+        assertEquals(versionNames.toString(), VersionedCodeLoader.valueCount("0002", version), versionNames.size());
+        assertTrue("公開済みの世代であること", version <= codeLoader.getVersion());
+
+        List<String> pattern = target.getValues("0002", "PATTERN1");
+        assertTrue(pattern.toString(), pattern.equals(Arrays.asList("01", "02", "05"))
+                || pattern.equals(Arrays.asList("01", "02", "05", "06")));
+
+        // コードIDが欠落しない
+        assertTrue(target.contains("0001", "01"));
+        assertFalse(target.contains("0001", "99"));
+        assertTrue(VersionedCodeLoader.versionOf(target.getName("0001", "02")) <= codeLoader.getVersion());
+        assertTrue(VersionedCodeLoader.versionOf(optionColumn.getName("01")) <= codeLoader.getVersion());
+        assertEquals(Arrays.asList("02"), target.getValuesByShortName("0001", "性2", Locale.JAPANESE));
+
+        // バリデータ
+        assertTrue(beanValidator.isValid("01", null));
+        assertFalse(beanValidator.isValid("99", null));
+        assertTrue(validate("05").isValid());
+        assertFalse(validate("03").isValid());
+        List<CodeColumnError> errors = columnValidator.validate(Arrays.asList(
+                new String[] {"01", "05"},
+                new String[] {"02", "99"},
+                new String[] {"99", "01"}));
+        assertEquals(Arrays.asList(
+                new CodeColumnError(1, 1, "99"),
+                new CodeColumnError(2, 0, "99")), errors);
+    }
+
+    /**
+     * Nablarch Validationで状態をバリデーションする。
+     *
+     * @param state 状態
+     * @return バリデーション結果
+     */
+    private static ValidationContext<StateForm> validate(String state) {
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("state", new String[] {state});
+        return ValidationUtil.validateAndConvertRequest("", StateForm.class, params, "test");
+    }
+
+    /**
+     * フェーズの実行結果。
+     */
+    private static final class PhaseResult {
+
+        private final long operations;
+
+        private final long reloads;
+
+        private PhaseResult(long operations, long reloads) {
+            this.operations = operations;
+            this.reloads = reloads;
+        }
+    }
+
+    public static class StateForm {
+
+        private String state;
+
+        public StateForm(Map<String, Object> params) {
+            this.state = (String) params.get("state");
+        }
+
+        @PropertyName(messageId = "PROP0002")
+        @CodeValue(codeId = "0002", pattern = "PATTERN1")
+        public void setState(String state) {
+            this.state = state;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        @ValidateFor("test")
+        public static void validateForTest(ValidationContext<StateForm> context) {
+            ValidationUtil.validate(context, new String[] {"state"});
+        }
+    }
+
+    private static class StateBean {
+
+        @nablarch.common.code.validator.ee.CodeValue(codeId = "0002")
+        private String state;
+
+        private static nablarch.common.code.validator.ee.CodeValue annotation() {
+            try {
+                return StateBean.class.getDeclaredField("state")
+                        .getAnnotation(nablarch.common.code.validator.ee.CodeValue.class);
+            } catch (NoSuchFieldException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -1,7 +1,15 @@
 package nablarch.common.code;
 
 
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 
 import nablarch.core.cache.BasicStaticDataCache;
 import org.junit.Before;
@@ -14,6 +22,9 @@ import nablarch.test.support.SystemRepositoryResource;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -452,4 +463,881 @@ public class BasicCodeManagerTest {
         testContainsStringString();
         testContainsStringStringString();
     }
+
+    /**
+     * 正規化ルールを設定したコードIDでは、表記揺れのある入力値が格納されているコード値と照合されること。
+     */
+    @Test
+    public void testValueNormalizers() {
+        target.setValueNormalizers(Collections.<String, CodeValueNormalizer>singletonMap(
+                "0002", new BasicCodeValueNormalizer()));
+        ThreadContext.setLanguage(Locale.JAPANESE);
+
+        assertTrue(target.contains("0002", "０３"));
+        assertTrue(target.contains("0002", " 03　"));
+        assertTrue(target.contains("0002", "PATTERN2", "０３"));
+        assertFalse(target.contains("0002", "PATTERN1", "０３"));
+        assertFalse(target.contains("0002", "０６"));
+        assertEquals("処理実行中", target.getName("0002", "０３"));
+        assertEquals("Batch Running", target.getName("0002", "０３ ", Locale.ENGLISH));
+        assertEquals("実行", target.getShortName("0002", "０３"));
+        assertEquals("Running", target.getShortName("0002", "０３", Locale.ENGLISH));
+        assertEquals("0002-03-ja", target.getOptionalName("0002", "０３", "OPTION01"));
+        assertEquals("0002-03-en", target.getOptionalName("0002", "０３", "OPTION01", Locale.ENGLISH));
+        assertEquals("03", target.getCanonicalValue("0002", "　０３"));
+        assertEquals("03", target.getCanonicalValue("0002", "03", Locale.ENGLISH));
+        assertNull(target.getCanonicalValue("0002", "０６"));
+        assertNull(target.getCanonicalValue("0002", null));
+
+        // 正規化ルールを設定していないコードIDは完全一致で照合する
+        assertFalse(target.contains("0001", "０１"));
+        assertTrue(target.contains("0001", "01"));
+        assertEquals("01", target.getCanonicalValue("0001", "01"));
+        assertNull(target.getCanonicalValue("0001", "０１"));
+        try {
+            target.getName("0001", "０１");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+
+        // 正規化しても存在しないコード値は、これまで通り例外となる
+        try {
+            target.getName("0002", "０６");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    /**
+     * 大文字・小文字を区別しない正規化と、各正規化の無効化ができること。
+     */
+    @Test
+    public void testBasicCodeValueNormalizer() {
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        codeLoader.setPatterns(Arrays.asList(
+                new CodePattern("0003", "ab", "1", "0", "0"),
+                new CodePattern("0003", "AB", "0", "1", "0")));
+        codeLoader.setNames(Arrays.asList(
+                new CodeName("0003", "ab", "ja", 1L, "小文字", "小", "", ""),
+                new CodeName("0003", "AB", "ja", 2L, "大文字", "大", "", "")));
+        codeLoader.initialize();
+
+        BasicCodeValueNormalizer normalizer = new BasicCodeValueNormalizer();
+        target.setValueNormalizers(Collections.<String, CodeValueNormalizer>singletonMap("0003", normalizer));
+
+        // 正規化後に同一となる場合はソート順で先頭のコード値が対応する
+        assertEquals("ab", target.getCanonicalValue("0003", "Ａｂ", Locale.JAPANESE));
+        assertEquals("小文字", target.getName("0003", "aB", Locale.JAPANESE));
+
+        normalizer.setIgnoreCase(false);
+        normalizer.setToHalfWidth(false);
+        normalizer.setTrim(false);
+        target.setValueNormalizers(Collections.<String, CodeValueNormalizer>singletonMap("0003", normalizer));
+        assertEquals("AB", target.getCanonicalValue("0003", "AB", Locale.JAPANESE));
+        assertNull(target.getCanonicalValue("0003", "Ab", Locale.JAPANESE));
+        assertNull(target.getCanonicalValue("0003", "ＡＢ", Locale.JAPANESE));
+        assertNull(target.getCanonicalValue("0003", "AB ", Locale.JAPANESE));
+    }
+
+    /**
+     * コードが再読み込みされた場合、新しいコードに対して照合されること。
+     */
+    @Test
+    public void testValueNormalizersAfterRefresh() {
+        target.setValueNormalizers(Collections.<String, CodeValueNormalizer>singletonMap(
+                "0001", new BasicCodeValueNormalizer()));
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        assertFalse(target.contains("0001", "０３"));
+
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        List<CodePattern> patterns = TestCodeCreator.createPatternList();
+        patterns.add(2, new CodePattern("0001", "03", "1", "0", "0"));
+        List<CodeName> names = TestCodeCreator.createNameList();
+        names.add(new CodeName("0001", "03", "ja", 3L, "その他", "他", "03:Other", "0001-03-ja"));
+        codeLoader.setPatterns(patterns);
+        codeLoader.setNames(names);
+        codeLoader.initialize();
+        BasicStaticDataCache<Code> codeCache = repositoryResource.getComponent("codeCache");
+        codeCache.refresh();
+
+        assertTrue(target.contains("0001", "０３"));
+        assertEquals("その他", target.getName("0001", "０３", Locale.JAPANESE));
+    }
+
+    @Test
+    public void testSearchValues() {
+        assertEquals(Arrays.asList("03", "04", "05"),
+                target.searchValues("0002", "Batch", CodeNameSearchMode.PREFIX, Locale.ENGLISH, 10));
+        assertEquals(Arrays.asList("03", "04"),
+                target.searchValues("0002", "Batch", CodeNameSearchMode.PREFIX, Locale.ENGLISH, 2));
+        assertEquals(Arrays.asList("05"),
+                target.searchValues("0002", "PATTERN1", "B", CodeNameSearchMode.PREFIX, Locale.ENGLISH, 10));
+        assertEquals(Arrays.asList("04", "05"),
+                target.searchValues("0002", "Checked", CodeNameSearchMode.SUBSTRING, Locale.ENGLISH, 10));
+        assertEquals(Arrays.asList("02", "03", "04", "05"),
+                target.searchValues("0002", "c", CodeNameSearchMode.SUBSTRING, Locale.ENGLISH, 10));
+        assertEquals(Arrays.asList("01", "02", "03"),
+                target.searchValues("0002", "", CodeNameSearchMode.SUBSTRING, Locale.ENGLISH, 3));
+        assertEquals(Collections.<String>emptyList(),
+                target.searchValues("0002", "Running", CodeNameSearchMode.PREFIX, Locale.ENGLISH, 10));
+        assertEquals(Collections.<String>emptyList(),
+                target.searchValues("0002", "xyz", CodeNameSearchMode.SUBSTRING, Locale.ENGLISH, 10));
+
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        assertEquals(Arrays.asList("03", "04"),
+                target.searchValues("0002", "処理実行", CodeNameSearchMode.PREFIX, 10));
+        assertEquals(Arrays.asList("04", "05"),
+                target.searchValues("0002", "完了", CodeNameSearchMode.SUBSTRING, 10));
+        assertEquals(Arrays.asList("04"),
+                target.searchValues("0002", "PATTERN2", "完了", CodeNameSearchMode.SUBSTRING, 10));
+
+        // 存在しないコードID
+        try {
+            target.searchValues("0003", "B", CodeNameSearchMode.PREFIX, Locale.ENGLISH, 10);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないパターン
+        try {
+            target.searchValues("0002", "PATTERN4", "B", CodeNameSearchMode.PREFIX, Locale.ENGLISH, 10);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しない言語
+        try {
+            target.searchValues("0002", "B", CodeNameSearchMode.PREFIX, Locale.CHINESE, 10);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 不正な最大件数
+        try {
+            target.searchValues("0002", "B", CodeNameSearchMode.PREFIX, Locale.ENGLISH, 0);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 検索文字列がnull
+        try {
+            target.searchValues("0002", null, CodeNameSearchMode.PREFIX, Locale.ENGLISH, 10);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testGetValuesByName() {
+        assertEquals(Arrays.asList("03"), target.getValuesByName("0002", "処理実行中", Locale.JAPANESE));
+        assertEquals(Arrays.asList("03"), target.getValuesByName("0002", "Batch Running", Locale.ENGLISH));
+        assertEquals(Collections.<String>emptyList(), target.getValuesByName("0002", "処理実行中", Locale.ENGLISH));
+        assertEquals(Arrays.asList("03"), target.getValuesByName("0002", "PATTERN2", "処理実行中", Locale.JAPANESE));
+        assertEquals(Collections.<String>emptyList(),
+                target.getValuesByName("0002", "PATTERN1", "処理実行中", Locale.JAPANESE));
+
+        assertEquals(Arrays.asList("02"), target.getValuesByShortName("0001", "女", Locale.JAPANESE));
+        assertEquals(Arrays.asList("02"), target.getValuesByShortName("0001", "PATTERN1", "F", Locale.ENGLISH));
+        assertEquals(Collections.<String>emptyList(), target.getValuesByShortName("0001", "X", Locale.ENGLISH));
+
+        assertEquals(Arrays.asList("01"),
+                target.getValuesByOptionalName("0001", "NAME_WITH_VALUE", "01:Male", Locale.JAPANESE));
+        assertEquals(Arrays.asList("05"),
+                target.getValuesByOptionalName("0002", "PATTERN1", "OPTION01", "0002-05-en", Locale.ENGLISH));
+
+        // 同一名称のコード値が複数存在する場合は、ソート順に全て返却される
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05"),
+                target.getValuesByOptionalName("0002", "NAME_WITH_VALUE", "", Locale.JAPANESE));
+        assertEquals(Arrays.asList("03", "04"),
+                target.getValuesByOptionalName("0002", "PATTERN2", "NAME_WITH_VALUE", "", Locale.JAPANESE));
+
+        // 存在しないコードID
+        try {
+            target.getValuesByName("0003", "男性", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないパターン
+        try {
+            target.getValuesByShortName("0001", "PATTERN4", "男", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないオプション名称のカラム
+        try {
+            target.getValuesByOptionalName("0001", "OPTION02", "0001-01-ja", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しない言語
+        try {
+            target.getValuesByName("0001", "男性", Locale.CHINESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testGetMatcher() {
+        CodeValueMatcher matcher = target.getMatcher("0002", "PATTERN2", Locale.ENGLISH);
+        assertTrue(matcher.matches("03"));
+        assertFalse(matcher.matches("01"));
+        assertFalse(matcher.matches("06"));
+        assertFalse(matcher.matches(null));
+
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        matcher = target.getMatcher("0002", "");
+        assertTrue(matcher.matches("01"));
+        assertFalse(matcher.matches("06"));
+
+        target.setValueNormalizers(Collections.<String, CodeValueNormalizer>singletonMap(
+                "0002", new BasicCodeValueNormalizer()));
+        matcher = target.getMatcher("0002", "PATTERN1");
+        assertTrue(matcher.matches("０５ "));
+        assertFalse(matcher.matches("０３"));
+
+        // 存在しないパターン
+        try {
+            target.getMatcher("0002", "PATTERN4");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testIterateEntries() {
+        CodeEntryIterator iterator = target.iterateEntries("0001", Locale.ENGLISH);
+        assertTrue(iterator.hasNext());
+        CodeEntry entry = iterator.next();
+        assertEquals("02", entry.getValue());
+        assertEquals(0, entry.getSortOrder());
+        assertEquals("Female", entry.getName());
+        assertEquals("F", entry.getShortName());
+        assertEquals("02:Female", entry.getOptionalName("NAME_WITH_VALUE"));
+        assertEquals("0001-02-en", entry.getOptionalName("OPTION01"));
+        assertTrue(entry.isIncludedIn("PATTERN1"));
+        assertFalse(entry.isIncludedIn("PATTERN2"));
+        assertEquals(Locale.ENGLISH, entry.getLocale());
+        entry = iterator.next();
+        assertEquals("01", entry.getValue());
+        assertEquals("Male", entry.getName());
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("例外が発生するはず。");
+        } catch (NoSuchElementException e) {
+            // OK
+        }
+
+        // パターン指定
+        iterator = target.iterateEntries("0002", "PATTERN1", Locale.JAPANESE);
+        List<String> names = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            names.add(iterator.next().getName());
+        }
+        assertEquals(Arrays.asList("初期状態", "処理開始待ち", "処理結果確認完了"), names);
+
+        // 同じスナップショットでは同じエントリが返却される
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        assertSame(target.iterateEntries("0002").next(), target.iterateEntries("0002", Locale.JAPANESE).next());
+
+        // 存在しないオプション名称のカラム
+        try {
+            entry.getOptionalName("OPTION02");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないパターン
+        try {
+            target.iterateEntries("0002", "PATTERN4", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないコードID
+        try {
+            target.iterateEntries("0003", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testGetValuesByCodeOrder() {
+        assertEquals("ソート順", Arrays.asList("01", "02", "03", "04", "05"),
+                target.getValues("0002", null, Locale.ENGLISH, CodeOrder.SORT_ORDER));
+        assertEquals("名称の照合順", Arrays.asList("04", "05", "03", "01", "02"),
+                target.getValues("0002", null, Locale.ENGLISH, CodeOrder.NAME));
+        assertEquals("パターン指定", Arrays.asList("04", "03"),
+                target.getValues("0002", "PATTERN2", Locale.ENGLISH, CodeOrder.NAME));
+
+        List<String> names = new ArrayList<String>();
+        for (CodeEntry entry : target.getEntries("0001", null, Locale.ENGLISH, CodeOrder.NAME)) {
+            names.add(entry.getName());
+        }
+        assertEquals(Arrays.asList("Female", "Male"), names);
+
+        // 同じスナップショットでは同じリストとエントリが返却される
+        ThreadContext.setLanguage(Locale.ENGLISH);
+        assertSame(target.getValues("0002", "PATTERN1", CodeOrder.NAME),
+                target.getValues("0002", "PATTERN1", Locale.ENGLISH, CodeOrder.NAME));
+        assertSame(target.getEntries("0002", null, CodeOrder.NAME),
+                target.getEntries("0002", null, Locale.ENGLISH, CodeOrder.NAME));
+        assertSame(target.getEntries("0002", null, CodeOrder.SORT_ORDER), target.getEntries("0002"));
+        assertSame(target.getEntries("0002", null, CodeOrder.NAME).get(0), target.getEntries("0002").get(3));
+
+        try {
+            target.getValues("0002", null, Locale.ENGLISH, (CodeOrder) null);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            assertEquals("order must not be null.", e.getMessage());
+        }
+        try {
+            target.getEntries("0002", "PATTERN4", Locale.ENGLISH, CodeOrder.NAME);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testGetEntries() {
+        List<CodeEntry> entries = target.getEntries("0001", Locale.ENGLISH);
+        assertEquals(2, entries.size());
+        assertEquals("02", entries.get(0).getValue());
+        assertEquals("Female", entries.get(0).getName());
+        assertEquals("F", entries.get(0).getShortName());
+        assertEquals("Male", entries.get(1).getName());
+
+        // パターン指定
+        List<String> names = new ArrayList<String>();
+        for (CodeEntry entry : target.getEntries("0002", "PATTERN2", Locale.JAPANESE)) {
+            names.add(entry.getName());
+        }
+        assertEquals(Arrays.asList("処理実行中", "処理実行完了"), names);
+
+        // 同じスナップショットでは同じリストが返却され、エントリは走査と共有される
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        assertSame(target.getEntries("0002"), target.getEntries("0002", Locale.JAPANESE));
+        assertSame(target.getEntries("0002", "PATTERN1"), target.getEntries("0002", "PATTERN1", Locale.JAPANESE));
+        assertSame(target.iterateEntries("0002").next(), target.getEntries("0002").get(0));
+
+        // 変更不可
+        try {
+            target.getEntries("0002").clear();
+            fail("例外が発生するはず。");
+        } catch (UnsupportedOperationException e) {
+            // OK
+        }
+        // 存在しないパターン
+        try {
+            target.getEntries("0002", "PATTERN4", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないコードID
+        try {
+            target.getEntries("0003");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    /**
+     * 別インスタンスの等しい言語に対して、同じ言語ごとのデータが使用されること。
+     */
+    @Test
+    public void testEqualLocaleInstances() {
+        List<CodeEntry> entries = target.getEntries("0002", Locale.JAPANESE);
+        for (int i = 0; i < 200; i++) {
+            assertSame(entries, target.getEntries("0002", new Locale("ja")));
+            assertEquals("処理実行中", target.getName("0002", "03", new Locale("ja")));
+        }
+        assertEquals("Batch Running", target.getName("0002", "03", new Locale("en")));
+
+        // コードが対応していない国付きの言語は、検索用データを言語のみのデータにフォールバックする
+        for (int i = 0; i < CodeIndex.MAX_FALLBACKS + 10; i++) {
+            assertSame(entries, target.getEntries("0002", new Locale("ja", "JP", "V" + i)));
+        }
+        assertSame(entries, target.getEntries("0002", Locale.JAPAN));
+        // 名称やコード値の取得にも同じ言語のフォールバックを適用する
+        assertEquals("処理実行中", target.getName("0002", "03", Locale.JAPAN));
+        assertEquals(target.getValues("0002", Locale.JAPANESE), target.getValues("0002", Locale.JAPAN));
+        assertTrue(target.withLocale(Locale.JAPAN).contains("0002", "PATTERN2", "03"));
+        // コードが対応していない言語は、保持できる件数を超えても例外となる
+        for (int i = 0; i < CodeIndex.MAX_FALLBACKS + 10; i++) {
+            try {
+                target.getEntries("0002", new Locale("zz" + i));
+                fail("例外が発生するはず。");
+            } catch (IllegalArgumentException e) {
+                // OK
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            try {
+                target.getName("0002", "03", Locale.CHINESE);
+                fail("例外が発生するはず。");
+            } catch (IllegalArgumentException e) {
+                // OK
+            }
+        }
+        assertEquals("Batch Running", target.getName("0002", "03", new Locale("en", "US")));
+    }
+
+    /**
+     * 言語を固定した{@link CodeManager}は、スレッドコンテキストの言語を使用しないこと。
+     */
+    @Test
+    public void testWithLocale() {
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        CodeManager english = target.withLocale(Locale.ENGLISH);
+        assertEquals("Male", english.getName("0001", "01"));
+        assertEquals("男性", english.getName("0001", "01", Locale.JAPANESE));
+        assertEquals("M", english.getShortName("0001", "01"));
+        assertEquals("女", english.getShortName("0001", "02", Locale.JAPANESE));
+        assertEquals("01:Male", english.getOptionalName("0001", "01", "NAME_WITH_VALUE"));
+        assertEquals("0001-01-ja", english.getOptionalName("0001", "01", "OPTION01", Locale.JAPANESE));
+        assertEquals(Arrays.asList("02", "01"), english.getValues("0001"));
+        assertEquals(Arrays.asList("01", "02"), english.getValues("0001", Locale.JAPANESE));
+        assertEquals(Arrays.asList("01", "02", "05"), english.getValues("0002", "PATTERN1"));
+        assertEquals(Arrays.asList("03", "04"), english.getValues("0002", "PATTERN2", Locale.JAPANESE));
+        assertTrue(english.contains("0001", "01"));
+        assertTrue(english.contains("0002", "PATTERN2", "03"));
+        assertFalse(english.contains("0002", "PATTERN2", "01"));
+
+        // 仮想パターンの判定にも固定した言語を使用する
+        target.registerVirtualPattern("0002", "RUNNING", new CodeEntryFilter() {
+            public boolean accept(CodeEntry entry) {
+                return entry.getName().startsWith("Batch");
+            }
+        });
+        try {
+            assertTrue(english.contains("0002", "RUNNING", "03"));
+            assertFalse(target.contains("0002", "RUNNING", "03"));
+        } finally {
+            target.unregisterVirtualPattern("0002", "RUNNING");
+        }
+
+        try {
+            target.withLocale(null);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            assertEquals("locale must not be null.", e.getMessage());
+        }
+    }
+
+    /**
+     * 分割した範囲を合わせると、全てのエントリを重複なく走査できること。
+     */
+    @Test
+    public void testCodeEntryIteratorTrySplit() {
+        CodeEntryIterator suffix = target.iterateEntries("0002", "PATTERN1", Locale.JAPANESE);
+        assertEquals(5, suffix.estimateSize());
+        CodeEntryIterator prefix = suffix.trySplit();
+        List<String> values = new ArrayList<String>();
+        while (prefix.hasNext()) {
+            values.add(prefix.next().getValue());
+        }
+        assertEquals(Arrays.asList("01", "02"), values);
+        values.clear();
+        while (suffix.hasNext()) {
+            values.add(suffix.next().getValue());
+        }
+        assertEquals(Arrays.asList("05"), values);
+        assertNull(suffix.trySplit());
+
+        CodeEntryIterator iterator = target.iterateEntries("0001", Locale.JAPANESE);
+        assertNotNull(iterator.trySplit());
+        assertNull(iterator.trySplit());
+        assertEquals("02", iterator.next().getValue());
+        try {
+            iterator.remove();
+            fail("例外が発生するはず。");
+        } catch (UnsupportedOperationException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testPatternExpression() {
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        CodePatternExpression p1OrP2 = CodePatternExpression.anyOf("PATTERN1", "PATTERN2");
+        CodePatternExpression p1AndNotP2 = CodePatternExpression.parse("PATTERN1 & !PATTERN2");
+        CodePatternExpression notP1 = CodePatternExpression.parse("!PATTERN1");
+        CodePatternExpression p1AndP2 = CodePatternExpression.allOf("PATTERN1", "PATTERN2");
+
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05"), target.getValues("0002", p1OrP2));
+        assertEquals(Arrays.asList("01", "02", "05"), target.getValues("0002", p1AndNotP2, Locale.ENGLISH));
+        assertEquals(Arrays.asList("03", "04"), target.getValues("0002", notP1));
+        assertEquals(Collections.<String>emptyList(), target.getValues("0002", p1AndP2));
+        assertEquals(Arrays.asList("03", "04"),
+                target.getValues("0002", CodePatternExpression.parse("(PATTERN3 | PATTERN2) & !PATTERN1")));
+        assertSame(target.getValues("0002", notP1), target.getValues("0002", CodePatternExpression.parse("!PATTERN1")));
+
+        assertTrue(target.contains("0002", p1OrP2, "03"));
+        assertTrue(target.contains("0002", notP1, "04"));
+        assertFalse(target.contains("0002", notP1, "05"));
+        assertFalse(target.contains("0002", p1AndP2, "01"));
+        assertFalse(target.contains("0002", p1OrP2, "06"));
+
+        // 存在しないパターン
+        try {
+            target.contains("0002", CodePatternExpression.parse("PATTERN1 | PATTERN4"), "01");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないコードID
+        try {
+            target.getValues("0003", p1OrP2);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testVirtualPattern() {
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        target.registerVirtualPattern("0002", "COMPLETED", Arrays.asList("04", "05", "99"));
+        target.registerVirtualPattern("0002", "PATTERN1", new CodeEntryFilter() {
+            @Override
+            public boolean accept(CodeEntry entry) {
+                return entry.getValue().compareTo("03") >= 0;
+            }
+        });
+
+        assertEquals(Arrays.asList("04", "05"), target.getValues("0002", "COMPLETED"));
+        assertEquals(Arrays.asList("04", "05"), target.getValues("0002", "COMPLETED", Locale.ENGLISH));
+        assertTrue(target.contains("0002", "COMPLETED", "04"));
+        assertFalse(target.contains("0002", "COMPLETED", "03"));
+        assertFalse(target.contains("0002", "COMPLETED", "99"));
+        assertTrue(CodeUtil.contains("0002", "COMPLETED", "05"));
+
+        // テーブルと同名の場合は仮想パターンが優先される
+        assertEquals(Arrays.asList("03", "04", "05"), target.getValues("0002", "PATTERN1"));
+        assertFalse(target.contains("0002", "PATTERN1", "01"));
+
+        // パターンを使用する他の機能からも使用できる
+        assertEquals(Arrays.asList("04", "05"),
+                target.getValues("0002", CodePatternExpression.parse("COMPLETED & PATTERN1")));
+        assertEquals(Arrays.asList("05"),
+                target.searchValues("0002", "COMPLETED", "確認", CodeNameSearchMode.SUBSTRING, 10));
+        assertTrue(target.getMatcher("0002", "COMPLETED").matches("04"));
+
+        // 他のコードIDには影響しない
+        try {
+            target.getValues("0001", "COMPLETED");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+
+        // 再読み込み後のコードに対して評価し直される
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        List<CodePattern> patterns = TestCodeCreator.createPatternList();
+        patterns.add(new CodePattern("0002", "99", "0", "0", "0"));
+        List<CodeName> names = TestCodeCreator.createNameList();
+        names.add(new CodeName("0002", "99", "ja", 99L, "その他", "他", "", ""));
+        names.add(new CodeName("0002", "99", "en", 99L, "Other", "Other", "", ""));
+        codeLoader.setPatterns(patterns);
+        codeLoader.setNames(names);
+        codeLoader.initialize();
+        BasicStaticDataCache<Code> codeCache = repositoryResource.getComponent("codeCache");
+        codeCache.refresh();
+        assertEquals(Arrays.asList("04", "05", "99"), target.getValues("0002", "COMPLETED"));
+        assertTrue(target.contains("0002", "COMPLETED", "99"));
+
+        // 登録を解除するとテーブルのパターンが使用される
+        target.unregisterVirtualPattern("0002", "PATTERN1");
+        assertEquals(Arrays.asList("01", "02", "05"), target.getValues("0002", "PATTERN1"));
+        target.unregisterVirtualPattern("0002", "COMPLETED");
+        target.unregisterVirtualPattern("0002", "COMPLETED");
+        try {
+            target.contains("0002", "COMPLETED", "04");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            target.registerVirtualPattern("0002", "", Arrays.asList("01"));
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testOptionColumn() {
+        OptionColumn column = target.getOptionColumn("0002", "OPTION01");
+        assertEquals("0002", column.getCodeId());
+        assertEquals("OPTION01", column.getOptionColumnName());
+
+        ThreadContext.setLanguage(Locale.ENGLISH);
+        assertEquals("0002-03-en", column.getName("03"));
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        assertEquals("0002-03-ja", column.getName("03"));
+        assertEquals("0002-01-en", column.getName("01", Locale.ENGLISH));
+        assertEquals("0002-01-ja", column.getName("01", Locale.JAPANESE));
+        assertArrayEquals(new String[] {"0002-05-ja", "0002-01-ja", "0002-05-ja"},
+                column.getNames(Arrays.asList("05", "01", "05"), Locale.JAPANESE));
+        assertEquals(0, column.getNames(new ArrayList<String>(), Locale.JAPANESE).length);
+
+        // 解決済みの列は指定された言語ごとに再利用する
+        OptionColumn.ResolvedColumn japanese = column.resolve(Locale.JAPANESE);
+        OptionColumn.ResolvedColumn english = column.resolve(Locale.ENGLISH);
+        for (int i = 0; i < 3; i++) {
+            assertSame(japanese, column.resolve(Locale.JAPANESE));
+            assertSame(english, column.resolve(Locale.ENGLISH));
+            assertSame(japanese, column.resolve(Locale.JAPAN));
+        }
+        assertEquals("0002-01-ja", column.getName("01", Locale.JAPAN));
+
+        // 存在しないコード値
+        try {
+            column.getName("06", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            column.getNames(Arrays.asList("01", "06"), Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しない言語
+        try {
+            column.getName("01", Locale.CHINESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないコードID、カラムは取得時にチェックされる
+        try {
+            target.getOptionColumn("0003", "OPTION01").getName("01", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            target.getOptionColumn("0002", "OPTION99").getName("01", Locale.JAPANESE);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+
+        // 再読み込み後のコードを参照する
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        List<CodePattern> patterns = TestCodeCreator.createPatternList();
+        patterns.add(new CodePattern("0002", "99", "0", "0", "0"));
+        List<CodeName> names = TestCodeCreator.createNameList();
+        names.add(new CodeName("0002", "99", "ja", 99L, "その他", "他", "", "0002-99-ja"));
+        codeLoader.setPatterns(patterns);
+        codeLoader.setNames(names);
+        codeLoader.initialize();
+        BasicStaticDataCache<Code> codeCache = repositoryResource.getComponent("codeCache");
+        codeCache.refresh();
+        assertEquals("0002-01-ja", column.getName("01", Locale.JAPANESE));
+        assertEquals("0002-99-ja", column.getName("99", Locale.JAPANESE));
+    }
+
+    @Test
+    public void testOptionColumnTypedValues() throws Exception {
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        List<CodePattern> patterns = TestCodeCreator.createPatternList();
+        patterns.add(new CodePattern("0003", "01", "1", "0", "0"));
+        patterns.add(new CodePattern("0003", "02", "1", "0", "0"));
+        patterns.add(new CodePattern("0003", "03", "1", "0", "0"));
+        patterns.add(new CodePattern("0004", "01", "1", "0", "0"));
+        patterns.add(new CodePattern("0004", "02", "1", "0", "0"));
+        patterns.add(new CodePattern("0004", "03", "1", "0", "0"));
+        List<CodeName> names = TestCodeCreator.createNameList();
+        names.add(new CodeName("0003", "01", "ja", 1L, "上限1", "1", "100", "20260401"));
+        names.add(new CodeName("0003", "02", "ja", 2L, "上限2", "2", "-5", "20261019"));
+        names.add(new CodeName("0003", "03", "ja", 3L, "上限3", "3", "3000000000", "20261231"));
+        names.add(new CodeName("0004", "01", "ja", 1L, "フラグ1", "1", "1", "1.50"));
+        names.add(new CodeName("0004", "02", "ja", 2L, "フラグ2", "2", "FALSE", "-0.25"));
+        names.add(new CodeName("0004", "03", "ja", 3L, "フラグ3", "3", "true", "1e3"));
+        codeLoader.setPatterns(patterns);
+        codeLoader.setNames(names);
+        codeLoader.initialize();
+        BasicStaticDataCache<Code> codeCache = repositoryResource.getComponent("codeCache");
+        codeCache.refresh();
+        ThreadContext.setLanguage(Locale.JAPANESE);
+
+        OptionColumn limit = target.getOptionColumn("0003", "NAME_WITH_VALUE");
+        assertEquals(100L, limit.getLong("01"));
+        assertEquals(-5L, limit.getLong("02", Locale.JAPANESE));
+        assertEquals(3000000000L, limit.getLong("03"));
+        // intに変換できない値が存在する場合は、取得したコード値に関わらず列の変換時に例外となる
+        try {
+            limit.getInt("01");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[03=3000000000]"));
+        }
+        assertEquals(new BigDecimal("3000000000"), limit.getBigDecimal("03"));
+
+        OptionColumn date = target.getOptionColumn("0003", "OPTION01");
+        assertEquals(new SimpleDateFormat("yyyyMMdd").parse("20261019"), date.getDate("02"));
+        assertEquals(new SimpleDateFormat("yyyyMMdd").parse("20260401"), date.getDate("01", Locale.JAPANESE));
+        // 返却する日付は毎回生成される
+        date.getDate("02").setTime(0L);
+        assertEquals(new SimpleDateFormat("yyyyMMdd").parse("20261019"), date.getDate("02"));
+        assertEquals(20260401, date.getInt("01"));
+        target.setOptionDatePattern("yyyy/MM/dd");
+        try {
+            date.getDate("01");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("03=20261231"));
+        }
+
+        OptionColumn flag = target.getOptionColumn("0004", "NAME_WITH_VALUE");
+        assertTrue(flag.getBoolean("01"));
+        assertFalse(flag.getBoolean("02"));
+        assertTrue(flag.getBoolean("03", Locale.JAPANESE));
+
+        OptionColumn rate = target.getOptionColumn("0004", "OPTION01");
+        assertEquals(new BigDecimal("1.50"), rate.getBigDecimal("01"));
+        assertEquals(new BigDecimal("-0.25"), rate.getBigDecimal("02"));
+        assertEquals(new BigDecimal("1e3"), rate.getBigDecimal("03"));
+        try {
+            rate.getBoolean("01");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[01=1.50, 02=-0.25, 03=1e3]"));
+        }
+        try {
+            rate.getLong("01");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+
+        // 存在しないコード値
+        try {
+            limit.getLong("04");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しない言語
+        try {
+            limit.getLong("01", Locale.ENGLISH);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testEffectiveDated() throws Exception {
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        List<CodePattern> patterns = TestCodeCreator.createPatternList();
+        patterns.add(new CodePattern("0003", "01", "1", "0", "0"));
+        patterns.add(new CodePattern("0003", "02", "0", "0", "0"));
+        patterns.add(new CodePattern("0003", "03", "1", "0", "0"));
+        patterns.add(new CodePattern("0003", "04", "0", "0", "0"));
+        List<CodeName> names = TestCodeCreator.createNameList();
+        names.add(new CodeName("0003", "01", "ja", 1L, "常時", "常", "", ""));
+        names.add(new CodeName("0003", "02", "ja", 2L, "上期", "上", "20260401", "20261001"));
+        names.add(new CodeName("0003", "03", "ja", 3L, "下期以降", "下", "20261001", ""));
+        names.add(new CodeName("0003", "04", "ja", 4L, "旧", "旧", "", "20260401"));
+        names.add(new CodeName("0003", "01", "en", 1L, "Always", "A", "", ""));
+        names.add(new CodeName("0003", "02", "en", 2L, "First half", "F", "20260401", "20261001"));
+        names.add(new CodeName("0003", "03", "en", 3L, "Second half", "S", "20261001", ""));
+        names.add(new CodeName("0003", "04", "en", 4L, "Old", "O", "", "20260401"));
+        codeLoader.setPatterns(patterns);
+        codeLoader.setNames(names);
+        codeLoader.initialize();
+        BasicStaticDataCache<Code> codeCache = repositoryResource.getComponent("codeCache");
+        codeCache.refresh();
+        target.setValidFromColumnName("NAME_WITH_VALUE");
+        target.setValidToColumnName("OPTION01");
+        ThreadContext.setLanguage(Locale.JAPANESE);
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+        Date march = format.parse("20260331235959");
+        Date april = format.parse("20260401000000");
+        Date september = format.parse("20260930235959");
+        Date october = format.parse("20261001000000");
+
+        assertEquals(Arrays.asList("01", "04"), target.getValues("0003", march));
+        assertEquals(Arrays.asList("01", "02"), target.getValues("0003", april));
+        assertEquals(Arrays.asList("01", "02"), target.getValues("0003", september));
+        assertEquals(Arrays.asList("01", "03"), target.getValues("0003", october));
+        assertEquals(Arrays.asList("01", "03"), target.getValues("0003", Locale.ENGLISH, format.parse("29991231000000")));
+        assertSame(target.getValues("0003", april), target.getValues("0003", september));
+
+        assertEquals(Arrays.asList("01"), target.getValues("0003", "PATTERN1", april));
+        assertEquals(Arrays.asList("01", "03"), target.getValues("0003", "PATTERN1", Locale.ENGLISH, october));
+
+        // 日時が変わるだけで、再読み込みせずに有効なコード値が切り替わる
+        assertTrue(target.contains("0003", "04", march));
+        assertFalse(target.contains("0003", "04", april));
+        assertFalse(target.contains("0003", "02", march));
+        assertTrue(target.contains("0003", "02", april));
+        assertTrue(target.contains("0003", "02", september));
+        assertFalse(target.contains("0003", "02", october));
+        assertFalse(target.contains("0003", "99", october));
+        assertTrue(target.contains("0003", "PATTERN1", "03", october));
+        assertFalse(target.contains("0003", "PATTERN1", "02", april));
+        assertFalse(target.contains("0003", "PATTERN1", "03", april));
+
+        assertEquals("上期", target.getName("0003", "02", april));
+        assertEquals("First half", target.getName("0003", "02", Locale.ENGLISH, september));
+        try {
+            target.getName("0003", "02", october);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("code value is not valid at the specified date."));
+        }
+        try {
+            target.contains("0003", "02", (Date) null);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないコードID
+        try {
+            target.getValues("0009", april);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないパターン
+        try {
+            target.contains("0003", "PATTERN9", "01", april);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 有効期間のカラムを日時に変換できない
+        try {
+            target.getValues("0002", april);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+
+        // 有効期間のカラムを設定しない場合は全て有効
+        target.setValidFromColumnName(null);
+        target.setValidToColumnName(null);
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05"), target.getValues("0002", april));
+        assertTrue(target.contains("0002", "PATTERN1", "05", april));
+    }
 }
@@ -0,0 +1,118 @@
+package nablarch.common.code;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CodeBuilder}のテストクラス。
+ */
+public class CodeBuilderTest {
+
+    @Test
+    public void testBuild() throws Exception {
+        CodeBuilder builder = new CodeBuilder("0001")
+                .patternColumns("PATTERN1", "PATTERN2")
+                .optionColumns("OPTION01")
+                .value("01", "PATTERN1")
+                .value("02", "PATTERN1", "PATTERN2")
+                .value("03")
+                .name("01", Locale.JAPANESE, 2, "男性", "男", "01:男性")
+                .name("02", Locale.JAPANESE, 1, "女性", "女", "02:女性")
+                .name("01", Locale.ENGLISH, 1, "Male", "M", "01:Male");
+        Code code = builder.build();
+
+        assertEquals("0001", code.getCodeId());
+        assertTrue(code.contains("01"));
+        assertFalse("名称のないコード値は含めない", code.contains("03"));
+        assertTrue(code.contains("PATTERN2", "02"));
+        assertFalse(code.contains("PATTERN2", "01"));
+        assertEquals(Arrays.asList("02", "01"), code.getValues(Locale.JAPANESE));
+        assertEquals(Arrays.asList("02", "01"), code.getValues("PATTERN1", Locale.JAPANESE));
+        assertEquals(Arrays.asList("01"), code.getValues(Locale.ENGLISH));
+        assertEquals("女性", code.getName("02", Locale.JAPANESE));
+        assertEquals("M", code.getShortName("01", Locale.ENGLISH));
+        assertEquals("01:男性", code.getOptionalName("01", "OPTION01", Locale.JAPANESE));
+
+        // 生成後に追加しても、生成済みのコードは変わらない
+        builder.name("03", Locale.JAPANESE, 3, "不明", "不", "03:不明");
+        assertFalse(code.contains("03"));
+        assertTrue(builder.build().contains("03"));
+    }
+
+    @Test
+    public void testLargeCode() throws Exception {
+        CodeBuilder builder = new CodeBuilder("LARGE").patternColumns("EVEN");
+        int size = 100000;
+        for (int i = 0; i < size; i++) {
+            String value = String.valueOf(i);
+            if (i % 2 == 0) {
+                builder.value(value, "EVEN");
+            } else {
+                builder.value(value);
+            }
+            builder.name(value, Locale.JAPANESE, size - i, "名称" + i, "略" + i);
+        }
+        Code code = builder.build();
+        assertEquals(size, code.getValues(Locale.JAPANESE).size());
+        assertEquals("ソート順に並ぶ", String.valueOf(size - 1), code.getValues(Locale.JAPANESE).get(0));
+        assertEquals(size / 2, code.getValues("EVEN", Locale.JAPANESE).size());
+        assertEquals("名称12345", code.getName("12345", Locale.JAPANESE));
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        CodeBuilder builder = new CodeBuilder("0001").patternColumns("PATTERN1").value("01");
+        try {
+            builder.value("01");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("code value is duplicated. code id = 0001, value = 01", e.getMessage());
+        }
+        try {
+            builder.value("02", "PATTERN9");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("pattern was not found. code id = 0001, pattern = PATTERN9", e.getMessage());
+        }
+        try {
+            builder.name("02", Locale.JAPANESE, 1, "名称", "略称");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("code value was not added. code id = 0001, value = 02", e.getMessage());
+        }
+        builder.name("01", Locale.JAPANESE, 1, "名称", "略称");
+        try {
+            builder.name("01", Locale.JAPANESE, 2, "名称", "略称");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("name is duplicated. code id = 0001, locale = ja, value = 01", e.getMessage());
+        }
+        try {
+            builder.name("01", Locale.ENGLISH, 1, "name", "short", "option");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("number of option names does not match option columns."));
+        }
+        try {
+            builder.optionColumns("OPTION01");
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("columns must be set before adding values. code id = 0001", e.getMessage());
+        }
+        try {
+            new CodeBuilder("0002").patternColumns("PATTERN1", "PATTERN1");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("pattern column is duplicated. code id = 0002, pattern = PATTERN1", e.getMessage());
+        }
+    }
+}
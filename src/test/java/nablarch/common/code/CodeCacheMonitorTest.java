@@ -0,0 +1,156 @@
+package nablarch.common.code;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Locale;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CodeCacheMonitor}のテストクラス。
+ */
+public class CodeCacheMonitorTest {
+
+    private static final String OBJECT_NAME = "nablarch.common.code:type=CodeCacheMonitor,name=test";
+
+    private MockCodeLoader loader;
+
+    private AsyncCodeDefinitionCache cache;
+
+    private BasicCodeManager codeManager;
+
+    private CodeCacheMonitor target;
+
+    @Before
+    public void setUp() throws Exception {
+        loader = new MockCodeLoader();
+        loader.setPatterns(TestCodeCreator.createPatternList());
+        loader.setNames(TestCodeCreator.createNameList());
+        loader.initialize();
+        cache = new AsyncCodeDefinitionCache();
+        cache.setLoader(loader);
+        cache.setLoadOnStartup(true);
+        cache.initialize();
+        codeManager = new BasicCodeManager();
+        codeManager.setCodeDefinitionCache(cache);
+        target = new CodeCacheMonitor();
+        target.setCodeManager(codeManager);
+        target.setCodeDefinitionCache(cache);
+        target.setLanguage("ja");
+        target.setObjectName(OBJECT_NAME);
+        target.initialize();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        target.unregister();
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        assertTrue("MBeanとして登録される", server.isRegistered(name));
+        assertEquals(2, server.getAttribute(name, "LoadedCodeIdCount"));
+        assertEquals(7, target.getLoadedValueCount());
+        long footprint = target.getEstimatedFootprintBytes();
+        assertTrue(footprint > 0L);
+        assertEquals("置き換わっていないコードは算出済みの値を使用する", footprint, target.getEstimatedFootprintBytes());
+        assertNotNull("初期化時の読み込み日時", target.getLastReloadTime());
+
+        codeManager.getName("0001", "01", Locale.JAPANESE);
+        codeManager.getName("0001", "02", Locale.ENGLISH);
+        codeManager.contains("0002", "01");
+        assertArrayEquals("取得回数の降順", new String[] {"0001=2", "0002=1"}, target.getHitCounts());
+        assertEquals(2L, target.getHitCount("0001"));
+        assertEquals(0L, target.getHitCount("9999"));
+
+        target.resetHitCounts();
+        assertEquals(0, target.getHitCounts().length);
+
+        // 複数のスレッドから取得した回数を合計する
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        codeManager.contains("0001", "01");
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000L, target.getHitCount("0001"));
+
+        target.unregister();
+        assertFalse("登録を解除できる", server.isRegistered(name));
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        server.invoke(name, "reload", new Object[] {"0001"}, new String[] {String.class.getName()});
+        assertNull("指定したコードIDのみ破棄する", cache.getValueIfPresent("0001"));
+        assertNotNull(cache.getValueIfPresent("0002"));
+
+        Date previous = target.getLastReloadTime();
+        Thread.sleep(5L);
+        server.invoke(name, "reloadAll", new Object[0], new String[0]);
+        assertTrue(target.getLastReloadTime().after(previous));
+        assertEquals(2, target.getLoadedCodeIdCount());
+    }
+
+    @Test
+    public void testWithBasicStaticDataCache() throws Exception {
+        target.unregister();
+        BasicStaticDataCache<Code> basicCache = new BasicStaticDataCache<Code>();
+        basicCache.setLoader(loader);
+        basicCache.initialize();
+        target = new CodeCacheMonitor();
+        target.setCodeManager(codeManager);
+        target.setCodeDefinitionCache(basicCache);
+        target.setObjectName(OBJECT_NAME);
+        target.initialize();
+
+        assertEquals("読み込み済みのコードを取得できない", -1, target.getLoadedCodeIdCount());
+        assertEquals(-1, target.getLoadedValueCount());
+        assertEquals(-1L, target.getEstimatedFootprintBytes());
+        assertNull(target.getLastReloadTime());
+        target.reloadAll();
+        assertNotNull(target.getLastReloadTime());
+        try {
+            target.reload("0001");
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), containsString("reloading a code id requires AsyncCodeDefinitionCache."));
+        }
+
+        try {
+            new CodeCacheMonitor().initialize();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("codeManager and codeDefinitionCache must be set.", e.getMessage());
+        }
+    }
+}
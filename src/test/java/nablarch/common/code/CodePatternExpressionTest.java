@@ -0,0 +1,58 @@
+package nablarch.common.code;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CodePatternExpression}のテストクラス。
+ */
+public class CodePatternExpressionTest {
+
+    @Test
+    public void testParse() {
+        assertEquals("PATTERN1", CodePatternExpression.parse("PATTERN1").toString());
+        assertEquals("(PATTERN1 | PATTERN3)", CodePatternExpression.parse(" PATTERN1|PATTERN3 ").toString());
+        assertEquals("(PATTERN2 & !PATTERN4)", CodePatternExpression.parse("PATTERN2 & !PATTERN4").toString());
+        // 論理積が論理和より優先される
+        assertEquals("(P1 | (P2 & P3))", CodePatternExpression.parse("P1 | P2 & P3").toString());
+        assertEquals("((P1 | P2) & P3)", CodePatternExpression.parse("(P1 | P2) & P3").toString());
+        assertEquals("!!P1", CodePatternExpression.parse("!!P1").toString());
+    }
+
+    @Test
+    public void testAnyOfAndAllOf() {
+        assertEquals("((P1 | P2) | P3)", CodePatternExpression.anyOf("P1", "P2", "P3").toString());
+        assertEquals("(P1 & P2)", CodePatternExpression.allOf("P1", "P2").toString());
+        assertEquals(CodePatternExpression.parse("P1 & P2"), CodePatternExpression.allOf("P1", "P2"));
+        assertEquals(CodePatternExpression.parse("P1 & P2").hashCode(), CodePatternExpression.allOf("P1", "P2").hashCode());
+        assertFalse(CodePatternExpression.parse("P1 & P2").equals(CodePatternExpression.anyOf("P1", "P2")));
+    }
+
+    @Test
+    public void testInvalidExpression() {
+        String[] invalids = {"", "P1 |", "& P1", "(P1 | P2", "P1 P2", "P1 | ()", "P1)"};
+        for (String invalid : invalids) {
+            try {
+                CodePatternExpression.parse(invalid);
+                fail("例外が発生するはず。 expression = " + invalid);
+            } catch (IllegalArgumentException e) {
+                // OK
+            }
+        }
+        try {
+            CodePatternExpression.parse(null);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            CodePatternExpression.anyOf();
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+}
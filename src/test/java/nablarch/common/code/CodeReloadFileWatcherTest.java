@@ -0,0 +1,167 @@
+package nablarch.common.code;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nablarch.core.cache.StaticDataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CodeReloadFileWatcher}のテストクラス。
+ */
+public class CodeReloadFileWatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File marker;
+
+    private CountingCache cache;
+
+    private CodeReloadFileWatcher target;
+
+    @Before
+    public void setUp() throws Exception {
+        marker = new File(folder.getRoot(), "code-reload.marker");
+        cache = new CountingCache();
+        target = new CodeReloadFileWatcher();
+        target.setCodeDefinitionCache(cache);
+        target.setMarkerFilePath(marker.getPath());
+        target.setPollingInterval(60 * 60 * 1000L);
+        target.setDebounceInterval(500L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Test
+    public void testDebounce() throws Exception {
+        target.initialize();
+        assertFalse("変更がない場合は再読み込みしない", target.poll(0L));
+
+        write("", 1000L);
+        assertFalse(target.poll(0L));
+        write("0001\n", 2000L);
+        assertFalse(target.poll(100L));
+        assertFalse("最後の更新から待機時間が経過していない", target.poll(599L));
+        assertEquals(0, cache.refreshed.get());
+        assertTrue(target.poll(600L));
+        assertEquals("連続した更新に対して1回だけ再読み込みする", 1, cache.refreshed.get());
+        assertFalse(target.poll(5000L));
+        assertEquals(1, cache.refreshed.get());
+
+        // マーカーファイルの削除も更新として扱う
+        assertTrue(marker.delete());
+        assertFalse(target.poll(6000L));
+        assertTrue(target.poll(6500L));
+        assertEquals(2, cache.refreshed.get());
+    }
+
+    @Test
+    public void testReloadSpecifiedCodeIds() throws Exception {
+        AsyncCodeDefinitionCache asyncCache = new AsyncCodeDefinitionCache();
+        asyncCache.setLoader(new VersionedCodeLoader());
+        asyncCache.setLoadOnStartup(true);
+        asyncCache.initialize();
+        target.setCodeDefinitionCache(asyncCache);
+        target.initialize();
+
+        write("# 再読み込みするコードID\n 0001 \n\n", 1000L);
+        assertFalse(target.poll(0L));
+        assertTrue(target.poll(500L));
+        assertNull(asyncCache.getValueIfPresent("0001"));
+        assertNotNull(asyncCache.getValueIfPresent("0002"));
+
+        // コードIDが記述されていない場合は全て再読み込みする
+        write("# all\n", 2000L);
+        assertFalse(target.poll(1000L));
+        assertTrue(target.poll(1500L));
+        assertNotNull("全て読み込み直されること", asyncCache.getValueIfPresent("0001"));
+    }
+
+    @Test
+    public void testCodeIdsWithBasicCache() throws Exception {
+        target.initialize();
+        write("0001\n0002\n", 1000L);
+        assertFalse(target.poll(0L));
+        assertTrue(target.poll(500L));
+        assertEquals("コードIDごとの再読み込みに対応しないキャッシュは全て再読み込みする", 1, cache.refreshed.get());
+    }
+
+    @Test
+    public void testPolling() throws Exception {
+        target.setPollingInterval(10L);
+        target.setDebounceInterval(0L);
+        target.initialize();
+        target.initialize();
+        write("0001\n", 1000L);
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (cache.refreshed.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertTrue(cache.refreshed.get() > 0);
+        target.stop();
+        target.stop();
+    }
+
+    @Test
+    public void testNotConfigured() throws Exception {
+        CodeReloadFileWatcher watcher = new CodeReloadFileWatcher();
+        watcher.setMarkerFilePath(marker.getPath());
+        try {
+            watcher.initialize();
+            fail("例外が発生するはず。");
+        } catch (IllegalStateException e) {
+            assertEquals("codeDefinitionCache and markerFilePath must be set.", e.getMessage());
+        }
+    }
+
+    private void write(String content, long lastModified) throws IOException {
+        FileOutputStream out = new FileOutputStream(marker);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        assertTrue(marker.setLastModified(lastModified));
+    }
+
+    /**
+     * 再読み込み回数を記録するキャッシュ。
+     */
+    private static final class CountingCache implements StaticDataCache<Code> {
+
+        private final AtomicInteger refreshed = new AtomicInteger();
+
+        @Override
+        public Code getValue(Object id) {
+            return null;
+        }
+
+        @Override
+        public List<Code> getValues(String indexName, Object key) {
+            return null;
+        }
+
+        @Override
+        public void refresh() {
+            refreshed.incrementAndGet();
+        }
+    }
+}
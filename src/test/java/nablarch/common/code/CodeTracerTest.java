@@ -0,0 +1,34 @@
+package nablarch.common.code;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CodeTracer}のテストクラス。
+ */
+public class CodeTracerTest {
+
+    @Test
+    public void testSampling() {
+        assertTrue("テスト環境ではデバッグログを出力する", CodeTracer.isEnabled());
+
+        CodeTracer target = new CodeTracer("lookup", 3);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(CodeTracer.NOT_SAMPLED, target.start());
+            assertEquals(CodeTracer.NOT_SAMPLED, target.start());
+            long start = target.start();
+            assertTrue("3回に1回計測する", start != CodeTracer.NOT_SAMPLED);
+            target.end(start, "code id = 0001");
+        }
+        target.end(CodeTracer.NOT_SAMPLED, "計測の対象外の場合は出力しない");
+
+        CodeTracer disabled = new CodeTracer("lookup", 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("サンプリング間隔が0の場合は計測しない", CodeTracer.NOT_SAMPLED, disabled.start());
+        }
+        assertTrue("サンプリング間隔が1の場合は毎回計測する",
+                new CodeTracer("lookup", 1).start() != CodeTracer.NOT_SAMPLED);
+    }
+}
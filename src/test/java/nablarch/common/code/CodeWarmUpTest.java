@@ -0,0 +1,99 @@
+package nablarch.common.code;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import nablarch.common.code.validator.CodeValueValidator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CodeWarmUp}のテストクラス。
+ */
+public class CodeWarmUpTest {
+
+    private MockCodeLoader loader;
+
+    private AsyncCodeDefinitionCache cache;
+
+    private BasicCodeManager codeManager;
+
+    private CodeWarmUp target;
+
+    @Before
+    public void setUp() throws Exception {
+        loader = new MockCodeLoader();
+        loader.setPatterns(TestCodeCreator.createPatternList());
+        loader.setNames(TestCodeCreator.createNameList());
+        loader.initialize();
+        cache = new AsyncCodeDefinitionCache();
+        cache.setLoader(loader);
+        cache.initialize();
+        codeManager = new BasicCodeManager();
+        codeManager.setCodeDefinitionCache(cache);
+        target = new CodeWarmUp();
+        target.setCodeManager(codeManager);
+        target.setLanguages(Arrays.asList("ja", "en"));
+        target.setIterations(3);
+    }
+
+    @Test
+    public void testWarmUpTargets() throws Exception {
+        target.setTargets(Arrays.asList("0002:PATTERN2"));
+        target.setCodeValueValidator(new CodeValueValidator());
+        target.initialize();
+        assertNotNull("対象のコードは読み込み済み", cache.getValueIfPresent("0002"));
+        assertNull("対象外のコードは読み込まない", cache.getValueIfPresent("0001"));
+    }
+
+    @Test
+    public void testWarmUpAllCodesWithValidityColumns() throws Exception {
+        codeManager.setValidFromColumnName("OPTION01");
+        codeManager.setOptionDatePattern("yyyyMMdd");
+        target.setCodeLoader(loader);
+        try {
+            target.initialize();
+            fail("有効期間のインデックスも生成する");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("could not be converted to DATE"));
+        }
+
+        codeManager.setValidFromColumnName(null);
+        target.initialize();
+        assertNotNull(cache.getValueIfPresent("0001"));
+        assertNotNull(cache.getValueIfPresent("0002"));
+    }
+
+    @Test
+    public void testInvalidSettings() throws Exception {
+        target.setTargets(Collections.singletonList("9999"));
+        try {
+            target.initialize();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("code id is not valid. code id = 9999", e.getMessage());
+        }
+
+        target.setTargets(null);
+        try {
+            target.initialize();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("targets or codeLoader must be set.", e.getMessage());
+        }
+
+        try {
+            new CodeWarmUp().initialize();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("codeManager must be set.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package nablarch.common.code;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import nablarch.core.cache.BasicStaticDataCache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CsvCodeLoader}のテストクラス。
+ */
+public class CsvCodeLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File patternFile;
+
+    private File nameFile;
+
+    private CsvCodeLoader target;
+
+    @Before
+    public void setUp() throws Exception {
+        patternFile = new File(folder.getRoot(), "code_pattern.csv");
+        nameFile = new File(folder.getRoot(), "code_name.csv");
+        write(patternFile,
+                "ID,VALUE,PATTERN1,PATTERN2",
+                "0001,01,1,0",
+                "0001,02,1,1",
+                "0002,01,1,1",
+                "",
+                "0001,03,0,1",
+                "0001,04,1,1");
+        write(nameFile,
+                "ID,VALUE,LANG,SORT_ORDER,NAME,SHORT_NAME,OPTION01",
+                "0001,01,ja,2,男性,男,\"01:男性\"",
+                "0001,02,ja,1,女性,女,\"02:女性\"",
+                "0001,03,ja,3,\"不明,その他\",\"\"\"不\"\"\",03:不明",
+                "0001,01,en,1,Male,M,01:Male",
+                "0002,01,ja,1,有効,有,",
+                "0001,02,en,2,Female,F,02:Female\r");
+        target = new CsvCodeLoader();
+        target.setPatternFilePath(patternFile.getPath());
+        target.setNameFilePath(nameFile.getPath());
+        target.setParallelism(2);
+        target.initialize();
+    }
+
+    @Test
+    public void testGetValue() throws Exception {
+        Code code = target.getValue("0001");
+        assertEquals("0001", code.getCodeId());
+        assertTrue(code.contains("01"));
+        assertTrue("離れた位置の行も読み込む", code.contains("03"));
+        assertFalse("名称が存在しないコード値は含めない", code.contains("04"));
+        assertTrue(code.contains("PATTERN2", "03"));
+        assertFalse(code.contains("PATTERN2", "01"));
+
+        assertEquals("ソート順に並ぶ", Arrays.asList("02", "01", "03"), code.getValues(Locale.JAPANESE));
+        assertEquals(Arrays.asList("01", "02"), code.getValues(Locale.ENGLISH));
+        assertEquals(Arrays.asList("02", "03"), code.getValues("PATTERN2", Locale.JAPANESE));
+
+        assertEquals("不明,その他", code.getName("03", Locale.JAPANESE));
+        assertEquals("\"不\"", code.getShortName("03", Locale.JAPANESE));
+        assertEquals("01:男性", code.getOptionalName("01", "OPTION01", Locale.JAPANESE));
+        assertEquals("行末の復帰文字は除く", "02:Female", code.getOptionalName("02", "OPTION01", Locale.ENGLISH));
+
+        assertNull("存在しないコードID", target.getValue("9999"));
+    }
+
+    @Test
+    public void testGetValueErrors() throws Exception {
+        Code code = target.getValue("0001");
+        try {
+            code.getName("03", Locale.ENGLISH);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("name was not found. code id = 0001, locale = en, value = 03"));
+        }
+        try {
+            code.getValues("PATTERN9", Locale.JAPANESE);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("pattern was not found. code id = 0001"));
+        }
+        try {
+            code.getOptionalName("01", "OPTION99", Locale.JAPANESE);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("option name = OPTION99"));
+        }
+        try {
+            code.getValues(Locale.CHINESE);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("locale was not found. code id = 0001, locale = zh"));
+        }
+    }
+
+    @Test
+    public void testLoadAllWithCodeManager() throws Exception {
+        List<Code> codes = target.loadAll();
+        assertEquals(2, codes.size());
+        assertEquals("0001", codes.get(0).getCodeId());
+        assertEquals("0002", codes.get(1).getCodeId());
+        assertSame("コードIDをまたいで等しい文字列は同じインスタンスになる",
+                codes.get(0).getValues(Locale.ENGLISH).get(0), codes.get(1).getValues(Locale.JAPANESE).get(0));
+
+        BasicStaticDataCache<Code> cache = new BasicStaticDataCache<Code>();
+        cache.setLoader(target);
+        cache.setLoadOnStartup(true);
+        cache.initialize();
+        BasicCodeManager manager = new BasicCodeManager();
+        manager.setCodeDefinitionCache(cache);
+        assertEquals("女性", manager.getName("0001", "02", Locale.JAPANESE));
+        assertEquals(Arrays.asList("01"), manager.getValues("0002", "PATTERN2", Locale.JAPANESE));
+        assertTrue(manager.contains("0002", "01"));
+    }
+
+    @Test
+    public void testReloadOnFileChange() throws Exception {
+        assertEquals(3, target.getValue("0001").getValues(Locale.JAPANESE).size());
+        write(nameFile,
+                "ID,VALUE,LANG,SORT_ORDER,NAME,SHORT_NAME,OPTION01",
+                "0001,01,ja,1,男,男,01",
+                "0001,02,ja,2,女,女,02",
+                "0001,03,ja,3,不明,不,03",
+                "0001,04,ja,4,対象外,外,04");
+        nameFile.setLastModified(nameFile.lastModified() + 2000L);
+        Code code = target.getValue("0001");
+        assertEquals("ファイルの更新を検知してインデックスを作成し直す",
+                Arrays.asList("01", "02", "03", "04"), code.getValues(Locale.JAPANESE));
+        assertEquals("男", code.getName("01", Locale.JAPANESE));
+    }
+
+    @Test
+    public void testLoadAllSequentially() throws Exception {
+        target.setParallelism(1);
+        List<String> codeIds = new ArrayList<String>();
+        for (Code code : target.loadAll()) {
+            codeIds.add(code.getCodeId());
+        }
+        assertEquals(Arrays.asList("0001", "0002"), codeIds);
+    }
+
+    @Test
+    public void testInvalidFiles() throws Exception {
+        write(patternFile, "CODE_ID,VALUE,PATTERN1", "0001,01,1");
+        try {
+            target.getValue("0001");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("invalid header line."));
+        }
+
+        write(patternFile, "ID,VALUE,PATTERN1", "0001,01,1", "0001,01,0");
+        try {
+            target.loadAll();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("pattern row is duplicated. code id = 0001, value = 01"));
+        }
+
+        write(patternFile, "ID,VALUE,PATTERN1", "0001,01,1,1");
+        try {
+            target.getValue("0001");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("invalid number of columns."));
+        }
+
+        write(patternFile, "ID,VALUE,PATTERN1", "0001,01,1");
+        write(nameFile, "ID,VALUE,LANG,SORT_ORDER,NAME,SHORT_NAME", "0001,01,ja,x,男性,男");
+        try {
+            target.getValue("0001");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("sort order must be a number."));
+        }
+
+        CsvCodeLoader notConfigured = new CsvCodeLoader();
+        try {
+            notConfigured.initialize();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("patternFilePath and nameFilePath must be set.", e.getMessage());
+        }
+    }
+
+    private void write(File file, String... lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        long previous = file.exists() ? file.lastModified() : 0L;
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.toString().getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        if (previous != 0L) {
+            file.setLastModified(previous + 1000L);
+        }
+    }
+}
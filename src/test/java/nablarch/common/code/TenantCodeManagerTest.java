@@ -0,0 +1,243 @@
+package nablarch.common.code;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.cache.BasicStaticDataCache;
+import nablarch.test.support.SystemRepositoryResource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link TenantCodeManager}のテストクラス。
+ */
+public class TenantCodeManagerTest {
+
+    @Rule
+    public SystemRepositoryResource repositoryResource
+            = new SystemRepositoryResource("nablarch/common/code/basic-code-manager-test.xml");
+
+    private BasicCodeManager base;
+
+    private TenantCodeManager target;
+
+    @Before
+    public void setUp() throws Exception {
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        codeLoader.setPatterns(TestCodeCreator.createPatternList());
+        codeLoader.setNames(TestCodeCreator.createNameList());
+        codeLoader.initialize();
+        base = repositoryResource.getComponentByType(BasicCodeManager.class);
+
+        target = new TenantCodeManager();
+        target.setBaseCodeManager(base);
+        target.setOverlays(Arrays.asList(
+                new CodeOverlay("A", "0002")
+                        .addValue("06", Locale.JAPANESE, "保留", "保")
+                        .addValue("06", Locale.ENGLISH, "Pending", null)
+                        .addValue("07", Locale.JAPANESE, "取消", "取")
+                        .addToPattern("PATTERN1", "06")
+                        .overrideName("01", Locale.JAPANESE, "新規")
+                        .overrideShortName("02", Locale.JAPANESE, "待機")
+                        .overrideOptionalName("06", "OPTION01", Locale.JAPANESE, "0002-06-ja"),
+                new CodeOverlay("A", "0001")
+                        .overrideName("01", Locale.ENGLISH, "Man"),
+                new CodeOverlay("B", "0002")
+                        .overrideName("01", Locale.JAPANESE, "受付")));
+        ThreadContext.setLanguage(Locale.JAPANESE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ThreadContext.setObject("tenantId", null);
+    }
+
+    @Test
+    public void testThreadContextTenant() {
+        ThreadContext.setObject("tenantId", "A");
+        assertEquals("新規", target.getName("0002", "01"));
+        assertEquals("処理開始待ち", target.getName("0002", "02"));
+        assertEquals("保留", target.getName("0002", "06"));
+        assertEquals("Pending", target.getName("0002", "06", Locale.ENGLISH));
+        assertEquals("Initial State", target.getName("0002", "01", Locale.ENGLISH));
+        assertEquals("Man", target.getName("0001", "01", Locale.ENGLISH));
+        assertEquals("男性", target.getName("0001", "01"));
+
+        assertEquals("待機", target.getShortName("0002", "02"));
+        assertEquals("保", target.getShortName("0002", "06"));
+        assertEquals("初期", target.getShortName("0002", "01"));
+        assertEquals("0002-06-ja", target.getOptionalName("0002", "06", "OPTION01"));
+        assertEquals("0002-01-en", target.getOptionalName("0002", "01", "OPTION01", Locale.ENGLISH));
+
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05", "06", "07"), target.getValues("0002"));
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05", "06"), target.getValues("0002", Locale.ENGLISH));
+        assertEquals(Arrays.asList("01", "02", "05", "06"), target.getValues("0002", "PATTERN1"));
+        assertEquals(Arrays.asList("03", "04"), target.getValues("0002", "PATTERN2", Locale.JAPANESE));
+        // マージ結果は共通のコードが変わらない限り再利用される
+        assertSame(target.getValues("0002"), target.getValues("0002"));
+        try {
+            target.getValues("0002").add("99");
+            fail("マージ結果は変更できないこと");
+        } catch (UnsupportedOperationException e) {
+            // OK
+        }
+
+        assertTrue(target.contains("0002", "06"));
+        assertTrue(target.contains("0002", "07"));
+        assertTrue(target.contains("0002", "01"));
+        assertFalse(target.contains("0002", "08"));
+        assertTrue(target.contains("0002", "PATTERN1", "06"));
+        assertFalse(target.contains("0002", "PATTERN1", "07"));
+        assertTrue(target.contains("0002", "PATTERN1", "01"));
+
+        // 追加していない略称、オプション名称は共通のコードから取得するため存在しない
+        try {
+            target.getShortName("0002", "06", Locale.ENGLISH);
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            target.getOptionalName("0002", "07", "OPTION01");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 存在しないコードID
+        try {
+            target.getName("0003", "01");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+
+        // 他のテナントの差分は参照されない
+        ThreadContext.setObject("tenantId", "B");
+        assertEquals("受付", target.getName("0002", "01"));
+        assertEquals("待ち", target.getShortName("0002", "02"));
+        assertFalse(target.contains("0002", "06"));
+        assertSame(base.getValues("0002"), target.getValues("0002"));
+    }
+
+    @Test
+    public void testNoTenant() {
+        assertEquals("初期状態", target.getName("0002", "01"));
+        assertSame(base.getValues("0002", "PATTERN1"), target.getValues("0002", "PATTERN1"));
+        assertFalse(target.contains("0002", "06"));
+
+        // 差分が登録されていないテナント
+        ThreadContext.setObject("tenantId", "C");
+        assertEquals("初期状態", target.getName("0002", "01"));
+        assertFalse(target.contains("0002", "PATTERN1", "06"));
+    }
+
+    @Test
+    public void testForTenant() {
+        ThreadContext.setObject("tenantId", "B");
+        CodeManager tenantA = target.forTenant("A");
+        assertEquals("新規", tenantA.getName("0002", "01"));
+        assertEquals("新規", tenantA.getName("0002", "01", Locale.JAPANESE));
+        assertEquals("待機", tenantA.getShortName("0002", "02"));
+        assertEquals("待機", tenantA.getShortName("0002", "02", Locale.JAPANESE));
+        assertEquals("0002-06-ja", tenantA.getOptionalName("0002", "06", "OPTION01"));
+        assertEquals("0002-06-ja", tenantA.getOptionalName("0002", "06", "OPTION01", Locale.JAPANESE));
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05", "06", "07"), tenantA.getValues("0002"));
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05", "06"), tenantA.getValues("0002", Locale.ENGLISH));
+        assertEquals(Arrays.asList("01", "02", "05", "06"), tenantA.getValues("0002", "PATTERN1"));
+        assertEquals(Arrays.asList("01", "02", "05", "06"), tenantA.getValues("0002", "PATTERN1", Locale.ENGLISH));
+        assertTrue(tenantA.contains("0002", "07"));
+        assertTrue(tenantA.contains("0002", "PATTERN1", "06"));
+
+        // 差分を再設定すると再設定後の差分を参照する
+        target.setOverlays(Arrays.asList(new CodeOverlay("A", "0002").overrideName("01", Locale.JAPANESE, "初期")));
+        assertEquals("初期", tenantA.getName("0002", "01"));
+        assertFalse(tenantA.contains("0002", "07"));
+        assertEquals("初期状態", target.getName("0002", "01"));
+    }
+
+    @Test
+    public void testForTenantWithLocale() {
+        ThreadContext.setObject("tenantId", "B");
+        ThreadContext.setLanguage(Locale.JAPANESE);
+        CodeManager tenantA = target.forTenant("A", Locale.ENGLISH);
+        assertEquals("Pending", tenantA.getName("0002", "06"));
+        assertEquals("保留", tenantA.getName("0002", "06", Locale.JAPANESE));
+        assertEquals("Waiting", tenantA.getShortName("0002", "02"));
+        assertEquals("0002-01-en", tenantA.getOptionalName("0002", "01", "OPTION01"));
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05", "06"), tenantA.getValues("0002"));
+        assertEquals(Arrays.asList("01", "02", "05", "06"), tenantA.getValues("0002", "PATTERN1"));
+        assertTrue(tenantA.contains("0002", "07"));
+        assertTrue(tenantA.contains("0002", "PATTERN1", "06"));
+        assertFalse(tenantA.contains("0002", "PATTERN1", "03"));
+
+        try {
+            target.forTenant("A", null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("locale must not be null.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTenantKey() {
+        target.setTenantKey("customTenant");
+        ThreadContext.setObject("tenantId", "B");
+        ThreadContext.setObject("customTenant", "A");
+        try {
+            assertEquals("新規", target.getName("0002", "01"));
+        } finally {
+            ThreadContext.setObject("customTenant", null);
+        }
+    }
+
+    @Test
+    public void testReloadBaseCode() throws Exception {
+        ThreadContext.setObject("tenantId", "A");
+        List<String> before = target.getValues("0002");
+
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        List<CodePattern> patterns = TestCodeCreator.createPatternList();
+        patterns.add(new CodePattern("0002", "99", "0", "0", "0"));
+        List<CodeName> names = TestCodeCreator.createNameList();
+        names.add(new CodeName("0002", "99", "ja", 99L, "その他", "他", "", ""));
+        names.add(new CodeName("0002", "99", "en", 99L, "Other", "Other", "", ""));
+        codeLoader.setPatterns(patterns);
+        codeLoader.setNames(names);
+        codeLoader.initialize();
+        BasicStaticDataCache<Code> codeCache = repositoryResource.getComponent("codeCache");
+        codeCache.refresh();
+
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05", "06", "07"), before);
+        assertEquals(Arrays.asList("01", "02", "03", "04", "05", "99", "06", "07"), target.getValues("0002"));
+        assertEquals("新規", target.getName("0002", "01"));
+    }
+
+    @Test
+    public void testInvalidOverlays() {
+        try {
+            target.setOverlays(Arrays.asList(new CodeOverlay("A", "0001"), new CodeOverlay("A", "0001")));
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            assertEquals("overlay is duplicated. tenant id = A, code id = 0001", e.getMessage());
+        }
+        try {
+            new CodeOverlay(null, "0001");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        // 不正な差分を設定しようとした場合は、設定済みの差分が維持される
+        ThreadContext.setObject("tenantId", "A");
+        assertEquals("新規", target.getName("0002", "01"));
+    }
+}
@@ -0,0 +1,63 @@
+package nablarch.common.code;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ValidityIndex}のテストクラス。
+ */
+public class ValidityIndexTest {
+
+    @Test
+    public void testManyDistinctDates() {
+        // コード値ごとに異なる有効期間を持つ場合でも、区間ごとのデータを事前に生成しない
+        int size = 100000;
+        long[] validFrom = new long[size];
+        long[] validTo = new long[size];
+        for (int i = 0; i < size; i++) {
+            validFrom[i] = i * 10L;
+            validTo[i] = i * 10L + 15L;
+        }
+        validFrom[0] = Long.MIN_VALUE;
+        validTo[size - 1] = Long.MAX_VALUE;
+        ValidityIndex target = new ValidityIndex(validFrom, validTo);
+
+        assertTrue("開始日時を含む", target.isValid(2, 20L));
+        assertFalse("終了日時を含まない", target.isValid(1, 25L));
+        assertTrue(target.isValid(2, 25L));
+        assertTrue("開始日時がない", target.isValid(0, -1000L));
+        assertTrue("終了日時がない", target.isValid(size - 1, Long.MAX_VALUE - 1L));
+
+        assertEquals(2, target.getValidPositions(target.segmentOf(25L), null)[0]);
+        assertEquals(1, target.getValidPositions(target.segmentOf(25L), null).length);
+        assertTrue(Arrays.equals(new int[] {2, 3}, target.getValidPositions(target.segmentOf(32L), null)));
+        assertTrue(Arrays.equals(new int[] {0}, target.getValidPositions(target.segmentOf(-1L), null)));
+        assertTrue(Arrays.equals(new int[] {size - 1},
+                target.getValidPositions(target.segmentOf(Long.MAX_VALUE - 1L), null)));
+        BitSet filter = new BitSet();
+        filter.set(3);
+        assertTrue(Arrays.equals(new int[] {3}, target.getValidPositions(target.segmentOf(32L), filter)));
+
+        // 区間ごとのリストは保持する区間数を超えると置き換える
+        List<String> values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(String.valueOf(i));
+        }
+        List<String> valid = target.getValidValues(values, null, null, 32L);
+        assertEquals(Arrays.asList("2", "3"), valid);
+        assertSame(valid, target.getValidValues(values, null, null, 33L));
+        for (int i = 0; i < ValidityIndex.MAX_CACHED_SEGMENTS * 4; i++) {
+            assertEquals(String.valueOf(i + 100), target.getValidValues(values, "P", null, (i + 100) * 10L + 12L).get(0));
+        }
+        assertEquals(Arrays.asList("2", "3"), target.getValidValues(values, null, null, 32L));
+    }
+}
@@ -0,0 +1,155 @@
+package nablarch.common.code;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import nablarch.core.cache.StaticDataLoader;
+
+/**
+ * 世代ごとに内容が異なるコードをロードするモッククラス。
+ * <p/>
+ * 世代ごとのコードは全て構築してから公開するため、読み込み中のスレッドから構築途中のコードは参照されない。
+ * 世代番号はコード名称の先頭("v{世代番号}-")に、世代の偶奇はコード値の数に反映される。
+ * <ul>
+ *     <li>0001: 01、02</li>
+ *     <li>0002: 01〜05(奇数世代は06を追加)。PATTERN1は01、02、05(奇数世代は06を追加)</li>
+ * </ul>
+ */
+public class VersionedCodeLoader implements StaticDataLoader<Code> {
+
+    /** 現在の世代 */
+    private volatile Generation current;
+
+    /**
+     * コンストラクタ。
+     */
+    public VersionedCodeLoader() {
+        publish(0);
+    }
+
+    /**
+     * 次の世代のコードを構築して公開する。
+     *
+     * @return 公開した世代番号
+     */
+    public synchronized int publishNext() {
+        return publish(current.version + 1);
+    }
+
+    /**
+     * 現在の世代番号を取得する。
+     *
+     * @return 世代番号
+     */
+    public int getVersion() {
+        return current.version;
+    }
+
+    /**
+     * 世代番号に対応するコードの値の数を取得する。
+     *
+     * @param codeId コードID
+     * @param version 世代番号
+     * @return コード値の数
+     */
+    public static int valueCount(String codeId, int version) {
+        if ("0001".equals(codeId)) {
+            return 2;
+        }
+        return version % 2 == 0 ? 5 : 6;
+    }
+
+    /**
+     * コード名称から世代番号を取得する。
+     *
+     * @param name コード名称
+     * @return 世代番号
+     */
+    public static int versionOf(String name) {
+        return Integer.parseInt(name.substring(1, name.indexOf('-')));
+    }
+
+    /**
+     * 指定した世代のコードを構築して公開する。
+     *
+     * @param version 世代番号
+     * @return 世代番号
+     */
+    private int publish(int version) {
+        List<CodePattern> patterns = new ArrayList<CodePattern>();
+        List<CodeName> names = new ArrayList<CodeName>();
+        String prefix = "v" + version + "-";
+        for (int i = 1; i <= 2; i++) {
+            String value = "0" + i;
+            patterns.add(new CodePattern("0001", value, "1", "0", "0"));
+            names.add(new CodeName("0001", value, "ja", (long) i, prefix + "性別" + i, "性" + i, "", prefix + value));
+            names.add(new CodeName("0001", value, "en", (long) i, prefix + "gender" + i, "g" + i, "", prefix + value));
+        }
+        for (int i = 1; i <= valueCount("0002", version); i++) {
+            String value = "0" + i;
+            String pattern1 = (i == 1 || i == 2 || i >= 5) ? "1" : "0";
+            patterns.add(new CodePattern("0002", value, pattern1, pattern1.equals("1") ? "0" : "1", "0"));
+            names.add(new CodeName("0002", value, "ja", (long) i, prefix + "状態" + i, "状" + i, "", prefix + value));
+            names.add(new CodeName("0002", value, "en", (long) i, prefix + "state" + i, "s" + i, "", prefix + value));
+        }
+        MockCodeLoader loader = new MockCodeLoader();
+        loader.setPatterns(patterns);
+        loader.setNames(names);
+        loader.initialize();
+        current = new Generation(version, Collections.unmodifiableList(new ArrayList<Code>(loader.loadAll())));
+        return version;
+    }
+
+    @Override
+    public Code getValue(Object id) {
+        for (Code code : current.codes) {
+            if (code.getCodeId().equals(id)) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Code> getValues(String indexName, Object key) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Code> loadAll() {
+        return current.codes;
+    }
+
+    @Override
+    public List<String> getIndexNames() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Object getId(Code value) {
+        return value.getCodeId();
+    }
+
+    @Override
+    public Object generateIndexKey(String indexName, Code value) {
+        return null;
+    }
+
+    /**
+     * 世代番号と、その世代のコード。
+     */
+    private static final class Generation {
+
+        /** 世代番号 */
+        private final int version;
+
+        /** コード */
+        private final List<Code> codes;
+
+        private Generation(int version, List<Code> codes) {
+            this.version = version;
+            this.codes = codes;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package nablarch.common.code.validator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import nablarch.common.code.BasicCodeManager;
+import nablarch.common.code.MockCodeLoader;
+import nablarch.common.code.TestCodeCreator;
+import nablarch.core.ThreadContext;
+import nablarch.test.support.SystemRepositoryResource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CodeColumnValidator}のテストクラス。
+ */
+public class CodeColumnValidatorTest {
+
+    @Rule
+    public SystemRepositoryResource repositoryResource
+            = new SystemRepositoryResource("nablarch/common/code/basic-code-manager-test.xml");
+
+    private CodeColumnValidator target;
+
+    @Before
+    public void setUp() throws Exception {
+        MockCodeLoader codeLoader = repositoryResource.getComponent("codeLoader");
+        codeLoader.setPatterns(TestCodeCreator.createPatternList());
+        codeLoader.setNames(TestCodeCreator.createNameList());
+        codeLoader.initialize();
+        ThreadContext.setLanguage(Locale.JAPANESE);
+
+        target = new CodeColumnValidator(repositoryResource.getComponentByType(BasicCodeManager.class))
+                .addColumn(2, "0002", "PATTERN1")
+                .addColumn(0, "0001")
+                .addColumn(2, "0002");
+    }
+
+    /**
+     * コードに含まれない値の位置が、レコード、カラムの位置順に返却されること。
+     */
+    @Test
+    public void testValidate() {
+        List<String[]> records = Arrays.asList(
+                new String[] {"01", "any", "01"},
+                new String[] {"03", "any", "03"},
+                new String[] {"", "any", null},
+                new String[] {"02"},
+                new String[] {"02", "any", "06"});
+
+        assertEquals(Arrays.asList(
+                new CodeColumnError(1, 0, "03"),
+                new CodeColumnError(1, 2, "03"),
+                new CodeColumnError(4, 2, "06")), target.validate(records));
+    }
+
+    /**
+     * 並列にチェックした場合も、レコードの位置順に返却されること。
+     */
+    @Test
+    public void testValidateParallel() {
+        List<String[]> records = new ArrayList<String[]>();
+        List<CodeColumnError> expected = new ArrayList<CodeColumnError>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 7 == 0) {
+                records.add(new String[] {"09", "", "04"});
+                expected.add(new CodeColumnError(i, 0, "09"));
+                expected.add(new CodeColumnError(i, 2, "04"));
+            } else {
+                records.add(new String[] {"01", "", "05"});
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(expected, target.validate(records, executor, 64));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 列指向のデータをカラム単位でチェックできること。
+     */
+    @Test
+    public void testValidateColumn() {
+        assertEquals(Arrays.asList(new CodeColumnError(1, 2, "03"), new CodeColumnError(3, 2, "06")),
+                target.validateColumn(2, new String[] {"01", "03", "", "06", "05"}));
+        assertEquals(Collections.<CodeColumnError>emptyList(),
+                target.validateColumn(1, new String[] {"any"}));
+    }
+
+    /**
+     * 存在しないコードID、パターンを登録した場合は例外が送出されること。
+     */
+    @Test
+    public void testInvalidSchema() {
+        BasicCodeManager codeManager = repositoryResource.getComponentByType(BasicCodeManager.class);
+        try {
+            new CodeColumnValidator(codeManager).addColumn(0, "0003").validate(new ArrayList<String[]>());
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            new CodeColumnValidator(codeManager).addColumn(0, "0002", "PATTERN4").validate(new ArrayList<String[]>());
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        try {
+            new CodeColumnValidator(codeManager).addColumn(-1, "0002");
+            fail("例外が発生するはず。");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+}
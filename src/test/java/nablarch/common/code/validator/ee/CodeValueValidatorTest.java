@@ -1,11 +1,15 @@
 package nablarch.common.code.validator.ee;
 
 import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.validation.*;
 
 import nablarch.common.code.MockCodeLoader;
 import nablarch.common.code.TestCodeCreator;
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -14,6 +18,7 @@ import nablarch.test.support.SystemRepositoryResource;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * {@link CodeValueValidatorTest}のテストクラス。
@@ -108,6 +113,33 @@ public class CodeValueValidatorTest {
         assertThat(sut.isValid("03", unused), is(false));
     }
 
+    @Test
+    public void testTraceSamplingInterval() {
+        ConstraintValidator sut = new CodeValue.CodeValueValidator();
+        loadTraceSamplingInterval("1");
+        sut.initialize(annotation("code"));
+        assertThat("サンプリングの対象となっても結果は変わらない", sut.isValid("01", unused), is(true));
+
+        loadTraceSamplingInterval("1O");
+        try {
+            sut.initialize(annotation("code"));
+            fail("例外が発生するはず。");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("nablarch.codeValue.traceSamplingInterval must be an integer. value = 1O"));
+        }
+    }
+
+    private static void loadTraceSamplingInterval(final String value) {
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                Map<String, Object> objects = new HashMap<String, Object>();
+                objects.put(CodeValue.CodeValueValidator.TRACE_SAMPLING_INTERVAL_KEY, value);
+                return objects;
+            }
+        });
+    }
+
     @Test
     public void testListAndGroups() throws Exception {
         // JDK7依存してしまうのでBeanValidatorを実行することができないので静的にテストする。